@@ -0,0 +1,118 @@
+package com.medmuse.medmuse_backend.benchmark;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.medmuse.medmuse_backend.dto.ReportDto;
+import com.medmuse.medmuse_backend.dto.SymptomDto;
+import com.medmuse.medmuse_backend.dto.UserDemographicsDto;
+import com.medmuse.medmuse_backend.dto.UserDto;
+import com.medmuse.medmuse_backend.entity.PromptMode;
+import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.entity.Symptom;
+import com.medmuse.medmuse_backend.entity.User;
+import com.medmuse.medmuse_backend.entity.UserDemographics;
+import com.medmuse.medmuse_backend.mapper.DtoMapper;
+import com.medmuse.medmuse_backend.mapper.DtoMapperImpl;
+
+/**
+ * Objects mapped per second by the generated {@link DtoMapper} and by the reflective
+ * {@code ModelMapper} it replaced, for each entity the services map. Read
+ * {@code gc.alloc.rate.norm} for the bytes allocated per mapped object.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DtoMapperBenchmark {
+
+    private DtoMapper dtoMapper;
+    private ModelMapper modelMapper;
+    private User user;
+    private UserDemographics demographics;
+    private Symptom symptom;
+    private Report report;
+
+    @Setup
+    public void setUp() {
+        dtoMapper = new DtoMapperImpl();
+        modelMapper = new ModelMapper();
+
+        user = new User("google-benchmark", "benchmark@example.com", "Benchmark User",
+                "https://example.com/avatar.png");
+        user.setId(1L);
+        user.setCreatedAt(LocalDateTime.of(2026, 1, 1, 9, 0));
+
+        demographics = new UserDemographics(34, "Female", 61.5, "168 cm", "Indian", user);
+        user.setDemographics(demographics);
+
+        symptom = new Symptom("Headache", "Pain", "Pain in the head or neck area");
+        symptom.setId(9L);
+
+        report = new Report(user, LocalDate.of(2026, 5, 1), LocalDate.of(2026, 5, 7));
+        report.setId(1L);
+        report.setGeneratedAt(LocalDateTime.of(2026, 5, 7, 18, 30));
+        report.setHealthSummary(String.join("\n\n", Collections.nCopies(4,
+                "Symptoms were mild and mostly limited to afternoons.")));
+        report.setRiskAreas("Hydration was below the usual range on several days.");
+        report.setRecommendations("Keep a water bottle nearby and log intake with meals.");
+        report.setPdfPath("ab/cd/abcd.pdf");
+        report.setPromptMode(PromptMode.RAW);
+    }
+
+    @Benchmark
+    public UserDto userGenerated() {
+        return dtoMapper.toDto(user);
+    }
+
+    @Benchmark
+    public UserDto userModelMapper() {
+        return modelMapper.map(user, UserDto.class);
+    }
+
+    @Benchmark
+    public UserDemographicsDto demographicsGenerated() {
+        return dtoMapper.toDto(demographics);
+    }
+
+    @Benchmark
+    public UserDemographicsDto demographicsModelMapper() {
+        return modelMapper.map(demographics, UserDemographicsDto.class);
+    }
+
+    @Benchmark
+    public SymptomDto symptomGenerated() {
+        return dtoMapper.toDto(symptom);
+    }
+
+    @Benchmark
+    public SymptomDto symptomModelMapper() {
+        return modelMapper.map(symptom, SymptomDto.class);
+    }
+
+    @Benchmark
+    public ReportDto reportGenerated() {
+        return dtoMapper.toDto(report);
+    }
+
+    @Benchmark
+    public ReportDto reportModelMapper() {
+        return modelMapper.map(report, ReportDto.class);
+    }
+}
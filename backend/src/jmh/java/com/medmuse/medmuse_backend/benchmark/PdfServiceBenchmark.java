@@ -0,0 +1,181 @@
+package com.medmuse.medmuse_backend.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.FontFactory;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.PdfDate;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.entity.User;
+import com.medmuse.medmuse_backend.service.PdfService;
+import com.medmuse.medmuse_backend.service.SeverityChartRenderer;
+import com.medmuse.medmuse_backend.service.storage.LocalPdfStore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Documents rendered per second by {@link PdfService#renderPdf} and by the former layout,
+ * which looked up its fonts and built its formatters and static blocks on every render. Run
+ * with the gc profiler (the benchmark profile adds it) and read {@code gc.alloc.rate.norm}
+ * for bytes allocated per document.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 10, time = 3)
+@Measurement(iterations = 10, time = 2)
+@Fork(5)
+@State(Scope.Thread)
+public class PdfServiceBenchmark {
+
+    private PdfService pdfService;
+    private Report report;
+    private ByteArrayOutputStream outputStream;
+
+    @Setup
+    public void setUp() {
+        // Only renderPdf is measured, so nothing reaches the store. The user has no id, so the
+        // entry charts and appendix (which need the database) are left out.
+        pdfService = new PdfService(new LocalPdfStore(Path.of("target", "jmh-pdfs"), false), null,
+                new SeverityChartRenderer(new SimpleMeterRegistry()));
+        outputStream = new ByteArrayOutputStream(64 * 1024);
+
+        User user = new User();
+        user.setName("Benchmark User");
+
+        report = new Report(user, LocalDate.of(2026, 5, 1), LocalDate.of(2026, 5, 7));
+        report.setId(1L);
+        report.setGeneratedAt(LocalDateTime.of(2026, 5, 7, 18, 30));
+        report.setHealthSummary(paragraphs("Symptoms were mild and mostly limited to afternoons.", 4));
+        report.setRiskAreas(lines("Hydration was below the usual range on several days.", 6));
+        report.setRecommendations(lines("Keep a water bottle nearby and log intake with meals.", 6));
+    }
+
+    @Benchmark
+    public int renderPdf() throws DocumentException {
+        outputStream.reset();
+        pdfService.renderPdf(report, outputStream);
+        return outputStream.size();
+    }
+
+    @Benchmark
+    public int perRenderFonts() throws DocumentException {
+        outputStream.reset();
+        renderPerRender(report, outputStream);
+        return outputStream.size();
+    }
+
+    // The former PdfService layout for a report without entries, kept here as the baseline
+    private static void renderPerRender(Report report, ByteArrayOutputStream outputStream)
+            throws DocumentException {
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+        writer.setCloseStream(false);
+
+        PdfDate generatedAt = new PdfDate(GregorianCalendar.from(report.getGeneratedAt().atZone(ZoneId.systemDefault())));
+        writer.getInfo().put(PdfName.CREATIONDATE, generatedAt);
+        writer.getInfo().put(PdfName.MODDATE, generatedAt);
+
+        document.open();
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMMM dd, yyyy");
+        Paragraph title = new Paragraph("MedMuse Health Report",
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 24));
+        title.setAlignment(Element.ALIGN_CENTER);
+        document.add(title);
+
+        Paragraph period = new Paragraph(
+                String.format("Report Period: %s - %s",
+                        report.getWeekStartDate().format(formatter),
+                        report.getWeekEndDate().format(formatter)),
+                FontFactory.getFont(FontFactory.HELVETICA, 12));
+        period.setAlignment(Element.ALIGN_CENTER);
+        document.add(period);
+
+        Paragraph generated = new Paragraph(
+                String.format("Generated on: %s",
+                        report.getGeneratedAt().format(DateTimeFormatter.ofPattern("MMMM dd, yyyy 'at' HH:mm"))),
+                FontFactory.getFont(FontFactory.HELVETICA, 10));
+        generated.setAlignment(Element.ALIGN_CENTER);
+        generated.setSpacingAfter(20f);
+        document.add(generated);
+
+        document.add(new Paragraph("Health Summary", FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16)));
+        for (String paragraph : report.getHealthSummary().split("\n\n")) {
+            if (!paragraph.trim().isEmpty()) {
+                Paragraph p = new Paragraph(paragraph.trim(), FontFactory.getFont(FontFactory.HELVETICA, 12));
+                p.setSpacingAfter(5f);
+                document.add(p);
+            }
+        }
+        document.add(new Paragraph("\n"));
+
+        addBullets(document, "Areas of Attention", report.getRiskAreas());
+        addBullets(document, "Personalized Recommendations", report.getRecommendations());
+
+        document.add(new Paragraph("Medical Disclaimer", FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14)));
+        Paragraph disclaimer = new Paragraph(
+                "This report is generated by AI for informational and educational purposes only. "
+                + "It should not be used as a substitute for professional medical advice, diagnosis, or treatment. "
+                + "Always consult with a qualified healthcare provider before making any healthcare decisions or "
+                + "for guidance about a specific medical condition.",
+                new Font(Font.FontFamily.HELVETICA, 10, Font.ITALIC, BaseColor.DARK_GRAY));
+        disclaimer.setSpacingBefore(5f);
+        disclaimer.setSpacingAfter(20f);
+        document.add(disclaimer);
+
+        Paragraph footer = new Paragraph("Generated by MedMuse Healthcare Platform",
+                FontFactory.getFont(FontFactory.HELVETICA, 10));
+        footer.setAlignment(Element.ALIGN_CENTER);
+        footer.setSpacingBefore(30f);
+        document.add(footer);
+
+        document.close();
+    }
+
+    private static void addBullets(Document document, String header, String items) throws DocumentException {
+        document.add(new Paragraph(header, FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16)));
+        for (String item : items.split("\n")) {
+            if (!item.trim().isEmpty()) {
+                Paragraph bullet = new Paragraph("• " + item.trim(), FontFactory.getFont(FontFactory.HELVETICA, 12));
+                bullet.setIndentationLeft(20f);
+                bullet.setSpacingAfter(3f);
+                document.add(bullet);
+            }
+        }
+        document.add(new Paragraph("\n"));
+    }
+
+    private static String paragraphs(String sentence, int count) {
+        return String.join("\n\n", Collections.nCopies(count, (sentence + " ").repeat(5).trim()));
+    }
+
+    private static String lines(String sentence, int count) {
+        return String.join("\n", Collections.nCopies(count, sentence));
+    }
+}
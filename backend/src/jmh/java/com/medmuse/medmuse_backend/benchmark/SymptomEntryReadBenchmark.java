@@ -0,0 +1,161 @@
+package com.medmuse.medmuse_backend.benchmark;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.medmuse.medmuse_backend.dto.SymptomEntryDto;
+import com.medmuse.medmuse_backend.entity.Symptom;
+import com.medmuse.medmuse_backend.entity.SymptomEntry;
+import com.medmuse.medmuse_backend.entity.User;
+import com.medmuse.medmuse_backend.repository.SymptomEntryRepository;
+import com.medmuse.medmuse_backend.repository.SymptomRepository;
+import com.medmuse.medmuse_backend.repository.UserRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Symptom history pages read per second, as managed entities copied into DTOs inside a
+ * read-write transaction (the former read path) and as DTO projections inside a read-only
+ * one. Both run against the migrated in-memory H2 schema; read {@code gc.alloc.rate.norm}
+ * for the bytes allocated per page.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SymptomEntryReadBenchmark {
+
+    // The former history read, kept here as the baseline now that the repository only projects
+    private static final String ENTITY_PAGE = """
+            SELECT se
+            FROM SymptomEntry se
+            LEFT JOIN FETCH se.symptom
+            WHERE se.user.id = :userId
+            ORDER BY se.entryDate DESC, se.entryTime DESC
+            """;
+    private static final String ENTITY_COUNT = "SELECT COUNT(se) FROM SymptomEntry se WHERE se.user.id = :userId";
+
+    @Param({"20", "200"})
+    public int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private SymptomEntryRepository symptomEntryRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+    private Long userId;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(BenchmarkConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties("spring.datasource.url=jdbc:h2:mem:entry-read-benchmark",
+                        "logging.level.com.medmuse=WARN", "logging.level.org.springframework=WARN")
+                .run();
+        symptomEntryRepository = context.getBean(SymptomEntryRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                context.getBean(EntityManagerFactory.class));
+
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        User user = context.getBean(UserRepository.class)
+                .save(new User("google-benchmark", "benchmark@example.com", "Benchmark User", null));
+        userId = user.getId();
+
+        List<Symptom> symptoms = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            symptoms.add(new Symptom("Symptom " + i, "General", "Benchmark symptom " + i));
+        }
+        symptoms = context.getBean(SymptomRepository.class).saveAll(symptoms);
+
+        List<SymptomEntry> entries = new ArrayList<>();
+        LocalDate start = LocalDate.of(2026, 1, 1);
+        for (int i = 0; i < 2_000; i++) {
+            entries.add(new SymptomEntry(user, symptoms.get(i % symptoms.size()), null, 1 + i % 10,
+                    "Noted after lunch, eased by the evening", start.plusDays(i / 4), LocalTime.of(8 + i % 4 * 3, 0)));
+        }
+        symptomEntryRepository.saveAll(entries);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<SymptomEntryDto> entities() {
+        return readWrite.execute(status -> {
+            // Same statements as the projection page: the page select and its count
+            entityManager.createQuery(ENTITY_COUNT, Long.class).setParameter("userId", userId).getSingleResult();
+            return entityManager.createQuery(ENTITY_PAGE, SymptomEntry.class)
+                    .setParameter("userId", userId)
+                    .setMaxResults(pageSize)
+                    .getResultList()
+                    .stream()
+                    .map(SymptomEntryReadBenchmark::toDto)
+                    .toList();
+        });
+    }
+
+    @Benchmark
+    public List<SymptomEntryDto> projection() {
+        return readOnly.execute(status -> symptomEntryRepository
+                .findEntryDtosByUserId(userId, PageRequest.of(0, pageSize))
+                .getContent());
+    }
+
+    private static SymptomEntryDto toDto(SymptomEntry entry) {
+        Symptom symptom = entry.getSymptom();
+        return new SymptomEntryDto(entry.getId(), symptom != null ? symptom.getId() : null,
+                symptom != null ? symptom.getName() : null, symptom != null ? symptom.getCategory() : null,
+                entry.getCustomDescription(), entry.getSeverity(), entry.getNotes(), entry.getEntryDate(),
+                entry.getEntryTime(), entry.getCreatedAt());
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({ DataSourceAutoConfiguration.class, FlywayAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class, TransactionAutoConfiguration.class })
+    @EntityScan(basePackageClasses = User.class)
+    @EnableJpaRepositories(basePackageClasses = SymptomEntryRepository.class)
+    static class BenchmarkConfiguration {
+    }
+}
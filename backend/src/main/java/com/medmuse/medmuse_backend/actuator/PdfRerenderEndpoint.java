@@ -0,0 +1,43 @@
+package com.medmuse.medmuse_backend.actuator;
+
+import java.io.IOException;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.medmuse.medmuse_backend.service.PdfRerenderService;
+
+/**
+ * {@code /actuator/pdfrerender}: GET reports progress and rate of the bulk PDF re-render,
+ * POST starts it (resuming from the checkpoint unless {@code fromScratch} is true) and
+ * DELETE stops it after the current batch. Restricted to admins in {@code SecurityConfig}.
+ */
+@Component
+@Endpoint(id = "pdfrerender")
+public class PdfRerenderEndpoint {
+
+    private final PdfRerenderService pdfRerenderService;
+
+    public PdfRerenderEndpoint(PdfRerenderService pdfRerenderService) {
+        this.pdfRerenderService = pdfRerenderService;
+    }
+
+    @ReadOperation
+    public PdfRerenderService.Progress progress() {
+        return pdfRerenderService.progress();
+    }
+
+    @WriteOperation
+    public PdfRerenderService.Progress start(@Nullable Boolean fromScratch) throws IOException {
+        return pdfRerenderService.start(Boolean.TRUE.equals(fromScratch));
+    }
+
+    @DeleteOperation
+    public PdfRerenderService.Progress stop() {
+        return pdfRerenderService.stop();
+    }
+}
@@ -1,32 +1,105 @@
 package com.medmuse.medmuse_backend.config;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medmuse.medmuse_backend.service.ai.GuardedChatModel;
+import com.medmuse.medmuse_backend.service.ai.GuardedStreamingChatModel;
+import com.medmuse.medmuse_backend.service.ai.HedgedChatModel;
+import com.medmuse.medmuse_backend.service.ai.ProviderGuards;
+import com.medmuse.medmuse_backend.service.ai.StubChatModel;
+import com.medmuse.medmuse_backend.service.ai.StubStreamingChatModel;
 
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.chat.request.ResponseFormat;
 import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
+import dev.langchain4j.model.googleai.GoogleAiGeminiStreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 @EnableConfigurationProperties(AiProperties.class)
 public class AiConfig {
 
+    private static final String GEMINI_DEFAULT_MODEL = "gemini-2.0-flash";
+    private static final String OPENAI_DEFAULT_MODEL = "gpt-5.4";
+    private static final String STUB_MODEL = "stub";
+
     @Bean
-    public ChatModel chatModel(AiProperties properties) {
-        return switch (properties.getProvider()) {
+    public ProviderGuards providerGuards(AiProperties properties, MeterRegistry meterRegistry) {
+        return new ProviderGuards(properties, meterRegistry);
+    }
+
+    @Bean("aiHedgeExecutor")
+    public ThreadPoolTaskExecutor aiHedgeExecutor(AiProperties properties) {
+        // Workers mostly block on provider permits and HTTP, so size for every permit plus every waiter
+        int maxThreads = 0;
+        for (AiProperties.Provider provider : AiProperties.Provider.values()) {
+            AiProperties.ProviderSettings settings = properties.settingsFor(provider);
+            maxThreads += settings.getMaxConcurrent() + settings.getQueueCapacity();
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(0);
+        executor.setMaxPoolSize(Math.max(1, maxThreads));
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("ai-hedge-");
+        return executor;
+    }
+
+    @Bean
+    public ChatModel chatModel(AiProperties properties, ProviderGuards providerGuards, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry, @Qualifier("aiHedgeExecutor") ThreadPoolTaskExecutor hedgeExecutor) {
+        AiProperties.Provider primary = properties.getProvider();
+        AiProperties.Provider secondary = properties.getSecondaryProvider();
+        ChatModel primaryModel = buildGuardedModel(primary, properties, providerGuards);
+
+        if (!properties.getHedge().isEnabled() || secondary == null || secondary == primary) {
+            return primaryModel;
+        }
+
+        return new HedgedChatModel(
+                primary.displayName(), primaryModel,
+                secondary.displayName(), buildGuardedModel(secondary, properties, providerGuards),
+                properties.getHedge(), hedgeExecutor, objectMapper, meterRegistry);
+    }
+
+    @Bean
+    public StreamingChatModel streamingChatModel(AiProperties properties, ProviderGuards providerGuards) {
+        StreamingChatModel model = switch (properties.getProvider()) {
+            case GEMINI -> buildGeminiStreamingModel(properties.getGemini());
+            case OPENAI -> buildOpenAiStreamingModel(properties.getOpenai());
+            case STUB -> new StubStreamingChatModel(new StubChatModel(properties.getStub()));
+        };
+        return new GuardedStreamingChatModel(model, providerGuards.forProvider(properties.getProvider()));
+    }
+
+    private ChatModel buildGuardedModel(AiProperties.Provider provider, AiProperties properties,
+            ProviderGuards providerGuards) {
+        ChatModel model = switch (provider) {
             case GEMINI -> buildGeminiModel(properties.getGemini());
             case OPENAI -> buildOpenAiModel(properties.getOpenai());
+            case STUB -> new StubChatModel(properties.getStub());
         };
+        return new GuardedChatModel(model, providerGuards.forProvider(provider));
     }
 
     private ChatModel buildGeminiModel(AiProperties.ProviderSettings settings) {
         GoogleAiGeminiChatModel.GoogleAiGeminiChatModelBuilder builder = GoogleAiGeminiChatModel.builder()
                 .apiKey(trimToEmpty(settings.getApiKey()))
-                .modelName(defaultIfBlank(settings.getModel(), "gemini-2.0-flash"))
+                .modelName(defaultIfBlank(settings.getModel(), GEMINI_DEFAULT_MODEL))
                 .responseFormat(ResponseFormat.JSON);
 
+        if (settings.getTimeout() != null) {
+            builder.timeout(settings.getTimeout());
+        }
+
         if (settings.getTemperature() != null) {
             builder.temperature(settings.getTemperature());
         }
@@ -37,9 +110,47 @@ public class AiConfig {
     private ChatModel buildOpenAiModel(AiProperties.ProviderSettings settings) {
         OpenAiChatModel.OpenAiChatModelBuilder builder = OpenAiChatModel.builder()
                 .apiKey(trimToEmpty(settings.getApiKey()))
-                .modelName(defaultIfBlank(settings.getModel(), "gpt-5.4"))
+                .modelName(defaultIfBlank(settings.getModel(), OPENAI_DEFAULT_MODEL))
                 .responseFormat(ResponseFormat.JSON);
 
+        if (settings.getTimeout() != null) {
+            builder.timeout(settings.getTimeout());
+        }
+
+        if (settings.getTemperature() != null) {
+            builder.temperature(settings.getTemperature());
+        }
+
+        return builder.build();
+    }
+
+    private StreamingChatModel buildGeminiStreamingModel(AiProperties.ProviderSettings settings) {
+        GoogleAiGeminiStreamingChatModel.GoogleAiGeminiStreamingChatModelBuilder builder = GoogleAiGeminiStreamingChatModel.builder()
+                .apiKey(trimToEmpty(settings.getApiKey()))
+                .modelName(defaultIfBlank(settings.getModel(), GEMINI_DEFAULT_MODEL))
+                .responseFormat(ResponseFormat.JSON);
+
+        if (settings.getTimeout() != null) {
+            builder.timeout(settings.getTimeout());
+        }
+
+        if (settings.getTemperature() != null) {
+            builder.temperature(settings.getTemperature());
+        }
+
+        return builder.build();
+    }
+
+    private StreamingChatModel buildOpenAiStreamingModel(AiProperties.ProviderSettings settings) {
+        OpenAiStreamingChatModel.OpenAiStreamingChatModelBuilder builder = OpenAiStreamingChatModel.builder()
+                .apiKey(trimToEmpty(settings.getApiKey()))
+                .modelName(defaultIfBlank(settings.getModel(), OPENAI_DEFAULT_MODEL))
+                .responseFormat(ResponseFormat.JSON);
+
+        if (settings.getTimeout() != null) {
+            builder.timeout(settings.getTimeout());
+        }
+
         if (settings.getTemperature() != null) {
             builder.temperature(settings.getTemperature());
         }
@@ -52,6 +163,15 @@ public class AiConfig {
         return properties.getProvider().displayName();
     }
 
+    @Bean("activeAiModelName")
+    public String activeAiModelName(AiProperties properties) {
+        return switch (properties.getProvider()) {
+            case GEMINI -> defaultIfBlank(properties.getGemini().getModel(), GEMINI_DEFAULT_MODEL);
+            case OPENAI -> defaultIfBlank(properties.getOpenai().getModel(), OPENAI_DEFAULT_MODEL);
+            case STUB -> STUB_MODEL;
+        };
+    }
+
     private String trimToEmpty(String value) {
         return value == null ? "" : value.trim();
     }
@@ -1,13 +1,19 @@
 package com.medmuse.medmuse_backend.config;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties(prefix = "medmuse.ai")
 public class AiProperties {
 
     private Provider provider = Provider.OPENAI;
+    private Provider secondaryProvider;
     private final ProviderSettings gemini = new ProviderSettings();
     private final ProviderSettings openai = new ProviderSettings();
+    private final StubSettings stub = new StubSettings();
+    private final PromptSettings prompt = new PromptSettings();
+    private final HedgeSettings hedge = new HedgeSettings();
 
     public Provider getProvider() {
         return provider;
@@ -17,6 +23,14 @@ public class AiProperties {
         this.provider = provider == null ? Provider.OPENAI : provider;
     }
 
+    public Provider getSecondaryProvider() {
+        return secondaryProvider;
+    }
+
+    public void setSecondaryProvider(Provider secondaryProvider) {
+        this.secondaryProvider = secondaryProvider;
+    }
+
     public ProviderSettings getGemini() {
         return gemini;
     }
@@ -25,9 +39,30 @@ public class AiProperties {
         return openai;
     }
 
+    public StubSettings getStub() {
+        return stub;
+    }
+
+    public PromptSettings getPrompt() {
+        return prompt;
+    }
+
+    public HedgeSettings getHedge() {
+        return hedge;
+    }
+
+    public ProviderSettings settingsFor(Provider provider) {
+        return switch (provider) {
+            case GEMINI -> gemini;
+            case OPENAI -> openai;
+            case STUB -> stub;
+        };
+    }
+
     public enum Provider {
         GEMINI("Gemini"),
-        OPENAI("OpenAI");
+        OPENAI("OpenAI"),
+        STUB("Stub");
 
         private final String displayName;
 
@@ -45,6 +80,14 @@ public class AiProperties {
         private String apiKey = "";
         private String model = "";
         private Double temperature = 0.3;
+        private int maxConcurrent = 4;
+        private int queueCapacity = 20;
+        private Duration maxWait = Duration.ofSeconds(30);
+        private int requestsPerMinute = 0;
+        private int tokensPerMinute = 0;
+        private Duration timeout = Duration.ofSeconds(60);
+        private int circuitFailureThreshold = 5;
+        private Duration circuitOpenDuration = Duration.ofSeconds(30);
 
         public String getApiKey() {
             return apiKey;
@@ -69,5 +112,210 @@ public class AiProperties {
         public void setTemperature(Double temperature) {
             this.temperature = temperature;
         }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = Math.max(1, maxConcurrent);
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = Math.max(0, queueCapacity);
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public int getRequestsPerMinute() {
+            return requestsPerMinute;
+        }
+
+        public void setRequestsPerMinute(int requestsPerMinute) {
+            this.requestsPerMinute = requestsPerMinute;
+        }
+
+        public int getTokensPerMinute() {
+            return tokensPerMinute;
+        }
+
+        public void setTokensPerMinute(int tokensPerMinute) {
+            this.tokensPerMinute = tokensPerMinute;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public int getCircuitFailureThreshold() {
+            return circuitFailureThreshold;
+        }
+
+        public void setCircuitFailureThreshold(int circuitFailureThreshold) {
+            this.circuitFailureThreshold = Math.max(1, circuitFailureThreshold);
+        }
+
+        public Duration getCircuitOpenDuration() {
+            return circuitOpenDuration;
+        }
+
+        public void setCircuitOpenDuration(Duration circuitOpenDuration) {
+            this.circuitOpenDuration = circuitOpenDuration;
+        }
+    }
+
+    /**
+     * Settings for the local stand-in provider used for offline and load testing.
+     */
+    public static class StubSettings extends ProviderSettings {
+
+        private Duration latencyMedian = Duration.ofMillis(200);
+        private Duration latencyP99 = Duration.ofMillis(1500);
+        private double errorRate = 0.0;
+        private int responseChars = 1500;
+        private String replayDirectory = "";
+        private long seed = 42;
+
+        public Duration getLatencyMedian() {
+            return latencyMedian;
+        }
+
+        public void setLatencyMedian(Duration latencyMedian) {
+            this.latencyMedian = latencyMedian;
+        }
+
+        public Duration getLatencyP99() {
+            return latencyP99;
+        }
+
+        public void setLatencyP99(Duration latencyP99) {
+            this.latencyP99 = latencyP99;
+        }
+
+        public double getErrorRate() {
+            return errorRate;
+        }
+
+        public void setErrorRate(double errorRate) {
+            this.errorRate = Math.min(1.0, Math.max(0.0, errorRate));
+        }
+
+        public int getResponseChars() {
+            return responseChars;
+        }
+
+        public void setResponseChars(int responseChars) {
+            this.responseChars = Math.max(0, responseChars);
+        }
+
+        public String getReplayDirectory() {
+            return replayDirectory;
+        }
+
+        public void setReplayDirectory(String replayDirectory) {
+            this.replayDirectory = replayDirectory;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public void setSeed(long seed) {
+            this.seed = seed;
+        }
+    }
+
+    public static class PromptSettings {
+
+        private int tokenBudget = 6000;
+        private int sampleNotes = 10;
+
+        public int getTokenBudget() {
+            return tokenBudget;
+        }
+
+        public void setTokenBudget(int tokenBudget) {
+            this.tokenBudget = tokenBudget;
+        }
+
+        public int getSampleNotes() {
+            return sampleNotes;
+        }
+
+        public void setSampleNotes(int sampleNotes) {
+            this.sampleNotes = sampleNotes;
+        }
+    }
+
+    public static class HedgeSettings {
+
+        private boolean enabled = false;
+        private double percentile = 0.95;
+        private int sampleWindow = 200;
+        private int minSamples = 20;
+        private Duration initialDelay = Duration.ofSeconds(5);
+        private Duration minDelay = Duration.ofMillis(500);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public int getSampleWindow() {
+            return sampleWindow;
+        }
+
+        public void setSampleWindow(int sampleWindow) {
+            this.sampleWindow = Math.max(1, sampleWindow);
+        }
+
+        public int getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+
+        public Duration getInitialDelay() {
+            return initialDelay;
+        }
+
+        public void setInitialDelay(Duration initialDelay) {
+            this.initialDelay = initialDelay;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
     }
 }
@@ -0,0 +1,28 @@
+package com.medmuse.medmuse_backend.config;
+
+import java.net.http.HttpClient;
+import java.nio.file.Paths;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import com.medmuse.medmuse_backend.service.storage.LocalPdfStore;
+import com.medmuse.medmuse_backend.service.storage.PdfStore;
+import com.medmuse.medmuse_backend.service.storage.S3PdfStore;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(PdfStorageProperties.class)
+public class PdfStorageConfig {
+
+    @Bean
+    public PdfStore pdfStore(PdfStorageProperties properties) {
+        return switch (properties.getStore()) {
+            case LOCAL -> new LocalPdfStore(Paths.get(properties.getDirectory()), properties.isCompress());
+            case S3 -> new S3PdfStore(properties.getS3(), properties.isCompress(),
+                    HttpClient.newBuilder().connectTimeout(properties.getS3().getTimeout()).build());
+        };
+    }
+}
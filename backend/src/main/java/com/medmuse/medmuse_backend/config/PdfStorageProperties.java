@@ -0,0 +1,250 @@
+package com.medmuse.medmuse_backend.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "medmuse.storage.pdf")
+public class PdfStorageProperties {
+
+    public enum Mode {
+        // Render once into the store and serve the stored file
+        FILE,
+        // Render every download straight into the response without touching disk
+        STREAM
+    }
+
+    public enum Store {
+        LOCAL,
+        S3
+    }
+
+    private String directory = "./storage/pdfs";
+    private Mode mode = Mode.FILE;
+    private Store store = Store.LOCAL;
+    private boolean compress = false;
+    private final S3Settings s3 = new S3Settings();
+    private final SweepSettings sweep = new SweepSettings();
+    private final RerenderSettings rerender = new RerenderSettings();
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Store getStore() {
+        return store;
+    }
+
+    public void setStore(Store store) {
+        this.store = store;
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    public S3Settings getS3() {
+        return s3;
+    }
+
+    public SweepSettings getSweep() {
+        return sweep;
+    }
+
+    public RerenderSettings getRerender() {
+        return rerender;
+    }
+
+    public static class S3Settings {
+
+        private String endpoint = "";
+        private String region = "us-east-1";
+        private String bucket = "";
+        private String prefix = "";
+        private String accessKey = "";
+        private String secretKey = "";
+        private Duration timeout = Duration.ofSeconds(30);
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public void setEndpoint(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public String getRegion() {
+            return region;
+        }
+
+        public void setRegion(String region) {
+            this.region = region;
+        }
+
+        public String getBucket() {
+            return bucket;
+        }
+
+        public void setBucket(String bucket) {
+            this.bucket = bucket;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public void setPrefix(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public String getAccessKey() {
+            return accessKey;
+        }
+
+        public void setAccessKey(String accessKey) {
+            this.accessKey = accessKey;
+        }
+
+        public String getSecretKey() {
+            return secretKey;
+        }
+
+        public void setSecretKey(String secretKey) {
+            this.secretKey = secretKey;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    public static class SweepSettings {
+
+        private boolean enabled = true;
+        private Duration interval = Duration.ofHours(6);
+        // Zero keeps stored PDFs until their report is deleted
+        private Duration retention = Duration.ofDays(30);
+        // Objects are written before the report referencing them commits
+        private Duration orphanGrace = Duration.ofHours(1);
+        private int batchSize = 200;
+        private Duration batchPause = Duration.ofMillis(250);
+        private int maxDeletesPerRun = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+
+        public Duration getOrphanGrace() {
+            return orphanGrace;
+        }
+
+        public void setOrphanGrace(Duration orphanGrace) {
+            this.orphanGrace = orphanGrace;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = Math.max(1, batchSize);
+        }
+
+        public Duration getBatchPause() {
+            return batchPause;
+        }
+
+        public void setBatchPause(Duration batchPause) {
+            this.batchPause = batchPause;
+        }
+
+        public int getMaxDeletesPerRun() {
+            return maxDeletesPerRun;
+        }
+
+        public void setMaxDeletesPerRun(int maxDeletesPerRun) {
+            this.maxDeletesPerRun = Math.max(0, maxDeletesPerRun);
+        }
+    }
+
+    public static class RerenderSettings {
+
+        private int workerThreads = 2;
+        // Rendered PDFs are held in memory until stored, so this bounds the job's footprint
+        private int maxInFlight = 4;
+        private int batchSize = 100;
+        private String checkpointFile = "./storage/pdf-rerender.checkpoint";
+
+        public int getWorkerThreads() {
+            return workerThreads;
+        }
+
+        public void setWorkerThreads(int workerThreads) {
+            this.workerThreads = Math.max(1, workerThreads);
+        }
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = Math.max(1, maxInFlight);
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = Math.max(1, batchSize);
+        }
+
+        public String getCheckpointFile() {
+            return checkpointFile;
+        }
+
+        public void setCheckpointFile(String checkpointFile) {
+            this.checkpointFile = checkpointFile;
+        }
+    }
+}
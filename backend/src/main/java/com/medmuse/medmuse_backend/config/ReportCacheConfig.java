@@ -0,0 +1,9 @@
+package com.medmuse.medmuse_backend.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ReportCacheProperties.class)
+public class ReportCacheConfig {
+}
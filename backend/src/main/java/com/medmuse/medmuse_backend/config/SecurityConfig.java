@@ -43,6 +43,7 @@ public class SecurityConfig {
                 .requestMatchers("/h2-console/**").permitAll()
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                 .requestMatchers("/oauth2/authorization/**", "/login/oauth2/code/**").permitAll()
+                .requestMatchers("/actuator/pdfrerender", "/actuator/pdfrerender/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
             .headers(headers -> headers.frameOptions(frame -> frame.sameOrigin()))
@@ -145,17 +145,21 @@
 package com.medmuse.medmuse_backend.controller;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -167,16 +171,29 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.itextpdf.text.DocumentException;
+import com.medmuse.medmuse_backend.config.PdfStorageProperties;
+import com.medmuse.medmuse_backend.dto.CursorPage;
 import com.medmuse.medmuse_backend.dto.GenerateReportRequest;
 import com.medmuse.medmuse_backend.dto.ReportDto;
+import com.medmuse.medmuse_backend.dto.ReportJobDto;
 import com.medmuse.medmuse_backend.dto.UserDto;
 import com.medmuse.medmuse_backend.service.DemographicsService;
+import com.medmuse.medmuse_backend.service.ReportExportService;
+import com.medmuse.medmuse_backend.service.ReportJobService;
+import com.medmuse.medmuse_backend.service.ReportPdfService;
+import com.medmuse.medmuse_backend.service.ReportRenderService;
 import com.medmuse.medmuse_backend.service.interfaces.ReportServiceInterface;
+import com.medmuse.medmuse_backend.service.interfaces.ReportStreamListener;
 import com.medmuse.medmuse_backend.service.interfaces.UserServiceInterface;
+import com.medmuse.medmuse_backend.service.storage.StoredPdfResource;
 import com.medmuse.medmuse_backend.util.UserContext;
 
 @RestController
@@ -184,17 +201,40 @@ import com.medmuse.medmuse_backend.util.UserContext;
 @CrossOrigin(origins = "${medmuse.cors.allowed-origins}")
 public class ReportController {
 
+    private static final long STREAM_TIMEOUT_MILLIS = 5 * 60 * 1000L;
+
+    // Request attributes Tomcat's NIO connector reads to send a file with sendfile
+    private static final String TOMCAT_SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String TOMCAT_SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String TOMCAT_SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String TOMCAT_SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final ReportServiceInterface reportService;
     private final UserServiceInterface userService;
     private final DemographicsService demographicsService;
+    private final ReportJobService reportJobService;
+    private final ReportPdfService reportPdfService;
+    private final PdfStorageProperties pdfStorageProperties;
+    private final ReportExportService reportExportService;
+    private final ReportRenderService reportRenderService;
 
     public ReportController(ReportServiceInterface reportService,
                             UserServiceInterface userService,
-                            DemographicsService demographicsService) {
+                            DemographicsService demographicsService,
+                            ReportJobService reportJobService,
+                            ReportPdfService reportPdfService,
+                            PdfStorageProperties pdfStorageProperties,
+                            ReportExportService reportExportService,
+                            ReportRenderService reportRenderService) {
 
         this.reportService = reportService;
         this.userService = userService;
         this.demographicsService = demographicsService;
+        this.reportJobService = reportJobService;
+        this.reportPdfService = reportPdfService;
+        this.pdfStorageProperties = pdfStorageProperties;
+        this.reportExportService = reportExportService;
+        this.reportRenderService = reportRenderService;
     }
 
     @PostMapping("/generate")
@@ -204,14 +244,7 @@ public class ReportController {
 
         UserDto user = UserContext.getCurrentUser(principal, userService);
 
-        boolean completed = demographicsService.isDemographicsCompleted(user.getId());
-
-        if (!completed) {
-            throw new ResponseStatusException(
-                    HttpStatus.BAD_REQUEST,
-                    "Please complete demographics before generating report"
-            );
-        }
+        requireDemographics(user.getId());
 
         ReportDto report = reportService.generateWeeklyReport(user.getId());
         return ResponseEntity.status(HttpStatus.CREATED).body(report);
@@ -225,21 +258,9 @@ public class ReportController {
 
         UserDto user = UserContext.getCurrentUser(principal, userService);
 
-        boolean completed = demographicsService.isDemographicsCompleted(user.getId());
+        requireDemographics(user.getId());
 
-        if (!completed) {
-            throw new ResponseStatusException(
-                    HttpStatus.BAD_REQUEST,
-                    "Please complete demographics before generating report"
-            );
-        }
-
-        if (request.getStartDate().isAfter(request.getEndDate())) {
-            throw new ResponseStatusException(
-                    HttpStatus.BAD_REQUEST,
-                    "Start date must be on or before end date"
-            );
-        }
+        requireValidPeriod(request);
 
         ReportDto report = reportService.generateReportForPeriod(
                 user.getId(),
@@ -249,6 +270,89 @@ public class ReportController {
         return ResponseEntity.status(HttpStatus.CREATED).body(report);
     }
 
+    @PostMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamReport(
+            @AuthenticationPrincipal OidcUser principal,
+            @Valid @RequestBody(required = false) GenerateReportRequest request) {
+
+        UserDto user = UserContext.getCurrentUser(principal, userService);
+
+        requireDemographics(user.getId());
+
+        if (request != null) {
+            requireValidPeriod(request);
+        }
+
+        LocalDate endDate = request != null ? request.getEndDate() : LocalDate.now();
+        LocalDate startDate = request != null ? request.getStartDate() : endDate.minusDays(6);
+
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        reportService.streamReportForPeriod(
+                user.getId(),
+                startDate,
+                endDate,
+                request != null ? request.getSymptomIds() : List.of(),
+                new ReportStreamListener() {
+                    @Override
+                    public void onPartial(String field, String text) {
+                        send(emitter, SseEmitter.event().name("partial").data(Map.of("field", field, "text", text)));
+                    }
+
+                    @Override
+                    public void onReport(ReportDto report) {
+                        send(emitter, SseEmitter.event().name("report").data(report));
+                        emitter.complete();
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        send(emitter, SseEmitter.event().name("error").data(Map.of("message", "Report generation failed")));
+                        emitter.complete();
+                    }
+                });
+
+        return emitter;
+    }
+
+    @PostMapping("/jobs")
+    public ResponseEntity<ReportJobDto> submitReportJob(
+            @AuthenticationPrincipal OidcUser principal,
+            @Valid @RequestBody(required = false) GenerateReportRequest request) {
+
+        UserDto user = UserContext.getCurrentUser(principal, userService);
+
+        requireDemographics(user.getId());
+
+        ReportJobDto job;
+        if (request == null) {
+            job = reportJobService.submitWeeklyReport(user.getId());
+        } else {
+            requireValidPeriod(request);
+            job = reportJobService.submit(
+                    user.getId(),
+                    request.getStartDate(),
+                    request.getEndDate(),
+                    request.getSymptomIds());
+        }
+
+        return ResponseEntity.accepted()
+                // Built from the request so the servlet context path is included
+                .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/{jobId}")
+                        .buildAndExpand(job.getJobId())
+                        .toUri())
+                .body(job);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ReportJobDto> getReportJob(
+            @AuthenticationPrincipal OidcUser principal,
+            @PathVariable String jobId) {
+
+        UserDto user = UserContext.getCurrentUser(principal, userService);
+        return ResponseEntity.ok(reportJobService.getJob(user.getId(), jobId));
+    }
+
     @GetMapping("/my")
     public ResponseEntity<List<ReportDto>> getUserReports(
             @AuthenticationPrincipal OidcUser principal) {
@@ -268,7 +372,34 @@ public class ReportController {
         return ResponseEntity.ok(reports);
     }
 
-    @GetMapping("/{reportId}")
+    @GetMapping("/my/cursor")
+    public ResponseEntity<CursorPage<ReportDto>> getUserReportsByCursor(
+            @AuthenticationPrincipal OidcUser principal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+
+        UserDto user = UserContext.getCurrentUser(principal, userService);
+        return ResponseEntity.ok(reportService.getUserReports(user.getId(), cursor, size, includeTotal));
+    }
+
+    @GetMapping("/my/export.zip")
+    public void exportMyReports(
+            @AuthenticationPrincipal OidcUser principal,
+            HttpServletResponse response) throws DocumentException, IOException {
+
+        UserDto user = UserContext.getCurrentUser(principal, userService);
+
+        // Streamed as it is built; the length is unknown up front
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("medmuse-reports_" + LocalDate.now() + ".zip")
+                .build()
+                .toString());
+        reportExportService.export(user.getId(), response.getOutputStream());
+    }
+
+    @GetMapping(value = "/{reportId}", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<ReportDto> getReport(
             @AuthenticationPrincipal OidcUser principal,
             @PathVariable Long reportId) {
@@ -278,42 +409,204 @@ public class ReportController {
         return ResponseEntity.ok(report);
     }
 
-    @GetMapping("/{reportId}/pdf")
-    public ResponseEntity<Resource> downloadReportPdf(
+    @GetMapping(value = "/{reportId}", produces = MediaType.TEXT_HTML_VALUE)
+    public ResponseEntity<byte[]> getReportHtml(
             @AuthenticationPrincipal OidcUser principal,
-            @PathVariable Long reportId) {
+            @PathVariable Long reportId,
+            ServletWebRequest webRequest) throws DocumentException, IOException {
 
-        UserDto user = UserContext.getCurrentUser(principal, userService);
+        return renderReport(principal, reportId, MediaType.TEXT_HTML, webRequest);
+    }
 
-        ReportDto report = reportService.getReportById(user.getId(), reportId);
+    @GetMapping(value = "/{reportId}", produces = MediaType.TEXT_MARKDOWN_VALUE)
+    public ResponseEntity<byte[]> getReportMarkdown(
+            @AuthenticationPrincipal OidcUser principal,
+            @PathVariable Long reportId,
+            ServletWebRequest webRequest) throws DocumentException, IOException {
+
+        return renderReport(principal, reportId, MediaType.TEXT_MARKDOWN, webRequest);
+    }
 
-        String pdfPath = report.getPdfPath();
+    @GetMapping(value = "/{reportId}", produces = MediaType.APPLICATION_PDF_VALUE)
+    public ResponseEntity<?> getReportPdf(
+            @AuthenticationPrincipal OidcUser principal,
+            @PathVariable Long reportId,
+            ServletWebRequest webRequest) throws DocumentException {
+
+        return downloadReportPdf(principal, reportId, webRequest);
+    }
 
-        if (pdfPath == null || pdfPath.trim().isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "PDF not available for this report");
+    @GetMapping("/{reportId}/pdf")
+    public ResponseEntity<?> downloadReportPdf(
+            @AuthenticationPrincipal OidcUser principal,
+            @PathVariable Long reportId,
+            ServletWebRequest webRequest) throws DocumentException {
+
+        UserDto user = UserContext.getCurrentUser(principal, userService);
+
+        if (pdfStorageProperties.getMode() == PdfStorageProperties.Mode.STREAM) {
+            return streamReportPdf(user.getId(), reportId, webRequest);
         }
 
         try {
-            Path path = Paths.get(pdfPath);
+            // Rendered on first download and reused afterwards
+            ReportPdfService.PdfFile pdf = reportPdfService.getPdf(user.getId(), reportId);
+            String etag = "\"" + pdf.digest() + "\"";
 
-            if (!Files.exists(path) || !Files.isReadable(path)) {
-                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "PDF file not found");
+            if (webRequest.checkNotModified(etag, pdf.lastModified().toEpochMilli())) {
+                return null;
             }
 
-            byte[] data = Files.readAllBytes(path);
-            ByteArrayResource resource = new ByteArrayResource(data);
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentDisposition(ContentDisposition.attachment()
+                    .filename(pdf.filename())
+                    .build());
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            headers.setETag(etag);
+            headers.setLastModified(pdf.lastModified());
+            headers.setContentType(MediaType.APPLICATION_PDF);
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().headers(headers);
+            HttpServletRequest request = webRequest.getRequest();
+
+            if (request.getHeader(HttpHeaders.RANGE) != null) {
+                if (ifRangeMatches(request, etag, pdf)) {
+                    if (pdf.resource() instanceof StoredPdfResource stored && stored.isRangeReadable()) {
+                        ResponseEntity<?> partial = singleRange(request, stored, headers);
+                        if (partial != null) {
+                            return partial;
+                        }
+                    }
+                    // Spring serves single and multipart ranges, or 416, for Resource bodies
+                    return response.body(pdf.resource());
+                }
+
+                // The client's partial copy is stale; send the whole file without range handling
+                HttpServletResponse servletResponse = webRequest.getResponse();
+                headers.forEach((name, values) -> values.forEach(value -> servletResponse.addHeader(name, value)));
+                servletResponse.setContentLengthLong(pdf.length());
+                try (InputStream inputStream = pdf.resource().getInputStream()) {
+                    inputStream.transferTo(servletResponse.getOutputStream());
+                }
+                return null;
+            }
 
-            String filename = path.getFileName().toString();
+            if (pdf.resource().isFile() && Boolean.TRUE.equals(request.getAttribute(TOMCAT_SENDFILE_SUPPORTED))) {
+                // Tomcat writes the file with sendfile once the handler returns without a body
+                request.setAttribute(TOMCAT_SENDFILE_FILENAME,
+                        pdf.resource().getFile().toPath().toRealPath().toString());
+                request.setAttribute(TOMCAT_SENDFILE_START, 0L);
+                request.setAttribute(TOMCAT_SENDFILE_END, pdf.length());
+                return response.contentLength(pdf.length()).build();
+            }
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .contentLength(data.length)
-                    .body(resource);
+            return response.contentLength(pdf.length()).body(pdf.resource());
 
         } catch (IOException e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read PDF file", e);
         }
     }
+
+    private ResponseEntity<byte[]> renderReport(OidcUser principal, Long reportId, MediaType mediaType,
+            ServletWebRequest webRequest) throws DocumentException, IOException {
+
+        UserDto user = UserContext.getCurrentUser(principal, userService);
+        ReportRenderService.RenderedReport report = reportRenderService.render(user.getId(), reportId, mediaType);
+        if (webRequest.checkNotModified(report.etag(), report.lastModified().toEpochMilli())) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .contentType(new MediaType(mediaType, StandardCharsets.UTF_8))
+                .eTag(report.etag())
+                .lastModified(report.lastModified())
+                .body(report.body());
+    }
+
+    private ResponseEntity<?> streamReportPdf(Long userId, Long reportId, ServletWebRequest webRequest)
+            throws DocumentException {
+        ReportPdfService.PdfStream pdf = reportPdfService.streamPdf(userId, reportId);
+        if (webRequest.checkNotModified(pdf.etag(), pdf.lastModified().toEpochMilli())) {
+            return null;
+        }
+
+        // Written as iText lays out each page; length is unknown up front and ranges are not offered
+        HttpServletResponse response = webRequest.getResponse();
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(pdf.filename()).build().toString());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "none");
+
+        try {
+            pdf.body().writeTo(response.getOutputStream());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to stream PDF", e);
+        }
+        return null;
+    }
+
+    private ResponseEntity<?> singleRange(HttpServletRequest request, StoredPdfResource resource, HttpHeaders headers) {
+        // Multipart and unsatisfiable ranges are left to Spring, which also answers the latter with 416
+        ResourceRegion region;
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(request.getHeader(HttpHeaders.RANGE));
+            if (ranges.size() != 1) {
+                return null;
+            }
+            region = ranges.get(0).toResourceRegion(resource);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        // Fetch only the requested bytes from the store instead of skipping through the whole object
+        long end = region.getPosition() + region.getCount() - 1;
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .headers(headers)
+                .header(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + region.getPosition() + "-" + end + "/" + resource.contentLength())
+                .contentLength(region.getCount())
+                .body(resource.range(region.getPosition(), region.getCount()));
+    }
+
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, ReportPdfService.PdfFile pdf) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null || ifRange.equals(etag)) {
+            return true;
+        }
+
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == pdf.lastModified().getEpochSecond();
+        } catch (IllegalArgumentException e) {
+            // Weak or stale entity tag
+            return false;
+        }
+    }
+
+    private void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the report is still persisted once the stream completes
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void requireDemographics(Long userId) {
+        if (!demographicsService.isDemographicsCompleted(userId)) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Please complete demographics before generating report"
+            );
+        }
+    }
+
+    private void requireValidPeriod(GenerateReportRequest request) {
+        if (request.getStartDate().isAfter(request.getEndDate())) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Start date must be on or before end date"
+            );
+        }
+    }
 }
 
@@ -17,8 +17,10 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.medmuse.medmuse_backend.dto.CursorPage;
 import com.medmuse.medmuse_backend.dto.SymptomEntryDto;
 import com.medmuse.medmuse_backend.dto.UserDto;
 import com.medmuse.medmuse_backend.service.interfaces.SymptomServiceInterface;
@@ -62,6 +64,18 @@ class SymptomEntryController {
         return ResponseEntity.ok(entries);
     }
     
+    @GetMapping("/my/cursor")
+    public ResponseEntity<CursorPage<SymptomEntryDto>> getUserSymptomEntriesByCursor(
+            @AuthenticationPrincipal OidcUser principal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        UserDto user = UserContext.getCurrentUser(principal, userService);
+        CursorPage<SymptomEntryDto> entries = symptomService.getUserSymptomEntries(user.getId(), cursor, size, includeTotal);
+        return ResponseEntity.ok(entries);
+    }
+    
     @PutMapping("/{entryId}")
     public ResponseEntity<SymptomEntryDto> updateSymptomEntry(
             @AuthenticationPrincipal OidcUser principal,
@@ -0,0 +1,32 @@
+package com.medmuse.medmuse_backend.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    // Absent on the last page
+    private String nextCursor;
+    // Only counted when the client asks for it
+    private Long totalElements;
+
+    // rows holds up to size + 1 items; the extra one only signals that another page exists
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, String> cursorOf, Long totalElements) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, size, null, totalElements);
+        }
+        List<T> content = rows.subList(0, size);
+        return new CursorPage<>(content, size, cursorOf.apply(content.get(size - 1)), totalElements);
+    }
+}
@@ -1,5 +1,10 @@
 package com.medmuse.medmuse_backend.dto;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.medmuse.medmuse_backend.entity.PromptMode;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,4 +17,17 @@ public class HealthAnalysisResponse {
     private String riskAreas;
     private String recommendations;
     private String aiProvider;
-}
\ No newline at end of file
+    private PromptMode promptMode;
+    private boolean fallback;
+    // Milliseconds spent in each AI stage, in the order the stages ran
+    private Map<String, Long> stageMillis = new LinkedHashMap<>();
+
+    public HealthAnalysisResponse(String healthSummary, String riskAreas, String recommendations, String aiProvider) {
+        this(healthSummary, riskAreas, recommendations, aiProvider, PromptMode.RAW, false);
+    }
+
+    public HealthAnalysisResponse(String healthSummary, String riskAreas, String recommendations, String aiProvider,
+            PromptMode promptMode, boolean fallback) {
+        this(healthSummary, riskAreas, recommendations, aiProvider, promptMode, fallback, new LinkedHashMap<>());
+    }
+}
@@ -3,6 +3,9 @@ package com.medmuse.medmuse_backend.dto;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.medmuse.medmuse_backend.entity.PromptMode;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -19,4 +22,16 @@ public class ReportDto {
     private String riskAreas;
     private String recommendations;
     private String pdfPath;
+    private PromptMode promptMode;
+
+    // Set when this is an earlier report returned because a new one could not be generated
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean regenerateLater;
+
+    // Projection used by ReportRepository
+    public ReportDto(Long id, LocalDate weekStartDate, LocalDate weekEndDate, LocalDateTime generatedAt,
+            String healthSummary, String riskAreas, String recommendations, String pdfPath, PromptMode promptMode) {
+        this(id, weekStartDate, weekEndDate, generatedAt, healthSummary, riskAreas, recommendations, pdfPath,
+                promptMode, null);
+    }
 }
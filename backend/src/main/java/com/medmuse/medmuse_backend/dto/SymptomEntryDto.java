@@ -28,4 +28,16 @@ public class SymptomEntryDto {
 
     private LocalDateTime loggedAt;
     private LocalDateTime createdAt;
+
+    // Also the projection used by SymptomEntryRepository; an entry without a symptom is a custom one
+    public SymptomEntryDto(Long id, Long symptomId, String symptomName, String symptomCategory,
+            String customDescription, Integer severity, String notes, LocalDate entryDate, LocalTime entryTime,
+            LocalDateTime createdAt) {
+        this(id, symptomId,
+            symptomId != null ? symptomName : "Custom symptom",
+            symptomId != null ? symptomCategory : "Custom",
+            customDescription, severity, notes, entryDate, entryTime,
+            entryDate != null && entryTime != null ? LocalDateTime.of(entryDate, entryTime) : null,
+            createdAt);
+    }
 }
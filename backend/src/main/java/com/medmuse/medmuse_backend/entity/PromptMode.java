@@ -0,0 +1,6 @@
+package com.medmuse.medmuse_backend.entity;
+
+public enum PromptMode {
+    RAW,
+    AGGREGATED
+}
@@ -13,7 +13,8 @@ import lombok.Setter;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "reports")
+@Table(name = "reports", indexes = @Index(name = "idx_reports_user_generated_at_id",
+        columnList = "user_id, generated_at DESC, id DESC"))
 public class Report {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,17 +32,33 @@ public class Report {
 
     private LocalDateTime generatedAt;
 
-    @Column(columnDefinition = "CLOB")
+    @Column(columnDefinition = "TEXT")
     private String healthSummary;
 
-    @Column(columnDefinition = "CLOB")
+    @Column(columnDefinition = "TEXT")
     private String riskAreas;
 
-    @Column(columnDefinition = "CLOB")
+    @Column(columnDefinition = "TEXT")
     private String recommendations;
 
     private String pdfPath;
 
+    // SHA-256 of the rendered PDF, used as its strong ETag
+    @Column(length = 64)
+    private String pdfDigest;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private PromptMode promptMode;
+
+    // Hash of the inputs the report was generated from, see ReportCacheService
+    @Column(length = 64)
+    private String cacheKey;
+
+    // Milliseconds per pipeline stage as a JSON object, e.g. {"entry-query":12,"provider-call":2400}
+    @Column(columnDefinition = "TEXT")
+    private String stageTimings;
+
     @PrePersist
     protected void onCreate() {
         generatedAt = LocalDateTime.now();
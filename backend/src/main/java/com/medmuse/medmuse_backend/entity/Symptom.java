@@ -1,6 +1,9 @@
 package com.medmuse.medmuse_backend.entity;
 
 import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -29,6 +32,8 @@ public class Symptom {
     @Column(nullable = false)
     private boolean isActive = true;
     
+    // Lazy and unbounded; symptoms returned by the controllers are serialized after their session closes
+    @JsonIgnore
     @OneToMany(mappedBy = "symptom", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<SymptomEntry> entries;
 
@@ -15,7 +15,8 @@ import lombok.Setter;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "symptom_entries")
+@Table(name = "symptom_entries", indexes = @Index(name = "idx_symptom_entries_user_date_time_id",
+        columnList = "user_id, entry_date DESC, entry_time DESC, id DESC"))
 public class SymptomEntry {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -46,6 +47,8 @@ public class SymptomEntry {
     
     private LocalDateTime createdAt;
 
+    private LocalDateTime updatedAt;
+
     @PrePersist
     protected void onCreate() {
         if (entryDate == null) {
@@ -55,6 +58,12 @@ public class SymptomEntry {
             entryTime = LocalTime.now().withSecond(0).withNano(0);
         }
         createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
     }
 
     public SymptomEntry(User user, Symptom symptom, String customDescription, Integer severity, String notes, LocalDate entryDate, LocalTime entryTime) {
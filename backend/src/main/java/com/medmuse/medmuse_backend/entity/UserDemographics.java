@@ -23,6 +23,10 @@ public class UserDemographics {
     private String height;
     private String nationality;
 
+    // Bumped on every change; part of the report cache key
+    @Version
+    private Long version;
+
     @OneToOne(fetch=FetchType.LAZY)
     @JoinColumn(name="user_id", nullable=false)
     private User user;
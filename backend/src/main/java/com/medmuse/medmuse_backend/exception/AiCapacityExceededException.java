@@ -0,0 +1,26 @@
+package com.medmuse.medmuse_backend.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class AiCapacityExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String provider;
+    private final long retryAfterSeconds;
+
+    public AiCapacityExceededException(String provider, String message, long retryAfterSeconds) {
+        super(String.format("%s: %s", provider, message));
+        this.provider = provider;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,32 @@
+package com.medmuse.medmuse_backend.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class AiUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String provider;
+    private final long retryAfterSeconds;
+
+    public AiUnavailableException(String provider, String message, long retryAfterSeconds) {
+        super(String.format("%s: %s", provider, message));
+        this.provider = provider;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public AiUnavailableException(String provider, String message, long retryAfterSeconds, Throwable cause) {
+        super(String.format("%s: %s", provider, message), cause);
+        this.provider = provider;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
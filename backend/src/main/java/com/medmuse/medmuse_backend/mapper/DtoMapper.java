@@ -0,0 +1,54 @@
+package com.medmuse.medmuse_backend.mapper;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+import com.medmuse.medmuse_backend.dto.ReportDto;
+import com.medmuse.medmuse_backend.dto.SymptomDto;
+import com.medmuse.medmuse_backend.dto.SymptomEntryDto;
+import com.medmuse.medmuse_backend.dto.UserDemographicsDto;
+import com.medmuse.medmuse_backend.dto.UserDto;
+import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.entity.Symptom;
+import com.medmuse.medmuse_backend.entity.SymptomEntry;
+import com.medmuse.medmuse_backend.entity.User;
+import com.medmuse.medmuse_backend.entity.UserDemographics;
+
+/**
+ * Entity to DTO mappings for all services. MapStruct generates the implementation at compile
+ * time as plain getter and setter calls, so nothing is resolved by reflection per request.
+ * A DTO property without a source fails the build unless it is ignored here explicitly.
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface DtoMapper {
+
+    UserDto toDto(User user);
+
+    UserDemographicsDto toDto(UserDemographics demographics);
+
+    SymptomDto toDto(Symptom symptom);
+
+    @Mapping(target = "regenerateLater", ignore = true)
+    ReportDto toDto(Report report);
+
+    // Same constructor as the repository projections, which sets the custom-entry labels and loggedAt
+    default SymptomEntryDto toDto(SymptomEntry entry) {
+        if (entry == null) {
+            return null;
+        }
+        Symptom symptom = entry.getSymptom();
+        return new SymptomEntryDto(
+            entry.getId(),
+            symptom != null ? symptom.getId() : null,
+            symptom != null ? symptom.getName() : null,
+            symptom != null ? symptom.getCategory() : null,
+            entry.getCustomDescription(),
+            entry.getSeverity(),
+            entry.getNotes(),
+            entry.getEntryDate(),
+            entry.getEntryTime(),
+            entry.getCreatedAt());
+    }
+}
@@ -0,0 +1,11 @@
+package com.medmuse.medmuse_backend.repository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * One symptom entry as listed in the report PDF appendix.
+ */
+public record AppendixRow(Long id, LocalDate entryDate, LocalTime entryTime, String symptomName,
+        String customDescription, Integer severity, String notes) {
+}
@@ -0,0 +1,11 @@
+package com.medmuse.medmuse_backend.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Number of symptom entries in a range and the latest time any of them was written.
+ * Deletes lower the count and inserts or edits move the timestamp, so any change to the
+ * range changes the watermark.
+ */
+public record EntryWatermark(Long entryCount, LocalDateTime lastModified) {
+}
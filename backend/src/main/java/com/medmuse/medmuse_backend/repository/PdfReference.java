@@ -0,0 +1,7 @@
+package com.medmuse.medmuse_backend.repository;
+
+/**
+ * The stored PDF a report points at, without loading the report text.
+ */
+public record PdfReference(Long reportId, String pdfPath) {
+}
@@ -0,0 +1,11 @@
+package com.medmuse.medmuse_backend.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The report columns an export needs, without the report text.
+ */
+public record ReportExportEntry(Long id, LocalDate weekStartDate, LocalDate weekEndDate,
+        LocalDateTime generatedAt, String pdfPath) {
+}
@@ -1,14 +1,23 @@
 package com.medmuse.medmuse_backend.repository;
 
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.medmuse.medmuse_backend.dto.ReportDto;
 import com.medmuse.medmuse_backend.entity.Report;
 
 @Repository
@@ -18,4 +27,125 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
     Optional<Report> findByIdAndUserId(Long id, Long userId);
     List<Report> findByUserIdOrderByGeneratedAtDesc(Long userId);
     Page<Report> findByUserIdOrderByGeneratedAtDesc(Long userId, Pageable pageable);
+    Optional<Report> findFirstByUserIdOrderByGeneratedAtDesc(Long userId);
+    Optional<Report> findFirstByUserIdAndCacheKeyOrderByGeneratedAtDesc(Long userId, String cacheKey);
+
+    @Query("""
+        SELECT new com.medmuse.medmuse_backend.dto.ReportDto(
+            r.id, r.weekStartDate, r.weekEndDate, r.generatedAt, r.healthSummary, r.riskAreas,
+            r.recommendations, r.pdfPath, r.promptMode)
+        FROM Report r
+        WHERE r.user.id = :userId
+        ORDER BY r.generatedAt DESC
+        """)
+    List<ReportDto> findReportDtosByUserId(@Param("userId") Long userId);
+
+    @Query(value = """
+        SELECT new com.medmuse.medmuse_backend.dto.ReportDto(
+            r.id, r.weekStartDate, r.weekEndDate, r.generatedAt, r.healthSummary, r.riskAreas,
+            r.recommendations, r.pdfPath, r.promptMode)
+        FROM Report r
+        WHERE r.user.id = :userId
+        ORDER BY r.generatedAt DESC
+        """,
+        countQuery = "SELECT COUNT(r) FROM Report r WHERE r.user.id = :userId")
+    Page<ReportDto> findReportDtosByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("""
+        SELECT new com.medmuse.medmuse_backend.dto.ReportDto(
+            r.id, r.weekStartDate, r.weekEndDate, r.generatedAt, r.healthSummary, r.riskAreas,
+            r.recommendations, r.pdfPath, r.promptMode)
+        FROM Report r
+        WHERE r.id = :id
+          AND r.user.id = :userId
+        """)
+    Optional<ReportDto> findReportDtoByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Query("""
+        SELECT new com.medmuse.medmuse_backend.dto.ReportDto(
+            r.id, r.weekStartDate, r.weekEndDate, r.generatedAt, r.healthSummary, r.riskAreas,
+            r.recommendations, r.pdfPath, r.promptMode)
+        FROM Report r
+        WHERE r.user.id = :userId
+        ORDER BY r.generatedAt DESC, r.id DESC
+        """)
+    List<ReportDto> findReportDtosByUserId(@Param("userId") Long userId, Limit limit);
+
+    @Query("""
+        SELECT new com.medmuse.medmuse_backend.dto.ReportDto(
+            r.id, r.weekStartDate, r.weekEndDate, r.generatedAt, r.healthSummary, r.riskAreas,
+            r.recommendations, r.pdfPath, r.promptMode)
+        FROM Report r
+        WHERE r.user.id = :userId
+          AND r.generatedAt <= :beforeGeneratedAt
+          AND (r.generatedAt < :beforeGeneratedAt
+            OR (r.generatedAt = :beforeGeneratedAt AND r.id < :beforeId))
+        ORDER BY r.generatedAt DESC, r.id DESC
+        """)
+    List<ReportDto> findReportDtosBefore(
+        @Param("userId") Long userId,
+        @Param("beforeGeneratedAt") LocalDateTime beforeGeneratedAt,
+        @Param("beforeId") Long beforeId,
+        Limit limit);
+
+    long countByUserId(Long userId);
+
+    @Query("SELECT DISTINCT r.pdfPath FROM Report r WHERE r.pdfPath IN :pdfPaths")
+    Set<String> findReferencedPdfPaths(@Param("pdfPaths") Collection<String> pdfPaths);
+
+    @Query("""
+        SELECT new com.medmuse.medmuse_backend.repository.PdfReference(r.id, r.pdfPath)
+        FROM Report r
+        WHERE r.id > :afterId
+          AND r.pdfPath IS NOT NULL
+        ORDER BY r.id
+        """)
+    List<PdfReference> findPdfReferencesAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT MAX(r.id) FROM Report r WHERE r.user.id = :userId")
+    Optional<Long> findMaxIdByUserId(@Param("userId") Long userId);
+
+    @Query("""
+        SELECT new com.medmuse.medmuse_backend.repository.ReportExportEntry(
+            r.id, r.weekStartDate, r.weekEndDate, r.generatedAt, r.pdfPath)
+        FROM Report r
+        WHERE r.user.id = :userId
+          AND r.id < :beforeId
+        ORDER BY r.id DESC
+        """)
+    List<ReportExportEntry> findExportEntriesBefore(
+        @Param("userId") Long userId,
+        @Param("beforeId") Long beforeId,
+        Limit limit);
+
+    @Query("""
+        SELECT r
+        FROM Report r
+        WHERE r.id > :afterId
+          AND r.pdfPath IS NOT NULL
+        ORDER BY r.id
+        """)
+    List<Report> findStoredPdfReportsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    long countByIdGreaterThanAndPdfPathIsNotNull(Long afterId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Report r SET r.pdfPath = :pdfPath, r.pdfDigest = :pdfDigest WHERE r.id = :id")
+    int updatePdf(@Param("id") Long id, @Param("pdfPath") String pdfPath, @Param("pdfDigest") String pdfDigest);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Report r SET r.stageTimings = :stageTimings WHERE r.id = :id")
+    int updateStageTimings(@Param("id") Long id, @Param("stageTimings") String stageTimings);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Report r SET r.pdfPath = NULL, r.pdfDigest = NULL WHERE r.pdfPath IN :pdfPaths")
+    int clearPdfPaths(@Param("pdfPaths") Collection<String> pdfPaths);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Report r SET r.pdfPath = NULL, r.pdfDigest = NULL WHERE r.id = :id AND r.pdfPath = :pdfPath")
+    int clearPdfPath(@Param("id") Long id, @Param("pdfPath") String pdfPath);
 }
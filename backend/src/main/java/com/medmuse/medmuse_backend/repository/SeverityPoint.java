@@ -0,0 +1,11 @@
+package com.medmuse.medmuse_backend.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Severity of one symptom on one day. Custom symptoms have no symptom id and are charted
+ * together.
+ */
+public record SeverityPoint(Long symptomId, String symptomName, LocalDate entryDate, Integer maxSeverity,
+        Double averageSeverity, Long entries) {
+}
@@ -2,8 +2,11 @@ package com.medmuse.medmuse_backend.repository;
 
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -11,30 +14,146 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.medmuse.medmuse_backend.dto.SymptomEntryDto;
 import com.medmuse.medmuse_backend.entity.SymptomEntry;
 
 @Repository
 public interface SymptomEntryRepository extends JpaRepository<SymptomEntry, Long> {
-    
-    Page<SymptomEntry> findByUserIdOrderByEntryDateDescEntryTimeDesc(Long userId, Pageable pageable);
-    
-    List<SymptomEntry> findByUserIdAndEntryDateBetweenOrderByEntryDateDescEntryTimeDesc(
-        Long userId, LocalDate startDate, LocalDate endDate);
+
+    // Entry reads select just the DTO columns, without managed entities
+
+    @Query(value = """
+        SELECT new com.medmuse.medmuse_backend.dto.SymptomEntryDto(
+            se.id, s.id, s.name, s.category, se.customDescription, se.severity, se.notes,
+            se.entryDate, se.entryTime, se.createdAt)
+        FROM SymptomEntry se
+        LEFT JOIN se.symptom s
+        WHERE se.user.id = :userId
+        ORDER BY se.entryDate DESC, se.entryTime DESC
+        """,
+        countQuery = "SELECT COUNT(se) FROM SymptomEntry se WHERE se.user.id = :userId")
+    Page<SymptomEntryDto> findEntryDtosByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("""
+        SELECT new com.medmuse.medmuse_backend.dto.SymptomEntryDto(
+            se.id, s.id, s.name, s.category, se.customDescription, se.severity, se.notes,
+            se.entryDate, se.entryTime, se.createdAt)
+        FROM SymptomEntry se
+        LEFT JOIN se.symptom s
+        WHERE se.user.id = :userId
+          AND se.entryDate BETWEEN :startDate AND :endDate
+        ORDER BY se.entryDate DESC, se.entryTime DESC
+        """)
+    List<SymptomEntryDto> findEntryDtosInPeriod(
+        @Param("userId") Long userId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate);
 
     @Query("""
-        SELECT se
+        SELECT new com.medmuse.medmuse_backend.dto.SymptomEntryDto(
+            se.id, s.id, s.name, s.category, se.customDescription, se.severity, se.notes,
+            se.entryDate, se.entryTime, se.createdAt)
         FROM SymptomEntry se
+        JOIN se.symptom s
         WHERE se.user.id = :userId
           AND se.entryDate BETWEEN :startDate AND :endDate
-          AND se.symptom.id IN :symptomIds
+          AND s.id IN :symptomIds
         ORDER BY se.entryDate DESC, se.entryTime DESC
         """)
-    List<SymptomEntry> findByUserIdAndEntryDateBetweenAndSymptomIdInOrderByEntryDateDescEntryTimeDesc(
+    List<SymptomEntryDto> findEntryDtosInPeriodForSymptoms(
         @Param("userId") Long userId,
         @Param("startDate") LocalDate startDate,
         @Param("endDate") LocalDate endDate,
         @Param("symptomIds") List<Long> symptomIds);
+
+    // Keyset pages of the history, newest first; the id breaks ties between entries logged at the same time
+
+    @Query("""
+        SELECT new com.medmuse.medmuse_backend.dto.SymptomEntryDto(
+            se.id, s.id, s.name, s.category, se.customDescription, se.severity, se.notes,
+            se.entryDate, se.entryTime, se.createdAt)
+        FROM SymptomEntry se
+        LEFT JOIN se.symptom s
+        WHERE se.user.id = :userId
+        ORDER BY se.entryDate DESC, se.entryTime DESC, se.id DESC
+        """)
+    List<SymptomEntryDto> findEntryDtosByUserId(@Param("userId") Long userId, Limit limit);
+
+    // The redundant date bound gives the planner a range start on the index
+    @Query("""
+        SELECT new com.medmuse.medmuse_backend.dto.SymptomEntryDto(
+            se.id, s.id, s.name, s.category, se.customDescription, se.severity, se.notes,
+            se.entryDate, se.entryTime, se.createdAt)
+        FROM SymptomEntry se
+        LEFT JOIN se.symptom s
+        WHERE se.user.id = :userId
+          AND se.entryDate <= :beforeDate
+          AND (se.entryDate < :beforeDate
+            OR (se.entryDate = :beforeDate AND (se.entryTime < :beforeTime
+              OR (se.entryTime = :beforeTime AND se.id < :beforeId))))
+        ORDER BY se.entryDate DESC, se.entryTime DESC, se.id DESC
+        """)
+    List<SymptomEntryDto> findEntryDtosBefore(
+        @Param("userId") Long userId,
+        @Param("beforeDate") LocalDate beforeDate,
+        @Param("beforeTime") LocalTime beforeTime,
+        @Param("beforeId") Long beforeId,
+        Limit limit);
+
+    long countByUserId(Long userId);
     
+    @Query("""
+        SELECT new com.medmuse.medmuse_backend.repository.EntryWatermark(
+            COUNT(se), MAX(COALESCE(se.updatedAt, se.createdAt)))
+        FROM SymptomEntry se
+        WHERE se.user.id = :userId
+          AND se.entryDate BETWEEN :startDate AND :endDate
+        """)
+    EntryWatermark findWatermark(
+        @Param("userId") Long userId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate);
+
+    @Query("""
+        SELECT new com.medmuse.medmuse_backend.repository.SeverityPoint(
+            s.id, s.name, se.entryDate, MAX(se.severity), AVG(se.severity), COUNT(se))
+        FROM SymptomEntry se
+        LEFT JOIN se.symptom s
+        WHERE se.user.id = :userId
+          AND se.entryDate BETWEEN :startDate AND :endDate
+          AND se.createdAt <= :asOf
+        GROUP BY s.id, s.name, se.entryDate
+        ORDER BY s.name, s.id, se.entryDate
+        """)
+    List<SeverityPoint> findSeverityPoints(
+        @Param("userId") Long userId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        @Param("asOf") LocalDateTime asOf);
+
+    @Query("""
+        SELECT new com.medmuse.medmuse_backend.repository.AppendixRow(
+            se.id, se.entryDate, se.entryTime, s.name, se.customDescription, se.severity, se.notes)
+        FROM SymptomEntry se
+        LEFT JOIN se.symptom s
+        WHERE se.user.id = :userId
+          AND se.entryDate BETWEEN :startDate AND :endDate
+          AND se.createdAt <= :asOf
+          AND (se.entryDate > :afterDate
+            OR (se.entryDate = :afterDate AND (se.entryTime > :afterTime
+              OR (se.entryTime = :afterTime AND se.id > :afterId))))
+        ORDER BY se.entryDate, se.entryTime, se.id
+        """)
+    List<AppendixRow> findAppendixRowsAfter(
+        @Param("userId") Long userId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        @Param("asOf") LocalDateTime asOf,
+        @Param("afterDate") LocalDate afterDate,
+        @Param("afterTime") LocalTime afterTime,
+        @Param("afterId") Long afterId,
+        Limit limit);
+
     @Query("SELECT se FROM SymptomEntry se WHERE se.user.id = :userId AND se.entryDate >= :startDate")
     List<SymptomEntry> findRecentEntriesForUser(@Param("userId") Long userId, @Param("startDate") LocalDate startDate);
     
@@ -1,5 +1,13 @@
 package com.medmuse.medmuse_backend.service;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
 import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserService;
@@ -15,9 +23,16 @@ public class CustomOidcUserService implements OAuth2UserService<OidcUserRequest,
 
     private final OidcUserService delegate = new OidcUserService();
     private final UserServiceInterface userService;
+    private final Set<String> adminEmails;
 
-    public CustomOidcUserService(UserServiceInterface userService) {
+    public CustomOidcUserService(UserServiceInterface userService,
+                                 @Value("${medmuse.admin.emails:}") String adminEmails) {
         this.userService = userService;
+        this.adminEmails = Arrays.stream(adminEmails.split(","))
+                .map(String::trim)
+                .filter(email -> !email.isEmpty())
+                .map(String::toLowerCase)
+                .collect(Collectors.toUnmodifiableSet());
     }
 
     @Override
@@ -31,8 +46,14 @@ public class CustomOidcUserService implements OAuth2UserService<OidcUserRequest,
 
         userService.createOrUpdateUser(googleId, email, name, picture);
 
+        Set<GrantedAuthority> authorities = new HashSet<>(oidcUser.getAuthorities());
+        if (email != null && Boolean.TRUE.equals(oidcUser.getEmailVerified())
+                && adminEmails.contains(email.toLowerCase())) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+        }
+
         return new DefaultOidcUser(
-            oidcUser.getAuthorities(),
+            authorities,
             oidcUser.getIdToken(),
             oidcUser.getUserInfo(),
             "sub"
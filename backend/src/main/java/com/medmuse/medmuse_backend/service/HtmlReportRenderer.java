@@ -0,0 +1,76 @@
+package com.medmuse.medmuse_backend.service;
+
+import java.util.List;
+
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.HtmlUtils;
+
+/**
+ * A self-contained HTML page for browsers, mobile web views and email bodies. Styles are
+ * inline in the head so the page needs no further requests.
+ */
+@Component
+public class HtmlReportRenderer extends TextReportRenderer {
+
+    private static final String STYLE = "body{font-family:Helvetica,Arial,sans-serif;max-width:40em;margin:1em auto;"
+            + "padding:0 1em;line-height:1.5;color:#222}h1{text-align:center}.note{text-align:center;color:#555;"
+            + "font-size:.9em;margin:.2em 0}.disclaimer{font-style:italic;color:#555;font-size:.9em}";
+
+    @Override
+    public MediaType mediaType() {
+        return MediaType.TEXT_HTML;
+    }
+
+    @Override
+    protected void begin(StringBuilder out, String title) {
+        out.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"utf-8\">\n")
+                .append("<meta name=\"viewport\" content=\"width=device-width, initial-scale=1\">\n")
+                .append("<title>").append(escape(title)).append("</title>\n")
+                .append("<style>").append(STYLE).append("</style>\n</head>\n<body>\n")
+                .append("<h1>").append(escape(title)).append("</h1>\n");
+    }
+
+    @Override
+    protected void note(StringBuilder out, String text) {
+        out.append("<p class=\"note\">").append(escape(text)).append("</p>\n");
+    }
+
+    @Override
+    protected void heading(StringBuilder out, String text) {
+        out.append("<h2>").append(escape(text)).append("</h2>\n");
+    }
+
+    @Override
+    protected void subheading(StringBuilder out, String text) {
+        out.append("<h3>").append(escape(text)).append("</h3>\n");
+    }
+
+    @Override
+    protected void paragraph(StringBuilder out, String text) {
+        out.append("<p>").append(escape(text)).append("</p>\n");
+    }
+
+    @Override
+    protected void bullets(StringBuilder out, List<String> items) {
+        out.append("<ul>\n");
+        for (String item : items) {
+            out.append("<li>").append(escape(item)).append("</li>\n");
+        }
+        out.append("</ul>\n");
+    }
+
+    @Override
+    protected void disclaimer(StringBuilder out, String text) {
+        out.append("<p class=\"disclaimer\">").append(escape(text)).append("</p>\n");
+    }
+
+    @Override
+    protected void end(StringBuilder out) {
+        out.append("</body>\n</html>\n");
+    }
+
+    private static String escape(String text) {
+        return HtmlUtils.htmlEscape(text, "UTF-8");
+    }
+}
@@ -0,0 +1,100 @@
+package com.medmuse.medmuse_backend.service;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.itextpdf.text.DocumentException;
+import com.medmuse.medmuse_backend.dto.ReportDto;
+import com.medmuse.medmuse_backend.service.interfaces.ReportRequestCoalescer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Single-flight coalescing within this JVM: the first caller for a key computes the
+ * report, callers arriving while it runs wait for and receive the same result (or
+ * exception). The key is released as soon as the computation finishes, or, when the
+ * computation ran inside a transaction, once that transaction has completed, so waiters
+ * never see a report that is not committed yet.
+ */
+@Service
+public class InProcessReportRequestCoalescer implements ReportRequestCoalescer {
+
+    private final ConcurrentHashMap<Key, CompletableFuture<ReportDto>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedCounter;
+
+    public InProcessReportRequestCoalescer(MeterRegistry meterRegistry) {
+        this.coalescedCounter = Counter.builder("medmuse.report.requests.coalesced")
+                .description("Report requests that joined an identical in-flight generation")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ReportDto coalesce(Key key, ReportComputation computation) throws DocumentException, IOException {
+        CompletableFuture<ReportDto> own = new CompletableFuture<>();
+        CompletableFuture<ReportDto> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            coalescedCounter.increment();
+            return await(existing);
+        }
+
+        ReportDto report;
+        try {
+            report = computation.compute();
+        } catch (Throwable t) {
+            inFlight.remove(key, own);
+            own.completeExceptionally(t);
+            throw t;
+        }
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    // Released before waiters wake, so a retry starts afresh instead of joining this outcome
+                    inFlight.remove(key, own);
+                    if (status == STATUS_COMMITTED) {
+                        own.complete(report);
+                    } else {
+                        own.completeExceptionally(
+                                new IllegalStateException("Report transaction did not commit for " + key));
+                    }
+                }
+            });
+        } else {
+            inFlight.remove(key, own);
+            own.complete(report);
+        }
+        return report;
+    }
+
+    private ReportDto await(CompletableFuture<ReportDto> future) throws DocumentException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for an identical report request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DocumentException documentException) {
+                throw documentException;
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.medmuse.medmuse_backend.service;
+
+import java.util.List;
+
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * CommonMark text for chat and mobile clients that render Markdown themselves. The AI text
+ * is passed through apart from {@code &} and {@code <}, so it cannot inject HTML into
+ * clients that allow it in Markdown.
+ */
+@Component
+public class MarkdownReportRenderer extends TextReportRenderer {
+
+    @Override
+    public MediaType mediaType() {
+        return MediaType.TEXT_MARKDOWN;
+    }
+
+    @Override
+    protected void begin(StringBuilder out, String title) {
+        out.append("# ").append(escape(title)).append("\n\n");
+    }
+
+    @Override
+    protected void note(StringBuilder out, String text) {
+        out.append(escape(text)).append("  \n");
+    }
+
+    @Override
+    protected void heading(StringBuilder out, String text) {
+        out.append("\n## ").append(escape(text)).append("\n\n");
+    }
+
+    @Override
+    protected void subheading(StringBuilder out, String text) {
+        out.append("\n### ").append(escape(text)).append("\n\n");
+    }
+
+    @Override
+    protected void paragraph(StringBuilder out, String text) {
+        out.append(escape(text)).append("\n\n");
+    }
+
+    @Override
+    protected void bullets(StringBuilder out, List<String> items) {
+        for (String item : items) {
+            out.append("- ").append(escape(item)).append('\n');
+        }
+    }
+
+    @Override
+    protected void disclaimer(StringBuilder out, String text) {
+        out.append('*').append(escape(text)).append("*\n\n");
+    }
+
+    @Override
+    protected void end(StringBuilder out) {
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;");
+    }
+}
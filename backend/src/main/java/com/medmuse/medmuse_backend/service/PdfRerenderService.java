@@ -0,0 +1,312 @@
+package com.medmuse.medmuse_backend.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import com.medmuse.medmuse_backend.config.PdfStorageProperties;
+import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.repository.ReportRepository;
+import com.medmuse.medmuse_backend.service.storage.PdfStore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Re-renders every stored report PDF after a layout change. Reports are read in id-keyset
+ * batches and rendered on a fixed worker pool; at most {@code maxInFlight} rendered PDFs
+ * are held in memory at once. Objects are written through the {@link PdfStore}, which
+ * makes each write atomic, and the report is re-pointed afterwards; the previous object
+ * is left to the retention sweep.
+ *
+ * <p>After each batch the id of its last report is written to the checkpoint file. A run
+ * that is stopped, fails or is cut short by a shutdown resumes from there on the next
+ * start; a run that finishes removes the file. Only one run is active at a time.
+ */
+@Slf4j
+@Service
+public class PdfRerenderService {
+
+    private static final int MAX_REPORTED_FAILURES = 20;
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    public enum State {
+        IDLE,
+        RUNNING,
+        STOPPING,
+        COMPLETED,
+        STOPPED,
+        FAILED
+    }
+
+    public record Progress(State state, Long checkpoint, long total, long processed, long rerendered,
+            long unchanged, long failed, double reportsPerSecond, Instant startedAt, Instant finishedAt,
+            List<Long> failedReportIds) {
+    }
+
+    private final ReportRepository reportRepository;
+    private final PdfService pdfService;
+    private final PdfStorageProperties.RerenderSettings settings;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final Path checkpointFile;
+
+    private volatile Run current;
+
+    @Autowired
+    public PdfRerenderService(ReportRepository reportRepository, PdfService pdfService,
+            PdfStorageProperties properties, MeterRegistry meterRegistry) {
+        this(reportRepository, pdfService, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    PdfRerenderService(ReportRepository reportRepository, PdfService pdfService, PdfStorageProperties properties,
+            MeterRegistry meterRegistry, Clock clock) {
+        this.reportRepository = reportRepository;
+        this.pdfService = pdfService;
+        this.settings = properties.getRerender();
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.checkpointFile = Paths.get(settings.getCheckpointFile());
+    }
+
+    /**
+     * Starts a run from the checkpoint, or from the first report if there is none or
+     * {@code fromScratch} is set. Returns the progress of the active run if one is already
+     * going.
+     */
+    public synchronized Progress start(boolean fromScratch) throws IOException {
+        Run running = current;
+        if (running != null && running.finishedAt == null) {
+            return running.progress();
+        }
+
+        long afterId = fromScratch ? 0L : readCheckpoint();
+        Run run = new Run(afterId, reportRepository.countByIdGreaterThanAndPdfPathIsNotNull(afterId),
+                clock.instant());
+        current = run;
+
+        Thread thread = new Thread(() -> execute(run), "pdf-rerender");
+        thread.setDaemon(true);
+        run.thread = thread;
+        thread.start();
+        log.info("PDF re-render started after report {} ({} reports)", afterId, run.total);
+        return run.progress();
+    }
+
+    /**
+     * Asks the active run to stop after the batch in progress, so the checkpoint covers
+     * everything rendered.
+     */
+    public Progress stop() {
+        Run run = current;
+        if (run != null && run.finishedAt == null) {
+            run.stopRequested = true;
+            run.state = State.STOPPING;
+        }
+        return progress();
+    }
+
+    public Progress progress() {
+        Run run = current;
+        if (run == null) {
+            return new Progress(State.IDLE, null, 0, 0, 0, 0, 0, 0, null, null, List.of());
+        }
+        return run.progress();
+    }
+
+    boolean awaitTermination(Duration timeout) throws InterruptedException {
+        Run run = current;
+        if (run == null || run.thread == null) {
+            return true;
+        }
+        run.thread.join(timeout.toMillis());
+        return !run.thread.isAlive();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        stop();
+        awaitTermination(SHUTDOWN_TIMEOUT);
+    }
+
+    private void execute(Run run) {
+        AtomicInteger workerCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(settings.getWorkerThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "pdf-rerender-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore inFlight = new Semaphore(settings.getMaxInFlight());
+
+        try {
+            long afterId = run.checkpoint;
+            List<Report> batch;
+            do {
+                if (run.stopRequested) {
+                    break;
+                }
+
+                batch = reportRepository.findStoredPdfReportsAfter(afterId, Limit.of(settings.getBatchSize()));
+                List<Future<?>> renders = new ArrayList<>(batch.size());
+                for (Report report : batch) {
+                    inFlight.acquire();
+                    try {
+                        renders.add(workers.submit(() -> {
+                            try {
+                                rerender(run, report);
+                            } finally {
+                                inFlight.release();
+                            }
+                        }));
+                    } catch (RuntimeException e) {
+                        inFlight.release();
+                        throw e;
+                    }
+                }
+                for (Future<?> render : renders) {
+                    render.get();
+                }
+
+                if (!batch.isEmpty()) {
+                    afterId = batch.get(batch.size() - 1).getId();
+                    writeCheckpoint(afterId);
+                    run.checkpoint = afterId;
+                }
+            } while (batch.size() == settings.getBatchSize());
+
+            if (run.stopRequested) {
+                run.state = State.STOPPED;
+            } else {
+                Files.deleteIfExists(checkpointFile);
+                run.state = State.COMPLETED;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.state = State.STOPPED;
+        } catch (IOException | ExecutionException | RuntimeException e) {
+            log.error("PDF re-render failed after report {}: {}", run.checkpoint, e.getMessage(), e);
+            run.state = State.FAILED;
+        } finally {
+            workers.shutdown();
+            run.finishedAt = clock.instant();
+            log.info("PDF re-render {}: {} processed, {} re-rendered, {} unchanged, {} failed",
+                    run.state.name().toLowerCase(), run.processed.get(), run.rerendered.get(),
+                    run.unchanged.get(), run.failed.get());
+        }
+    }
+
+    private void rerender(Run run, Report report) {
+        try {
+            PdfStore.StoredPdf stored = pdfService.generatePdf(report);
+            // Unchanged means neither the layout nor the period's entries changed since the last render
+            if (stored.key().equals(report.getPdfPath())) {
+                run.unchanged.incrementAndGet();
+                record("unchanged");
+            } else {
+                reportRepository.updatePdf(report.getId(), stored.key(), stored.digest());
+                run.rerendered.incrementAndGet();
+                record("rerendered");
+            }
+        } catch (Exception e) {
+            // One broken report must not hold up the rest; it keeps its old PDF
+            log.warn("Could not re-render PDF of report {}: {}", report.getId(), e.getMessage());
+            run.recordFailure(report.getId());
+            record("failed");
+        } finally {
+            run.processed.incrementAndGet();
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return 0L;
+        }
+        String content = Files.readString(checkpointFile, StandardCharsets.US_ASCII).trim();
+        try {
+            return Long.parseLong(content);
+        } catch (NumberFormatException e) {
+            throw new IOException("Unreadable re-render checkpoint in " + checkpointFile, e);
+        }
+    }
+
+    private void writeCheckpoint(long afterId) throws IOException {
+        Path directory = checkpointFile.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, ".checkpoint-", ".tmp");
+        try {
+            Files.writeString(temp, Long.toString(afterId), StandardCharsets.US_ASCII);
+            Files.move(temp, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void record(String outcome) {
+        meterRegistry.counter("medmuse.report.pdf.rerender", "outcome", outcome).increment();
+    }
+
+    private final class Run {
+
+        private final long total;
+        private final Instant startedAt;
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong rerendered = new AtomicLong();
+        private final AtomicLong unchanged = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final List<Long> failedReportIds = new ArrayList<>();
+
+        private volatile long checkpoint;
+        private volatile State state = State.RUNNING;
+        private volatile boolean stopRequested;
+        private volatile Instant finishedAt;
+        private volatile Thread thread;
+
+        private Run(long checkpoint, long total, Instant startedAt) {
+            this.checkpoint = checkpoint;
+            this.total = total;
+            this.startedAt = startedAt;
+        }
+
+        private void recordFailure(Long reportId) {
+            failed.incrementAndGet();
+            synchronized (failedReportIds) {
+                if (failedReportIds.size() < MAX_REPORTED_FAILURES) {
+                    failedReportIds.add(reportId);
+                }
+            }
+        }
+
+        private Progress progress() {
+            Instant end = finishedAt != null ? finishedAt : clock.instant();
+            double seconds = Duration.between(startedAt, end).toMillis() / 1000.0;
+            long done = processed.get();
+            List<Long> failures;
+            synchronized (failedReportIds) {
+                failures = List.copyOf(failedReportIds);
+            }
+            return new Progress(state, checkpoint, total, done, rerendered.get(), unchanged.get(), failed.get(),
+                    seconds > 0 ? done / seconds : 0, startedAt, finishedAt, failures);
+        }
+    }
+}
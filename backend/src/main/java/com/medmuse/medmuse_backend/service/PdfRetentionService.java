@@ -0,0 +1,177 @@
+package com.medmuse.medmuse_backend.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.medmuse.medmuse_backend.config.PdfStorageProperties;
+import com.medmuse.medmuse_backend.repository.PdfReference;
+import com.medmuse.medmuse_backend.repository.ReportRepository;
+import com.medmuse.medmuse_backend.service.storage.PdfStore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reconciles the PDF store with the reports table in batches. Objects no report points at
+ * are deleted once they are older than the orphan grace period, objects older than the
+ * retention window are evicted, and reports whose object is gone have their key cleared.
+ * A report without a key is rendered again from its stored text on its next download.
+ * Batches are separated by a pause and each run deletes at most a fixed number of objects,
+ * so a sweep never competes with live downloads for long.
+ */
+@Slf4j
+@Service
+public class PdfRetentionService {
+
+    public record SweepResult(int scanned, int orphansDeleted, int expiredDeleted, int missingCleared) {
+    }
+
+    private final PdfStore pdfStore;
+    private final ReportRepository reportRepository;
+    private final PdfStorageProperties.SweepSettings settings;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+
+    @Autowired
+    public PdfRetentionService(PdfStore pdfStore, ReportRepository reportRepository,
+            PdfStorageProperties properties, MeterRegistry meterRegistry) {
+        this(pdfStore, reportRepository, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    PdfRetentionService(PdfStore pdfStore, ReportRepository reportRepository, PdfStorageProperties properties,
+            MeterRegistry meterRegistry, Clock clock) {
+        this.pdfStore = pdfStore;
+        this.reportRepository = reportRepository;
+        this.settings = properties.getSweep();
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    @Scheduled(initialDelayString = "${medmuse.storage.pdf.sweep.interval:6h}",
+            fixedDelayString = "${medmuse.storage.pdf.sweep.interval:6h}")
+    public void scheduledSweep() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+
+        try {
+            SweepResult result = sweep();
+            log.info("PDF sweep scanned {} objects: {} orphans deleted, {} expired, {} missing cleared",
+                    result.scanned(), result.orphansDeleted(), result.expiredDeleted(), result.missingCleared());
+        } catch (IOException | RuntimeException e) {
+            log.warn("PDF sweep failed: {}", e.getMessage(), e);
+        }
+    }
+
+    public SweepResult sweep() throws IOException {
+        Instant now = clock.instant();
+        Instant orphanCutoff = now.minus(settings.getOrphanGrace());
+        Instant expiryCutoff = settings.getRetention().isZero() ? null : now.minus(settings.getRetention());
+        int deletesLeft = settings.getMaxDeletesPerRun();
+        int scanned = 0;
+        int orphans = 0;
+        int expired = 0;
+
+        String after = null;
+        List<PdfStore.Entry> batch;
+        do {
+            batch = pdfStore.list(after, settings.getBatchSize());
+            if (batch.isEmpty()) {
+                break;
+            }
+            after = batch.get(batch.size() - 1).key();
+            scanned += batch.size();
+
+            Set<String> referenced = reportRepository.findReferencedPdfPaths(
+                    batch.stream().map(PdfStore.Entry::key).toList());
+            List<String> evict = new ArrayList<>();
+            for (PdfStore.Entry entry : batch) {
+                if (deletesLeft - evict.size() <= 0) {
+                    break;
+                }
+                if (!referenced.contains(entry.key())) {
+                    if (entry.lastModified().isBefore(orphanCutoff) && pdfStore.delete(entry.key())) {
+                        orphans++;
+                        deletesLeft--;
+                    }
+                } else if (expiryCutoff != null && entry.lastModified().isBefore(expiryCutoff)) {
+                    evict.add(entry.key());
+                }
+            }
+
+            if (!evict.isEmpty()) {
+                // Unlink first so no report points at a deleted object
+                reportRepository.clearPdfPaths(evict);
+                for (String key : evict) {
+                    if (pdfStore.delete(key)) {
+                        expired++;
+                        deletesLeft--;
+                    }
+                }
+            }
+            pause();
+        } while (batch.size() == settings.getBatchSize() && deletesLeft > 0);
+
+        int missing = clearMissingReferences();
+
+        record("orphan-deleted", orphans);
+        record("expired-deleted", expired);
+        record("missing-cleared", missing);
+        return new SweepResult(scanned, orphans, expired, missing);
+    }
+
+    private int clearMissingReferences() throws IOException {
+        int cleared = 0;
+        long afterId = 0;
+        List<PdfReference> batch;
+        do {
+            batch = reportRepository.findPdfReferencesAfter(afterId, Limit.of(settings.getBatchSize()));
+            for (PdfReference reference : batch) {
+                // Only cleared if the report still points at the same object
+                if (!exists(reference.pdfPath())) {
+                    cleared += reportRepository.clearPdfPath(reference.reportId(), reference.pdfPath());
+                }
+            }
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).reportId();
+            }
+            pause();
+        } while (batch.size() == settings.getBatchSize());
+        return cleared;
+    }
+
+    private boolean exists(String pdfPath) throws IOException {
+        if (PdfStore.digestOf(pdfPath) != null) {
+            return pdfStore.find(pdfPath).isPresent();
+        }
+        // Rendered before the store existed; imported on its next download
+        return Files.isReadable(Paths.get(pdfPath));
+    }
+
+    private void record(String outcome, int count) {
+        meterRegistry.counter("medmuse.report.pdf.sweep", "outcome", outcome).increment(count);
+    }
+
+    private void pause() {
+        if (settings.getBatchPause().isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(settings.getBatchPause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during PDF sweep", e);
+        }
+    }
+}
@@ -1,49 +1,168 @@
 package com.medmuse.medmuse_backend.service;
 
-import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
 
 import org.springframework.stereotype.Service;
 
-import org.springframework.beans.factory.annotation.Value;
 import com.itextpdf.text.BaseColor;
 import com.itextpdf.text.Document;
 import com.itextpdf.text.DocumentException;
 import com.itextpdf.text.Element;
 import com.itextpdf.text.Font;
 import com.itextpdf.text.FontFactory;
+import com.itextpdf.text.Image;
 import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.pdf.PdfDate;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
 import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.repository.AppendixRow;
+import com.medmuse.medmuse_backend.repository.SeverityPoint;
+import com.medmuse.medmuse_backend.repository.SymptomEntryRepository;
+import com.medmuse.medmuse_backend.service.interfaces.ReportRenderer;
+import com.medmuse.medmuse_backend.service.storage.PdfStore;
 
+/**
+ * Lays out report PDFs with iText. Fonts, date formats and the static disclaimer and footer
+ * blocks are built once and shared between renders; iText only reads them while laying out
+ * a document, so concurrent renders can use the same instances.
+ *
+ * <p>After the AI text the report gets a severity chart per symptom and an appendix listing
+ * every entry of the period. Both read the period's entries logged before the report was
+ * generated, as they are at render time: re-renders are byte-identical only while those
+ * entries are untouched, and editing or deleting one changes the output. The appendix is read
+ * in keyset batches and handed to iText as an incomplete table after each batch, which
+ * writes out the finished pages; memory does not grow with the number of entries.
+ */
 @Service
-public class PdfService {
+public class PdfService implements ReportRenderer {
+
+    private static final Font TITLE_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 24);
+    private static final Font SECTION_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16);
+    private static final Font SUBSECTION_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14);
+    private static final Font BODY_FONT = FontFactory.getFont(FontFactory.HELVETICA, 12);
+    private static final Font SMALL_FONT = FontFactory.getFont(FontFactory.HELVETICA, 10);
+    private static final Font DISCLAIMER_FONT = new Font(Font.FontFamily.HELVETICA, 10, Font.ITALIC, BaseColor.DARK_GRAY);
+    private static final Font TABLE_HEADER_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9);
+    private static final Font TABLE_FONT = FontFactory.getFont(FontFactory.HELVETICA, 9);
+    private static final Font AXIS_FONT = new Font(Font.FontFamily.HELVETICA, 8, Font.NORMAL, BaseColor.GRAY);
+
+    // Shared with the text renderers so every format reads the same
+    static final String TITLE_TEXT = "MedMuse Health Report";
+    static final String DISCLAIMER_TEXT = "This report is generated by AI for informational and educational purposes only. "
+            + "It should not be used as a substitute for professional medical advice, diagnosis, or treatment. "
+            + "Always consult with a qualified healthcare provider before making any healthcare decisions or "
+            + "for guidance about a specific medical condition.";
+    static final String FOOTER_TEXT = "Generated by MedMuse Healthcare Platform";
+    static final DateTimeFormatter PERIOD_FORMATTER = DateTimeFormatter.ofPattern("MMMM dd, yyyy");
+    static final DateTimeFormatter GENERATED_FORMATTER = DateTimeFormatter.ofPattern("MMMM dd, yyyy 'at' HH:mm");
+    private static final DateTimeFormatter AXIS_FORMATTER = DateTimeFormatter.ofPattern("MMM dd");
+    private static final DateTimeFormatter ENTRY_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter ENTRY_TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+
+    private static final Paragraph BLANK_LINE = new Paragraph("\n");
+    private static final Paragraph TITLE = centered(new Paragraph(TITLE_TEXT, TITLE_FONT));
+    private static final Paragraph HEALTH_SUMMARY_HEADER = new Paragraph("Health Summary", SECTION_FONT);
+    private static final Paragraph RISK_AREAS_HEADER = new Paragraph("Areas of Attention", SECTION_FONT);
+    private static final Paragraph RECOMMENDATIONS_HEADER = new Paragraph("Personalized Recommendations", SECTION_FONT);
+    private static final Paragraph CHARTS_HEADER = new Paragraph("Symptom Severity", SECTION_FONT);
+    private static final Paragraph APPENDIX_HEADER = new Paragraph("Appendix: Symptom Entries", SECTION_FONT);
+    private static final Paragraph DISCLAIMER_HEADER = new Paragraph("Medical Disclaimer", SUBSECTION_FONT);
+    private static final Paragraph DISCLAIMER = disclaimer();
+    private static final Paragraph FOOTER = footer();
+
+    /**
+     * Version of the document layout, part of the entity tag of streamed downloads. Bump it
+     * with any change to what a render of the same report produces.
+     */
+    static final int LAYOUT_VERSION = 1;
+
+    private static final byte[] TRAILER_ID = "/ID [<".getBytes(StandardCharsets.US_ASCII);
+    private static final int ID_HEX_LENGTH = 32;
+    // The trailer dictionary and startxref footer fit comfortably in this many trailing bytes
+    private static final int TRAILER_SEARCH_BYTES = 4 * 1024;
 
-    @Value("${medmuse.storage.pdf.directory}")
-    private String pdfDirectory;
+    private static final float[] APPENDIX_WIDTHS = {13, 8, 27, 10, 42};
+    private static final int APPENDIX_BATCH_SIZE = 500;
 
-    public String generatePdf(Report report) throws DocumentException, IOException {
+    private final PdfStore pdfStore;
+    private final SymptomEntryRepository symptomEntryRepository;
+    private final SeverityChartRenderer chartRenderer;
 
-        Path directory = Paths.get(pdfDirectory);
-        if (!Files.exists(directory)) {
-            Files.createDirectories(directory);
+    public PdfService(PdfStore pdfStore, SymptomEntryRepository symptomEntryRepository,
+            SeverityChartRenderer chartRenderer) {
+        this.pdfStore = pdfStore;
+        this.symptomEntryRepository = symptomEntryRepository;
+        this.chartRenderer = chartRenderer;
+    }
+
+    /**
+     * Renders the report to a temporary file and stores it by content, so the document is
+     * never held in memory as a whole. While the report and its period's entries are
+     * unchanged, renders are byte-identical and resolve to the object that is already stored.
+     */
+    public PdfStore.StoredPdf generatePdf(Report report) throws DocumentException, IOException {
+        Path pdf = Files.createTempFile("medmuse-report-", ".pdf");
+        try {
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(pdf))) {
+                renderPdf(report, outputStream);
+            }
+            deriveDocumentId(pdf);
+            return pdfStore.put(pdf);
+        } finally {
+            Files.deleteIfExists(pdf);
         }
+    }
 
-        String safeTimestamp = LocalDateTime.now().toString().replace(":", "-");
-        String filename = String.format("health-report_%s_%s_%d.pdf",
-                report.getUser().getName().replaceAll("[^a-zA-Z0-9_\\- ]", "_"),
-                safeTimestamp,
-                report.getId());
+    @Override
+    public MediaType mediaType() {
+        return MediaType.APPLICATION_PDF;
+    }
 
-        Path filePath = directory.resolve(filename);
+    @Override
+    public void render(Report report, OutputStream outputStream) throws DocumentException {
+        renderPdf(report, outputStream);
+    }
 
+    /**
+     * Writes the report PDF to the given stream as it is laid out. The stream is left open
+     * for the caller, so it can be a servlet response.
+     */
+    public void renderPdf(Report report, OutputStream outputStream) throws DocumentException {
         Document document = new Document();
-        PdfWriter.getInstance(document, new FileOutputStream(filePath.toFile()));
+        PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+        writer.setCloseStream(false);
+
+        // Dated by the report rather than the render so re-renders of the same report match
+        PdfDate generatedAt = new PdfDate(GregorianCalendar.from(report.getGeneratedAt().atZone(ZoneId.systemDefault())));
+        writer.getInfo().put(PdfName.CREATIONDATE, generatedAt);
+        writer.getInfo().put(PdfName.MODDATE, generatedAt);
 
         document.open();
 
@@ -51,116 +170,314 @@ public class PdfService {
         addHealthSummary(document, report);
         addRiskAreas(document, report);
         addRecommendations(document, report);
+        Long userId = report.getUser() != null ? report.getUser().getId() : null;
+        if (userId != null) {
+            addSeverityCharts(document, report, userId);
+            addEntryAppendix(document, report, userId);
+        }
         addDisclaimer(document);
         addFooter(document);
 
         document.close();
-
-        return filePath.toString();
     }
 
     private void addHeader(Document document, Report report) throws DocumentException {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMMM dd, yyyy");
-
-        Paragraph title = new Paragraph("MedMuse Health Report",
-                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 24));
-        title.setAlignment(Element.ALIGN_CENTER);
-        document.add(title);
+        document.add(TITLE);
 
         Paragraph period = new Paragraph(
-                String.format("Report Period: %s - %s",
-                        report.getWeekStartDate().format(formatter),
-                        report.getWeekEndDate().format(formatter)),
-                FontFactory.getFont(FontFactory.HELVETICA, 12));
+                "Report Period: " + report.getWeekStartDate().format(PERIOD_FORMATTER)
+                        + " - " + report.getWeekEndDate().format(PERIOD_FORMATTER),
+                BODY_FONT);
         period.setAlignment(Element.ALIGN_CENTER);
         document.add(period);
 
         Paragraph generated = new Paragraph(
-                String.format("Generated on: %s",
-                        report.getGeneratedAt().format(DateTimeFormatter.ofPattern("MMMM dd, yyyy 'at' HH:mm"))),
-                FontFactory.getFont(FontFactory.HELVETICA, 10));
+                "Generated on: " + report.getGeneratedAt().format(GENERATED_FORMATTER),
+                SMALL_FONT);
         generated.setAlignment(Element.ALIGN_CENTER);
         generated.setSpacingAfter(20f);
         document.add(generated);
     }
 
     private void addHealthSummary(Document document, Report report) throws DocumentException {
-        Paragraph header = new Paragraph("Health Summary",
-                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16));
-        document.add(header);
+        document.add(HEALTH_SUMMARY_HEADER);
 
         String[] paragraphs = report.getHealthSummary().split("\n\n");
         for (String paragraph : paragraphs) {
             if (!paragraph.trim().isEmpty()) {
-                Paragraph p = new Paragraph(paragraph.trim(),
-                        FontFactory.getFont(FontFactory.HELVETICA, 12));
+                Paragraph p = new Paragraph(paragraph.trim(), BODY_FONT);
                 p.setSpacingAfter(5f);
                 document.add(p);
             }
         }
-        document.add(new Paragraph("\n"));
+        document.add(BLANK_LINE);
     }
 
     private void addRiskAreas(Document document, Report report) throws DocumentException {
         if (report.getRiskAreas() != null && !report.getRiskAreas().trim().isEmpty()) {
-            Paragraph header = new Paragraph("Areas of Attention",
-                    FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16));
-            document.add(header);
+            document.add(RISK_AREAS_HEADER);
 
             String[] items = report.getRiskAreas().split("\n");
             for (String item : items) {
                 if (!item.trim().isEmpty()) {
-                    Paragraph bullet = new Paragraph("• " + item.trim(),
-                            FontFactory.getFont(FontFactory.HELVETICA, 12));
+                    Paragraph bullet = new Paragraph("• " + item.trim(), BODY_FONT);
                     bullet.setIndentationLeft(20f);
                     bullet.setSpacingAfter(3f);
                     document.add(bullet);
                 }
             }
-            document.add(new Paragraph("\n"));
+            document.add(BLANK_LINE);
         }
     }
 
     private void addRecommendations(Document document, Report report) throws DocumentException {
-        Paragraph header = new Paragraph("Personalized Recommendations",
-                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16));
-        document.add(header);
+        document.add(RECOMMENDATIONS_HEADER);
 
         String[] items = report.getRecommendations().split("\n");
         for (String item : items) {
             if (!item.trim().isEmpty()) {
-                Paragraph bullet = new Paragraph("• " + item.trim(),
-                        FontFactory.getFont(FontFactory.HELVETICA, 12));
+                Paragraph bullet = new Paragraph("• " + item.trim(), BODY_FONT);
                 bullet.setIndentationLeft(20f);
                 bullet.setSpacingAfter(3f);
                 document.add(bullet);
             }
         }
-        document.add(new Paragraph("\n"));
+        document.add(BLANK_LINE);
+    }
+
+    private void addSeverityCharts(Document document, Report report, Long userId) throws DocumentException {
+        List<SeverityPoint> points = symptomEntryRepository.findSeverityPoints(userId, report.getWeekStartDate(),
+                report.getWeekEndDate(), report.getGeneratedAt());
+        if (points.isEmpty()) {
+            return;
+        }
+
+        document.newPage();
+        document.add(CHARTS_HEADER);
+        Paragraph legend = new Paragraph("Bars show the highest severity of each day, the line the daily mean "
+                + "(scale 0-" + SeverityChartRenderer.MAX_SEVERITY + ").", AXIS_FONT);
+        legend.setSpacingAfter(10f);
+        document.add(legend);
+
+        // Points arrive grouped by symptom and ordered by date within each symptom
+        int from = 0;
+        for (int i = 1; i <= points.size(); i++) {
+            if (i == points.size() || !sameSymptom(points.get(from), points.get(i))) {
+                addSeverityChart(document, report, points.subList(from, i));
+                from = i;
+            }
+        }
+        document.add(BLANK_LINE);
+    }
+
+    private void addSeverityChart(Document document, Report report, List<SeverityPoint> points)
+            throws DocumentException {
+        SeverityPoint first = points.get(0);
+        long entries = 0;
+        int peak = 0;
+        double total = 0;
+        for (SeverityPoint point : points) {
+            entries += point.entries();
+            peak = Math.max(peak, point.maxSeverity());
+            total += point.averageSeverity() * point.entries();
+        }
+
+        String name = first.symptomName() != null ? first.symptomName() : "Custom symptoms";
+        Paragraph title = new Paragraph(String.format("%s - %d %s, peak %d, mean %.1f", name, entries,
+                entries == 1 ? "entry" : "entries", peak, total / entries), SUBSECTION_FONT);
+        title.setKeepTogether(true);
+        document.add(title);
+
+        byte[] png = chartRenderer.render(report.getId(), first.symptomId(), points, report.getWeekStartDate(),
+                report.getWeekEndDate());
+        Image chart;
+        try {
+            chart = Image.getInstance(png);
+        } catch (IOException e) {
+            throw new DocumentException(e);
+        }
+        chart.scaleToFit(document.right() - document.left(), 140f);
+        document.add(chart);
+
+        Paragraph axis = new Paragraph(report.getWeekStartDate().format(AXIS_FORMATTER) + " - "
+                + report.getWeekEndDate().format(AXIS_FORMATTER), AXIS_FONT);
+        axis.setAlignment(Element.ALIGN_CENTER);
+        axis.setSpacingAfter(12f);
+        document.add(axis);
+    }
+
+    private static boolean sameSymptom(SeverityPoint a, SeverityPoint b) {
+        return Objects.equals(a.symptomId(), b.symptomId());
+    }
+
+    private void addEntryAppendix(Document document, Report report, Long userId) throws DocumentException {
+        LocalDate afterDate = report.getWeekStartDate().minusDays(1);
+        LocalTime afterTime = LocalTime.MIN;
+        Long afterId = 0L;
+
+        PdfPTable table = null;
+        List<AppendixRow> batch;
+        do {
+            batch = symptomEntryRepository.findAppendixRowsAfter(userId, report.getWeekStartDate(),
+                    report.getWeekEndDate(), report.getGeneratedAt(), afterDate, afterTime, afterId,
+                    Limit.of(APPENDIX_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            if (table == null) {
+                document.newPage();
+                document.add(APPENDIX_HEADER);
+                table = appendixTable();
+            }
+            for (AppendixRow row : batch) {
+                table.addCell(appendixCell(row.entryDate().format(ENTRY_DATE_FORMATTER)));
+                table.addCell(appendixCell(row.entryTime().format(ENTRY_TIME_FORMATTER)));
+                table.addCell(appendixCell(symptomLabel(row)));
+                table.addCell(appendixCell(String.valueOf(row.severity())));
+                table.addCell(appendixCell(row.notes() != null ? row.notes().trim() : ""));
+            }
+
+            // Writes the rows laid out so far and drops them from the table
+            document.add(table);
+
+            AppendixRow last = batch.get(batch.size() - 1);
+            afterDate = last.entryDate();
+            afterTime = last.entryTime();
+            afterId = last.id();
+        } while (batch.size() == APPENDIX_BATCH_SIZE);
+
+        if (table != null) {
+            table.setComplete(true);
+            document.add(table);
+            document.add(BLANK_LINE);
+        }
+    }
+
+    private static PdfPTable appendixTable() throws DocumentException {
+        PdfPTable table = new PdfPTable(APPENDIX_WIDTHS);
+        table.setWidthPercentage(100);
+        table.setSpacingBefore(10f);
+        table.setHeaderRows(1);
+        table.setComplete(false);
+        for (String header : new String[] {"Date", "Time", "Symptom", "Severity", "Notes"}) {
+            PdfPCell cell = new PdfPCell(new Phrase(header, TABLE_HEADER_FONT));
+            cell.setBackgroundColor(BaseColor.LIGHT_GRAY);
+            cell.setPadding(4f);
+            table.addCell(cell);
+        }
+        return table;
+    }
+
+    private static PdfPCell appendixCell(String text) {
+        PdfPCell cell = new PdfPCell(new Phrase(text, TABLE_FONT));
+        cell.setPadding(3f);
+        return cell;
+    }
+
+    private static String symptomLabel(AppendixRow row) {
+        if (row.symptomName() != null) {
+            return row.symptomName();
+        }
+        String description = row.customDescription();
+        return description != null && !description.isBlank() ? "Custom: " + description.trim() : "Custom symptom";
     }
 
     private void addDisclaimer(Document document) throws DocumentException {
-        Paragraph header = new Paragraph("Medical Disclaimer",
-                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14));
-        document.add(header);
-
-        Paragraph disclaimer = new Paragraph(
-                "This report is generated by AI for informational and educational purposes only. "
-                + "It should not be used as a substitute for professional medical advice, diagnosis, or treatment. "
-                + "Always consult with a qualified healthcare provider before making any healthcare decisions or "
-                + "for guidance about a specific medical condition.",
-                new Font(Font.FontFamily.HELVETICA, 10, Font.ITALIC, BaseColor.DARK_GRAY)
-        );
+        document.add(DISCLAIMER_HEADER);
+        document.add(DISCLAIMER);
+    }
+
+    private void addFooter(Document document) throws DocumentException {
+        document.add(FOOTER);
+    }
+
+    /**
+     * Replaces the random file identifier iText writes into the trailer with an MD5 of the
+     * document, as the PDF specification suggests. The identifier has a fixed width and
+     * follows the cross-reference table, so no offsets move. Only the trailer is read into
+     * memory; the digest streams over the file.
+     */
+    static void deriveDocumentId(Path pdf) throws IOException {
+        try (FileChannel channel = FileChannel.open(pdf, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long tailStart = Math.max(0, size - TRAILER_SEARCH_BYTES);
+            byte[] tail = new byte[(int) (size - tailStart)];
+            readFully(channel, ByteBuffer.wrap(tail), tailStart);
+
+            int start = lastIndexOf(tail, TRAILER_ID);
+            if (start < 0) {
+                return;
+            }
+
+            int first = start + TRAILER_ID.length;
+            int second = first + ID_HEX_LENGTH + 2;
+            if (second + ID_HEX_LENGTH > tail.length) {
+                return;
+            }
+
+            byte[] zeros = new byte[ID_HEX_LENGTH];
+            Arrays.fill(zeros, (byte) '0');
+            channel.write(ByteBuffer.wrap(zeros), tailStart + first);
+            channel.write(ByteBuffer.wrap(zeros), tailStart + second);
+
+            MessageDigest md5;
+            try {
+                md5 = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("MD5 not available", e);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (long position = 0; position < size; ) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                buffer.flip();
+                md5.update(buffer);
+                position += read;
+            }
+
+            byte[] id = HexFormat.of().formatHex(md5.digest()).getBytes(StandardCharsets.US_ASCII);
+            channel.write(ByteBuffer.wrap(id), tailStart + first);
+            channel.write(ByteBuffer.wrap(id), tailStart + second);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("PDF ended while reading its trailer");
+            }
+        }
+    }
+
+    private static int lastIndexOf(byte[] bytes, byte[] pattern) {
+        for (int i = bytes.length - pattern.length; i >= 0; i--) {
+            if (Arrays.equals(bytes, i, i + pattern.length, pattern, 0, pattern.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Paragraph centered(Paragraph paragraph) {
+        paragraph.setAlignment(Element.ALIGN_CENTER);
+        return paragraph;
+    }
+
+    private static Paragraph disclaimer() {
+        Paragraph disclaimer = new Paragraph(DISCLAIMER_TEXT, DISCLAIMER_FONT);
         disclaimer.setSpacingBefore(5f);
         disclaimer.setSpacingAfter(20f);
-        document.add(disclaimer);
+        return disclaimer;
     }
 
-    private void addFooter(Document document) throws DocumentException {
-        Paragraph footer = new Paragraph("Generated by MedMuse Healthcare Platform",
-                FontFactory.getFont(FontFactory.HELVETICA, 10));
-        footer.setAlignment(Element.ALIGN_CENTER);
+    private static Paragraph footer() {
+        Paragraph footer = centered(new Paragraph(FOOTER_TEXT, SMALL_FONT));
         footer.setSpacingBefore(30f);
-        document.add(footer);
+        return footer;
     }
 }
@@ -0,0 +1,173 @@
+package com.medmuse.medmuse_backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.medmuse.medmuse_backend.config.ReportCacheProperties;
+import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.entity.User;
+import com.medmuse.medmuse_backend.repository.EntryWatermark;
+import com.medmuse.medmuse_backend.repository.ReportRepository;
+import com.medmuse.medmuse_backend.repository.SymptomEntryRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Finds an existing report generated from exactly the same inputs so it can be returned
+ * instead of calling the AI provider again.
+ *
+ * <p>The persisted cache key hashes the user, period, normalized symptom filter, the
+ * demographics version and the symptom entry watermark of the period, so it stays correct
+ * across restarts and nodes. In front of it a per-node map from request to report skips
+ * the watermark query on repeat requests; entries are dropped on any symptom or
+ * demographics write on this node and expire after {@code localTtl} for writes made
+ * elsewhere.
+ */
+@Service
+public class ReportCacheService {
+
+    public record RequestKey(Long userId, LocalDate startDate, LocalDate endDate, List<Long> symptomIds) {
+    }
+
+    public record Lookup(RequestKey requestKey, String cacheKey, Report report) {
+
+        public boolean hit() {
+            return report != null;
+        }
+    }
+
+    private record LocalEntry(Long reportId, String cacheKey, Instant expiresAt) {
+    }
+
+    private final ReportRepository reportRepository;
+    private final SymptomEntryRepository symptomEntryRepository;
+    private final ReportCacheProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final Map<RequestKey, LocalEntry> localEntries = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReportCacheService(ReportRepository reportRepository,
+            SymptomEntryRepository symptomEntryRepository,
+            ReportCacheProperties properties,
+            MeterRegistry meterRegistry) {
+        this(reportRepository, symptomEntryRepository, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    ReportCacheService(ReportRepository reportRepository,
+            SymptomEntryRepository symptomEntryRepository,
+            ReportCacheProperties properties,
+            MeterRegistry meterRegistry,
+            Clock clock) {
+        this.reportRepository = reportRepository;
+        this.symptomEntryRepository = symptomEntryRepository;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    public Lookup lookup(User user, LocalDate startDate, LocalDate endDate, List<Long> symptomIds) {
+        RequestKey requestKey = new RequestKey(user.getId(), startDate, endDate,
+                symptomIds.stream().sorted().toList());
+
+        if (properties.isEnabled()) {
+            LocalEntry local = localEntries.get(requestKey);
+            if (local != null && local.expiresAt().isAfter(clock.instant())) {
+                Optional<Report> report = reportRepository.findByIdAndUserId(local.reportId(), user.getId());
+                if (report.isPresent()) {
+                    count("local");
+                    return new Lookup(requestKey, local.cacheKey(), report.get());
+                }
+            }
+            localEntries.remove(requestKey);
+        }
+
+        String cacheKey = cacheKey(user, requestKey);
+        if (!properties.isEnabled()) {
+            return new Lookup(requestKey, cacheKey, null);
+        }
+
+        Optional<Report> report = reportRepository.findFirstByUserIdAndCacheKeyOrderByGeneratedAtDesc(user.getId(),
+                cacheKey);
+        report.ifPresent(existing -> remember(requestKey, cacheKey, existing));
+        count(report.isPresent() ? "stored" : "miss");
+        return new Lookup(requestKey, cacheKey, report.orElse(null));
+    }
+
+    public void remember(Lookup lookup, Report report) {
+        if (properties.isEnabled()) {
+            remember(lookup.requestKey(), lookup.cacheKey(), report);
+        }
+    }
+
+    public void invalidate(Long userId) {
+        evict(userId);
+
+        // A lookup running before the write commits could otherwise re-cache the old report
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    private void evict(Long userId) {
+        localEntries.keySet().removeIf(key -> key.userId().equals(userId));
+    }
+
+    private void remember(RequestKey requestKey, String cacheKey, Report report) {
+        if (localEntries.size() >= properties.getMaxLocalEntries()) {
+            Instant now = clock.instant();
+            localEntries.values().removeIf(entry -> !entry.expiresAt().isAfter(now));
+            if (localEntries.size() >= properties.getMaxLocalEntries()) {
+                return;
+            }
+        }
+        localEntries.put(requestKey,
+                new LocalEntry(report.getId(), cacheKey, clock.instant().plus(properties.getLocalTtl())));
+    }
+
+    private String cacheKey(User user, RequestKey requestKey) {
+        EntryWatermark watermark = symptomEntryRepository.findWatermark(
+                user.getId(), requestKey.startDate(), requestKey.endDate());
+        Long demographicsVersion = user.getDemographics() != null ? user.getDemographics().getVersion() : null;
+
+        String source = String.join("|",
+                String.valueOf(user.getId()),
+                String.valueOf(requestKey.startDate()),
+                String.valueOf(requestKey.endDate()),
+                requestKey.symptomIds().stream().map(String::valueOf).collect(Collectors.joining(",")),
+                String.valueOf(demographicsVersion),
+                watermark != null ? String.valueOf(watermark.entryCount()) : "0",
+                watermark != null ? String.valueOf(watermark.lastModified()) : "null");
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("medmuse.report.cache.lookups", "result", result).increment();
+    }
+}
@@ -0,0 +1,164 @@
+package com.medmuse.medmuse_backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itextpdf.text.DocumentException;
+import com.medmuse.medmuse_backend.config.PdfStorageProperties;
+import com.medmuse.medmuse_backend.repository.ReportExportEntry;
+import com.medmuse.medmuse_backend.repository.ReportRepository;
+import com.medmuse.medmuse_backend.service.storage.PdfStore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Writes all of a user's reports as one ZIP: a {@code manifest.json} followed by one PDF
+ * per report, newest first. Reports are read in id-ordered batches of their metadata only,
+ * stored PDFs are copied from the store as they are read, and missing PDFs are rendered one
+ * at a time, so memory use does not grow with the number of reports.
+ */
+@Service
+public class ReportExportService {
+
+    static final int BATCH_SIZE = 50;
+    static final String MANIFEST = "manifest.json";
+
+    private final ReportRepository reportRepository;
+    private final ReportPdfService reportPdfService;
+    private final PdfStore pdfStore;
+    private final PdfStorageProperties pdfStorageProperties;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final MeterRegistry meterRegistry;
+
+    @FunctionalInterface
+    private interface EntryWriter {
+        void write(ReportExportEntry entry) throws DocumentException, IOException;
+    }
+
+    public ReportExportService(ReportRepository reportRepository, ReportPdfService reportPdfService,
+            PdfStore pdfStore, PdfStorageProperties pdfStorageProperties, ObjectMapper objectMapper,
+            EntityManager entityManager, MeterRegistry meterRegistry) {
+        this.reportRepository = reportRepository;
+        this.reportPdfService = reportPdfService;
+        this.pdfStore = pdfStore;
+        this.pdfStorageProperties = pdfStorageProperties;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Streams the export into the given stream and finishes the archive without closing the
+     * stream, so it can be a servlet response.
+     */
+    public void export(Long userId, OutputStream outputStream) throws DocumentException, IOException {
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+        // Report PDFs are already deflated; spend as little CPU as possible recompressing them
+        zip.setLevel(Deflater.BEST_SPEED);
+
+        // Both passes stop at the same report, so reports generated mid-export appear in neither
+        long beforeId = reportRepository.findMaxIdByUserId(userId).map(id -> id + 1).orElse(0L);
+
+        zip.putNextEntry(new ZipEntry(MANIFEST));
+        writeManifest(userId, beforeId, zip);
+        zip.closeEntry();
+
+        forEachReport(userId, beforeId, entry -> {
+            zip.putNextEntry(new ZipEntry(
+                    ReportPdfService.filename(entry.id(), entry.weekStartDate(), entry.weekEndDate())));
+            writePdf(userId, entry, zip);
+            zip.closeEntry();
+        });
+
+        zip.finish();
+    }
+
+    private void writeManifest(Long userId, long beforeId, OutputStream outputStream)
+            throws DocumentException, IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(outputStream)) {
+            // Closing the generator ends the entry, not the archive
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+            json.writeStringField("exportedAt", Instant.now().toString());
+            json.writeArrayFieldStart("reports");
+            forEachReport(userId, beforeId, entry -> {
+                json.writeStartObject();
+                json.writeNumberField("id", entry.id());
+                json.writeStringField("file",
+                        ReportPdfService.filename(entry.id(), entry.weekStartDate(), entry.weekEndDate()));
+                json.writeStringField("weekStartDate", String.valueOf(entry.weekStartDate()));
+                json.writeStringField("weekEndDate", String.valueOf(entry.weekEndDate()));
+                json.writeStringField("generatedAt", String.valueOf(entry.generatedAt()));
+                json.writeEndObject();
+            });
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    private void writePdf(Long userId, ReportExportEntry entry, OutputStream outputStream)
+            throws DocumentException, IOException {
+        Optional<PdfStore.StoredPdf> stored = entry.pdfPath() == null
+                ? Optional.empty()
+                : pdfStore.find(entry.pdfPath());
+        if (stored.isPresent()) {
+            copy(stored.get().resource().getInputStream(), outputStream);
+            record("stored");
+            return;
+        }
+
+        if (pdfStorageProperties.getMode() == PdfStorageProperties.Mode.STREAM) {
+            reportPdfService.streamPdf(userId, entry.id()).body().writeTo(outputStream);
+            record("streamed");
+        } else {
+            copy(reportPdfService.getPdf(userId, entry.id()).resource().getInputStream(), outputStream);
+            record("rendered");
+        }
+
+        // Rendering loaded the full report; with open-session-in-view it would otherwise stay
+        // in the request's persistence context until the export ends
+        entityManager.clear();
+    }
+
+    private void forEachReport(Long userId, long beforeId, EntryWriter writer)
+            throws DocumentException, IOException {
+        if (beforeId <= 0) {
+            return;
+        }
+
+        List<ReportExportEntry> batch;
+        do {
+            batch = reportRepository.findExportEntriesBefore(userId, beforeId, Limit.of(BATCH_SIZE));
+            for (ReportExportEntry entry : batch) {
+                writer.write(entry);
+            }
+            if (!batch.isEmpty()) {
+                beforeId = batch.get(batch.size() - 1).id();
+            }
+        } while (batch.size() == BATCH_SIZE);
+    }
+
+    private void copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        try (inputStream) {
+            inputStream.transferTo(outputStream);
+        }
+    }
+
+    private void record(String source) {
+        meterRegistry.counter("medmuse.report.export.pdfs", "source", source).increment();
+    }
+}
@@ -0,0 +1,142 @@
+package com.medmuse.medmuse_backend.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.medmuse.medmuse_backend.config.ReportJobProperties;
+import com.medmuse.medmuse_backend.dto.ReportDto;
+import com.medmuse.medmuse_backend.dto.ReportJobDto;
+import com.medmuse.medmuse_backend.exception.ReportJobRejectedException;
+import com.medmuse.medmuse_backend.exception.ResourceNotFoundException;
+import com.medmuse.medmuse_backend.service.interfaces.ReportServiceInterface;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@Slf4j
+public class ReportJobService {
+
+    private static final long REJECTED_RETRY_AFTER_SECONDS = 30;
+
+    private final ReportServiceInterface reportService;
+    private final ThreadPoolTaskExecutor executor;
+    private final ReportJobProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+
+    public ReportJobService(ReportServiceInterface reportService,
+                            @Qualifier("reportJobExecutor") ThreadPoolTaskExecutor executor,
+                            ReportJobProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.reportService = reportService;
+        this.executor = executor;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("medmuse.report.jobs.queue.depth", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("Report jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("medmuse.report.jobs.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Report jobs currently running")
+                .register(meterRegistry);
+    }
+
+    public ReportJobDto submitWeeklyReport(Long userId) {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(6);
+
+        return submit(userId, startDate, endDate, List.of());
+    }
+
+    public ReportJobDto submit(Long userId, LocalDate startDate, LocalDate endDate, List<Long> symptomIds) {
+        purgeExpiredJobs();
+
+        ReportJob job = new ReportJob(UUID.randomUUID().toString(), userId, startDate, endDate);
+        jobs.put(job.id, job);
+
+        try {
+            executor.execute(() -> run(job, symptomIds));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.id);
+            meterRegistry.counter("medmuse.report.jobs.rejected").increment();
+            throw new ReportJobRejectedException("Report generation queue is full, please retry later",
+                    REJECTED_RETRY_AFTER_SECONDS);
+        }
+
+        return job.toDto();
+    }
+
+    public ReportJobDto getJob(Long userId, String jobId) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null || !job.userId.equals(userId)) {
+            throw new ResourceNotFoundException("Report job", "id", jobId);
+        }
+
+        return job.toDto();
+    }
+
+    private void run(ReportJob job, List<Long> symptomIds) {
+        job.startedAt = LocalDateTime.now();
+        job.status = ReportJobDto.Status.RUNNING;
+        meterRegistry.timer("medmuse.report.jobs.wait")
+                .record(Duration.between(job.submittedAt, job.startedAt));
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "completed";
+        try {
+            job.report = reportService.generateReportForPeriod(job.userId, job.startDate, job.endDate, symptomIds);
+            job.status = ReportJobDto.Status.COMPLETED;
+        } catch (Exception e) {
+            outcome = "failed";
+            log.error("Report job {} failed for user {}: {}", job.id, job.userId, e.getMessage(), e);
+            job.error = "Report generation failed";
+            job.status = ReportJobDto.Status.FAILED;
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            sample.stop(meterRegistry.timer("medmuse.report.jobs.run", "outcome", outcome));
+        }
+    }
+
+    private void purgeExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getRetention());
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    private static final class ReportJob {
+        private final String id;
+        private final Long userId;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+
+        private volatile ReportJobDto.Status status = ReportJobDto.Status.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile ReportDto report;
+        private volatile String error;
+
+        private ReportJob(String id, Long userId, LocalDate startDate, LocalDate endDate) {
+            this.id = id;
+            this.userId = userId;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        private ReportJobDto toDto() {
+            return new ReportJobDto(id, status, startDate, endDate, submittedAt, startedAt, finishedAt, report, error);
+        }
+    }
+}
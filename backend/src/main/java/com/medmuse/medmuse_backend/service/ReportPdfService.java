@@ -0,0 +1,206 @@
+package com.medmuse.medmuse_backend.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.itextpdf.text.DocumentException;
+import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.exception.ResourceNotFoundException;
+import com.medmuse.medmuse_backend.repository.EntryWatermark;
+import com.medmuse.medmuse_backend.repository.ReportRepository;
+import com.medmuse.medmuse_backend.repository.SymptomEntryRepository;
+import com.medmuse.medmuse_backend.service.storage.PdfStore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Renders report PDFs on first download instead of during generation, since most reports
+ * are only read in the UI. The store key is recorded on the report and reused until the
+ * object disappears. Concurrent first downloads of the same report share one render.
+ * The content digest is stored alongside so downloads can be validated with a strong ETag.
+ * Files rendered into the flat directory before the store existed are imported on access.
+ *
+ * <p>In {@code STREAM} storage mode nothing is written to disk: each download renders the
+ * report text columns directly into the response.
+ */
+@Service
+public class ReportPdfService {
+
+    private final ReportRepository reportRepository;
+    private final PdfService pdfService;
+    private final PdfStore pdfStore;
+    private final SymptomEntryRepository symptomEntryRepository;
+    private final MeterRegistry meterRegistry;
+    private final Timer renderTimer;
+    private final ConcurrentHashMap<Long, CompletableFuture<PdfFile>> inFlight = new ConcurrentHashMap<>();
+
+    public record PdfFile(String filename, String digest, long length, Instant lastModified, Resource resource) {
+    }
+
+    @FunctionalInterface
+    public interface PdfBody {
+        void writeTo(OutputStream outputStream) throws DocumentException, IOException;
+    }
+
+    /**
+     * A PDF rendered while it is written. The bytes differ between renders (iText embeds a
+     * random document id), so the entity tag is weak. It covers everything the render reads:
+     * the report, the layout version and the watermark of the period's symptom entries.
+     */
+    public record PdfStream(String filename, String etag, Instant lastModified, PdfBody body) {
+    }
+
+    public ReportPdfService(ReportRepository reportRepository, PdfService pdfService, PdfStore pdfStore,
+            SymptomEntryRepository symptomEntryRepository, MeterRegistry meterRegistry) {
+        this.reportRepository = reportRepository;
+        this.pdfService = pdfService;
+        this.pdfStore = pdfStore;
+        this.symptomEntryRepository = symptomEntryRepository;
+        this.meterRegistry = meterRegistry;
+        this.renderTimer = meterRegistry.timer("medmuse.report.pdf.render");
+    }
+
+    @Transactional
+    public PdfFile getPdf(Long userId, Long reportId) throws DocumentException, IOException {
+        Report report = reportRepository.findByIdAndUserId(reportId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Report", "id", reportId));
+
+        PdfStore.StoredPdf existing = storedPdf(report);
+        if (existing != null) {
+            recordLookup("hit");
+            return describe(report, existing);
+        }
+
+        CompletableFuture<PdfFile> own = new CompletableFuture<>();
+        CompletableFuture<PdfFile> running = inFlight.putIfAbsent(reportId, own);
+        if (running != null) {
+            recordLookup("joined");
+            return await(running);
+        }
+
+        try {
+            recordLookup("rendered");
+            long startNanos = System.nanoTime();
+            PdfStore.StoredPdf stored = pdfService.generatePdf(report);
+            renderTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+
+            // Managed entity, flushed with the surrounding transaction
+            report.setPdfPath(stored.key());
+            report.setPdfDigest(stored.digest());
+            PdfFile pdf = describe(report, stored);
+            own.complete(pdf);
+            return pdf;
+        } catch (Throwable t) {
+            own.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(reportId, own);
+        }
+    }
+
+    private PdfStore.StoredPdf storedPdf(Report report) throws IOException {
+        String pdfPath = report.getPdfPath();
+        if (pdfPath == null || pdfPath.isBlank()) {
+            return null;
+        }
+
+        if (PdfStore.digestOf(pdfPath) != null) {
+            return pdfStore.find(pdfPath).orElse(null);
+        }
+
+        // Rendered into the flat directory before the store existed
+        Path legacy = Paths.get(pdfPath);
+        if (!Files.isReadable(legacy)) {
+            return null;
+        }
+
+        PdfStore.StoredPdf imported = pdfStore.put(legacy);
+        report.setPdfPath(imported.key());
+        report.setPdfDigest(imported.digest());
+        recordLookup("imported");
+        return imported;
+    }
+
+    @Transactional
+    public PdfStream streamPdf(Long userId, Long reportId) {
+        Report report = reportRepository.findByIdAndUserId(reportId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Report", "id", reportId));
+
+        Instant generatedAt = report.getGeneratedAt().atZone(ZoneId.systemDefault()).toInstant();
+        String filename = filename(report);
+
+        // Charts and appendix show the period's entries as they are now, so edits must change the tag
+        EntryWatermark watermark = symptomEntryRepository.findWatermark(userId, report.getWeekStartDate(),
+                report.getWeekEndDate());
+        long entryCount = watermark != null && watermark.entryCount() != null ? watermark.entryCount() : 0;
+        Instant entriesModified = watermark != null && watermark.lastModified() != null
+                ? watermark.lastModified().atZone(ZoneId.systemDefault()).toInstant()
+                : Instant.EPOCH;
+        Instant lastModified = entriesModified.isAfter(generatedAt) ? entriesModified : generatedAt;
+        String etag = "W/\"" + report.getId() + "-" + generatedAt.toEpochMilli() + "-v" + PdfService.LAYOUT_VERSION
+                + "-" + entryCount + "-" + entriesModified.toEpochMilli() + "\"";
+
+        recordLookup("streamed");
+        return new PdfStream(filename, etag, lastModified, outputStream -> {
+            long startNanos = System.nanoTime();
+            pdfService.renderPdf(report, outputStream);
+            renderTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    private PdfFile describe(Report report, PdfStore.StoredPdf stored) {
+        return new PdfFile(filename(report), stored.digest(), stored.length(), stored.lastModified(),
+                stored.resource());
+    }
+
+    private String filename(Report report) {
+        return filename(report.getId(), report.getWeekStartDate(), report.getWeekEndDate());
+    }
+
+    public static String filename(Long reportId, LocalDate weekStartDate, LocalDate weekEndDate) {
+        return String.format("health-report_%s_%s_%d.pdf", weekStartDate, weekEndDate, reportId);
+    }
+
+    private void recordLookup(String outcome) {
+        meterRegistry.counter("medmuse.report.pdf.requests", "outcome", outcome).increment();
+    }
+
+    private PdfFile await(CompletableFuture<PdfFile> future) throws DocumentException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the report PDF", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DocumentException documentException) {
+                throw documentException;
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+}
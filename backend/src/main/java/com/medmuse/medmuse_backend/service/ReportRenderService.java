@@ -0,0 +1,117 @@
+package com.medmuse.medmuse_backend.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import com.itextpdf.text.DocumentException;
+import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.exception.ResourceNotFoundException;
+import com.medmuse.medmuse_backend.repository.ReportRepository;
+import com.medmuse.medmuse_backend.service.interfaces.ReportRenderer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Renders reports with the {@link ReportRenderer} registered for the requested media type
+ * and keeps the output per report and format. Report text does not change once generated,
+ * so a cached rendering stays valid; a hit for the owning user needs no database access.
+ *
+ * <p>The cache is bounded by total size and least recently used renderings are dropped
+ * first. PDFs are served from the {@code PdfStore} by {@link ReportPdfService} instead, which
+ * is their cache.
+ */
+@Service
+public class ReportRenderService {
+
+    private static final long MAX_CACHED_BYTES = 16L * 1024 * 1024;
+    private static final int MAX_CACHED_RENDERING_BYTES = 512 * 1024;
+
+    public record RenderedReport(Long userId, MediaType mediaType, String etag, Instant lastModified, byte[] body) {
+    }
+
+    private record RenderKey(Long reportId, MediaType mediaType) {
+    }
+
+    private final ReportRepository reportRepository;
+    private final MeterRegistry meterRegistry;
+    private final Map<MediaType, ReportRenderer> renderers = new LinkedHashMap<>();
+    private final LinkedHashMap<RenderKey, RenderedReport> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+
+    public ReportRenderService(List<ReportRenderer> renderers, ReportRepository reportRepository,
+            MeterRegistry meterRegistry) {
+        renderers.forEach(renderer -> this.renderers.put(renderer.mediaType(), renderer));
+        this.reportRepository = reportRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public RenderedReport render(Long userId, Long reportId, MediaType mediaType)
+            throws DocumentException, IOException {
+        ReportRenderer renderer = renderers.get(mediaType);
+        if (renderer == null) {
+            throw new IllegalArgumentException("No report renderer for " + mediaType);
+        }
+
+        String format = mediaType.getSubtype();
+        RenderKey key = new RenderKey(reportId, mediaType);
+        RenderedReport cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached != null && cached.userId().equals(userId)) {
+            recordLookup(format, "hit");
+            return cached;
+        }
+
+        Report report = reportRepository.findByIdAndUserId(reportId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Report", "id", reportId));
+
+        long startNanos = System.nanoTime();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(16 * 1024);
+        renderer.render(report, outputStream);
+        meterRegistry.timer("medmuse.report.render", "format", format)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+
+        Instant generatedAt = report.getGeneratedAt().atZone(ZoneId.systemDefault()).toInstant();
+        RenderedReport rendered = new RenderedReport(userId, mediaType,
+                "W/\"" + report.getId() + "-" + format + "-" + generatedAt.toEpochMilli() + "\"",
+                generatedAt, outputStream.toByteArray());
+        remember(key, rendered);
+        recordLookup(format, "rendered");
+        return rendered;
+    }
+
+    private void remember(RenderKey key, RenderedReport rendered) {
+        if (rendered.body().length > MAX_CACHED_RENDERING_BYTES) {
+            return;
+        }
+
+        synchronized (cache) {
+            RenderedReport previous = cache.put(key, rendered);
+            if (previous != null) {
+                cachedBytes -= previous.body().length;
+            }
+            cachedBytes += rendered.body().length;
+
+            Iterator<Map.Entry<RenderKey, RenderedReport>> eldest = cache.entrySet().iterator();
+            while (cachedBytes > MAX_CACHED_BYTES && eldest.hasNext()) {
+                cachedBytes -= eldest.next().getValue().body().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    private void recordLookup(String format, String outcome) {
+        meterRegistry.counter("medmuse.report.render.requests", "format", format, "outcome", outcome).increment();
+    }
+}
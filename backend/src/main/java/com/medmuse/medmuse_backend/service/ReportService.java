@@ -5,25 +5,36 @@ import com.medmuse.medmuse_backend.dto.*;
 import com.medmuse.medmuse_backend.entity.Report;
 import com.medmuse.medmuse_backend.entity.Symptom;
 import com.medmuse.medmuse_backend.entity.User;
-import com.medmuse.medmuse_backend.entity.UserDemographics;
-import com.medmuse.medmuse_backend.entity.SymptomEntry;
+import com.medmuse.medmuse_backend.exception.AiUnavailableException;
+import com.medmuse.medmuse_backend.mapper.DtoMapper;
 import com.medmuse.medmuse_backend.repository.ReportRepository;
 import com.medmuse.medmuse_backend.repository.SymptomEntryRepository;
 import com.medmuse.medmuse_backend.repository.SymptomRepository;
 import com.medmuse.medmuse_backend.repository.UserRepository;
 import com.medmuse.medmuse_backend.service.ai.AIServiceInterface;
+import com.medmuse.medmuse_backend.service.ai.HealthAnalysisStreamHandler;
+import com.medmuse.medmuse_backend.service.interfaces.ReportRequestCoalescer;
 import com.medmuse.medmuse_backend.service.interfaces.ReportServiceInterface;
+import com.medmuse.medmuse_backend.service.interfaces.ReportStreamListener;
+import com.medmuse.medmuse_backend.util.PageCursor;
 
-import jakarta.transaction.Transactional;
+import io.micrometer.core.instrument.MeterRegistry;
 
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -33,60 +44,274 @@ import java.util.stream.Collectors;
 @Transactional
 public class ReportService implements ReportServiceInterface {
 
+    private static final long UNUSABLE_RESPONSE_RETRY_SECONDS = 30;
+
+    private record PreparedAnalysis(User user, ReportCacheService.Lookup cached, HealthAnalysisRequest request) {
+    }
+
     private final AIServiceInterface aiService;
     private final ReportRepository reportRepository;
     private final UserRepository userRepository;
     private final SymptomEntryRepository symptomEntryRepository;
     private final SymptomRepository symptomRepository;
-    private final PdfService pdfService;
-    private final ModelMapper modelMapper;
+    private final ReportCacheService reportCacheService;
+    private final ReportRequestCoalescer reportRequestCoalescer;
+    private final DtoMapper dtoMapper;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
 
     public ReportService(AIServiceInterface aiService,
             ReportRepository reportRepository,
             UserRepository userRepository,
             SymptomEntryRepository symptomEntryRepository,
             SymptomRepository symptomRepository,
-            PdfService pdfService,
-            ModelMapper modelMapper) {
+            ReportCacheService reportCacheService,
+            ReportRequestCoalescer reportRequestCoalescer,
+            DtoMapper dtoMapper,
+            MeterRegistry meterRegistry,
+            PlatformTransactionManager transactionManager) {
         this.aiService = aiService;
         this.reportRepository = reportRepository;
         this.userRepository = userRepository;
         this.symptomEntryRepository = symptomEntryRepository;
         this.symptomRepository = symptomRepository;
-        this.pdfService = pdfService;
-        this.modelMapper = modelMapper;
+        this.reportCacheService = reportCacheService;
+        this.reportRequestCoalescer = reportRequestCoalescer;
+        this.dtoMapper = dtoMapper;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ReportDto generateReportForPeriod(Long userId, LocalDate startDate, LocalDate endDate) throws DocumentException, IOException {
         return generateReportForPeriod(userId, startDate, endDate, List.of());
     }
 
+    // Coalesced outside a transaction: waiters hold no connection, and the leader only hands
+    // its report over once the save has committed
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ReportDto generateReportForPeriod(Long userId, LocalDate startDate, LocalDate endDate, List<Long> symptomIds)
             throws DocumentException, IOException {
+        List<Long> normalizedSymptomIds = normalizeSymptomIds(symptomIds);
+        ReportRequestCoalescer.Key key = new ReportRequestCoalescer.Key(userId, startDate, endDate,
+                normalizedSymptomIds.stream().sorted().toList());
+
+        return reportRequestCoalescer.coalesce(key,
+                () -> generateReport(userId, startDate, endDate, normalizedSymptomIds));
+    }
+
+    // Three steps so no pooled connection is held while the provider call waits in the
+    // bulkhead queue or runs: read-only reads, the call itself, then the save
+    private ReportDto generateReport(Long userId, LocalDate startDate, LocalDate endDate,
+            List<Long> normalizedSymptomIds) {
+        Map<String, Long> stageMillis = new LinkedHashMap<>();
+        PreparedAnalysis prepared = readOnlyTransaction.execute(
+                status -> prepareAnalysis(userId, startDate, endDate, normalizedSymptomIds, stageMillis));
+        ReportCacheService.Lookup cached = prepared.cached();
+        if (cached.hit()) {
+            recordOutcome("cached");
+            return dtoMapper.toDto(cached.report());
+        }
+
+        long stageStart = System.nanoTime();
+        HealthAnalysisResponse response;
+        try {
+            response = aiService.analyzeHealthData(prepared.request());
+        } catch (AiUnavailableException e) {
+            recordStage(stageMillis, "ai-analysis", stageStart);
+            return lastGoodReport(userId, e);
+        }
+        recordStage(stageMillis, "ai-analysis", stageStart);
+
+        if (response.isFallback()) {
+            return lastGoodReport(userId, unparseableResponse(response));
+        }
+        return persistReport(prepared, startDate, endDate, response, stageMillis);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void streamReportForPeriod(Long userId, LocalDate startDate, LocalDate endDate, List<Long> symptomIds,
+            ReportStreamListener listener) {
+        Map<String, Long> stageMillis = new LinkedHashMap<>();
+        List<Long> normalizedSymptomIds = normalizeSymptomIds(symptomIds);
+        PreparedAnalysis prepared = readOnlyTransaction.execute(
+                status -> prepareAnalysis(userId, startDate, endDate, normalizedSymptomIds, stageMillis));
+        if (prepared.cached().hit()) {
+            recordOutcome("cached");
+            listener.onReport(dtoMapper.toDto(prepared.cached().report()));
+            return;
+        }
+
+        HealthAnalysisRequest request = prepared.request();
+        long analysisStart = System.nanoTime();
+
+        HealthAnalysisStreamHandler handler = new HealthAnalysisStreamHandler() {
+            @Override
+            public void onPartial(String field, String text) {
+                listener.onPartial(field, text);
+            }
+
+            @Override
+            public void onComplete(HealthAnalysisResponse response) {
+                recordStage(stageMillis, "ai-analysis", analysisStart);
+                try {
+                    listener.onReport(response.isFallback()
+                            ? lastGoodReport(userId, unparseableResponse(response))
+                            : persistReport(prepared, startDate, endDate, response, stageMillis));
+                } catch (RuntimeException e) {
+                    listener.onError(e);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                recordStage(stageMillis, "ai-analysis", analysisStart);
+                if (!(error instanceof AiUnavailableException unavailable)) {
+                    listener.onError(error);
+                    return;
+                }
+                try {
+                    listener.onReport(lastGoodReport(userId, unavailable));
+                } catch (RuntimeException e) {
+                    listener.onError(e);
+                }
+            }
+        };
+
+        try {
+            aiService.streamHealthData(request, handler);
+        } catch (AiUnavailableException e) {
+            // The circuit breaker can turn the call away before the stream starts
+            recordStage(stageMillis, "ai-analysis", analysisStart);
+            listener.onReport(lastGoodReport(userId, e));
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ReportDto generateWeeklyReport(Long id) throws DocumentException, IOException {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(6);
+
+        return generateReportForPeriod(id, startDate, endDate, List.of());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ReportDto> getUserReports(Long id) {
+        return reportRepository.findReportDtosByUserId(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<ReportDto> getUserReports(Long id, Pageable pageable) {
+        return reportRepository.findReportDtosByUserId(id, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<ReportDto> getUserReports(Long id, String cursor, int size, boolean includeTotal) {
+        int pageSize = PageCursor.clampPageSize(size);
+        Limit limit = Limit.of(pageSize + 1);
+        List<ReportDto> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = reportRepository.findReportDtosByUserId(id, limit);
+        } else {
+            String[] keys = PageCursor.decode(cursor, 2);
+            try {
+                rows = reportRepository.findReportDtosBefore(id, LocalDateTime.parse(keys[0]), Long.valueOf(keys[1]),
+                        limit);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw PageCursor.invalid();
+            }
+        }
+        Long total = includeTotal ? reportRepository.countByUserId(id) : null;
+        return CursorPage.of(rows, pageSize, report -> PageCursor.encode(report.getGeneratedAt(), report.getId()),
+                total);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ReportDto getReportById(Long id, Long reportId) {
+        return reportRepository.findReportDtoByIdAndUserId(reportId, id)
+                .orElseThrow(() -> new RuntimeException("Report not found: " + reportId));
+    }
+
+    /**
+     * Returns the user's most recent report marked for regeneration instead of persisting
+     * placeholder text when the AI provider could not produce a usable analysis.
+     */
+    private ReportDto lastGoodReport(Long userId, AiUnavailableException cause) {
+        Report report = reportRepository.findFirstByUserIdOrderByGeneratedAtDesc(userId)
+                .orElseThrow(() -> cause);
+
+        recordOutcome("last-good");
+        ReportDto dto = dtoMapper.toDto(report);
+        dto.setRegenerateLater(true);
+        return dto;
+    }
+
+    private AiUnavailableException unparseableResponse(HealthAnalysisResponse response) {
+        return new AiUnavailableException(response.getAiProvider(), "Provider returned an unusable response",
+                UNUSABLE_RESPONSE_RETRY_SECONDS);
+    }
+
+    private PreparedAnalysis prepareAnalysis(Long userId, LocalDate startDate, LocalDate endDate,
+            List<Long> normalizedSymptomIds, Map<String, Long> stageMillis) {
+        User user = findUserWithDemographics(userId);
+
+        long stageStart = System.nanoTime();
+        ReportCacheService.Lookup cached = reportCacheService.lookup(user, startDate, endDate, normalizedSymptomIds);
+        stageStart = recordStage(stageMillis, "cache-lookup", stageStart);
+        if (cached.hit()) {
+            return new PreparedAnalysis(user, cached, null);
+        }
+
+        HealthAnalysisRequest request = buildAnalysisRequest(user, startDate, endDate, normalizedSymptomIds);
+        recordStage(stageMillis, "entry-query", stageStart);
+        return new PreparedAnalysis(user, cached, request);
+    }
+
+    private User findUserWithDemographics(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found with id " + userId));
 
-        UserDemographics demo = user.getDemographics();
-        if (demo == null) {
+        if (user.getDemographics() == null) {
             throw new RuntimeException("No demographics found for user: " + userId);
         }
+        return user;
+    }
 
-        List<Long> normalizedSymptomIds = normalizeSymptomIds(symptomIds);
-        List<SymptomEntryDto> symptomDtos = getSymptomEntries(userId, startDate, endDate, normalizedSymptomIds);
+    private HealthAnalysisRequest buildAnalysisRequest(User user, LocalDate startDate, LocalDate endDate,
+            List<Long> normalizedSymptomIds) {
+        List<SymptomEntryDto> symptomDtos = getSymptomEntries(user.getId(), startDate, endDate, normalizedSymptomIds);
         List<String> selectedSymptomNames = getSelectedSymptomNames(normalizedSymptomIds);
 
         HealthAnalysisRequest request = new HealthAnalysisRequest();
-        request.setUserId(userId);
+        request.setUserId(user.getId());
         request.setStartDate(startDate);
         request.setEndDate(endDate);
         request.setSymptomEntries(symptomDtos);
         request.setSelectedSymptomNames(selectedSymptomNames);
-        request.setDemographics(modelMapper.map(demo, UserDemographicsDto.class));
+        request.setDemographics(dtoMapper.toDto(user.getDemographics()));
+        return request;
+    }
 
-        HealthAnalysisResponse response = aiService.analyzeHealthData(request);
+    private ReportDto persistReport(PreparedAnalysis prepared, LocalDate startDate, LocalDate endDate,
+            HealthAnalysisResponse response, Map<String, Long> stageMillis) {
+        return transactionTemplate.execute(status -> saveReport(prepared.user(), startDate, endDate, response,
+                prepared.cached(), stageMillis));
+    }
 
+    private ReportDto saveReport(User user, LocalDate startDate, LocalDate endDate, HealthAnalysisResponse response,
+            ReportCacheService.Lookup cacheLookup, Map<String, Long> stageMillis) {
+        long stageStart = System.nanoTime();
         Report report = new Report();
         report.setUser(user);
         report.setWeekStartDate(startDate);
@@ -95,44 +320,45 @@ public class ReportService implements ReportServiceInterface {
         report.setHealthSummary(response.getHealthSummary());
         report.setRiskAreas(response.getRiskAreas());
         report.setRecommendations(response.getRecommendations());
-        report = reportRepository.save(report);
-
-        String documentPath = pdfService.generatePdf(report);
-
-        report.setPdfPath(documentPath);
+        report.setPromptMode(response.getPromptMode());
+        report.setCacheKey(cacheLookup.cacheKey());
+        // The PDF is rendered on first download, see ReportPdfService
 
         Report saved = reportRepository.save(report);
-        return modelMapper.map(saved, ReportDto.class);
+        recordStage(stageMillis, "report-save", stageStart);
+        // Written after the save so the breakdown includes it
+        reportRepository.updateStageTimings(saved.getId(), stageTimingsJson(stageMillis, response.getStageMillis()));
+        recordOutcome("generated");
+        reportCacheService.remember(cacheLookup, saved);
+        return dtoMapper.toDto(saved);
     }
 
-    @Override
-    public ReportDto generateWeeklyReport(Long id) throws DocumentException, IOException {
-        LocalDate endDate = LocalDate.now();
-        LocalDate startDate = endDate.minusDays(6);
-
-        return generateReportForPeriod(id, startDate, endDate, List.of());
+    /**
+     * Records the time since {@code startNanos} under the given stage and returns the
+     * current time so consecutive stages can be chained.
+     */
+    private long recordStage(Map<String, Long> stageMillis, String stage, long startNanos) {
+        long now = System.nanoTime();
+        Duration elapsed = Duration.ofNanos(now - startNanos);
+        meterRegistry.timer("medmuse.report.stage", "stage", stage).record(elapsed);
+        stageMillis.put(stage, elapsed.toMillis());
+        return now;
     }
 
-    @Override
-    public List<ReportDto> getUserReports(Long id) {
-        return reportRepository.findByUserIdOrderByGeneratedAtDesc(id)
-                .stream()
-                .map(entry -> modelMapper.map(entry, ReportDto.class))
-                .collect(Collectors.toList());
+    private void recordOutcome(String outcome) {
+        meterRegistry.counter("medmuse.report.requests", "outcome", outcome).increment();
     }
 
-    @Override
-    public Page<ReportDto> getUserReports(Long id, Pageable pageable) {
-        return reportRepository.findByUserIdOrderByGeneratedAtDesc(id, pageable)
-                .map(entry -> modelMapper.map(entry, ReportDto.class));
-    }
-
-    @Override
-    public ReportDto getReportById(Long id, Long reportId) {
-        Report report = reportRepository.findByIdAndUserId(reportId, id)
-                .orElseThrow(() -> new RuntimeException("Report not found: " + reportId));
+    private String stageTimingsJson(Map<String, Long> reportStages, Map<String, Long> aiStages) {
+        Map<String, Long> stages = new LinkedHashMap<>(reportStages);
+        if (aiStages != null) {
+            stages.putAll(aiStages);
+        }
 
-        return modelMapper.map(report, ReportDto.class);
+        // Stage names are fixed identifiers, so no escaping is needed
+        return stages.entrySet().stream()
+                .map(stage -> "\"" + stage.getKey() + "\":" + stage.getValue())
+                .collect(Collectors.joining(",", "{", "}"));
     }
 
     private List<Long> normalizeSymptomIds(List<Long> symptomIds) {
@@ -147,16 +373,9 @@ public class ReportService implements ReportServiceInterface {
     }
 
     private List<SymptomEntryDto> getSymptomEntries(Long userId, LocalDate startDate, LocalDate endDate, List<Long> symptomIds) {
-        return (symptomIds.isEmpty()
-                ? symptomEntryRepository.findByUserIdAndEntryDateBetweenOrderByEntryDateDescEntryTimeDesc(userId, startDate, endDate)
-                : symptomEntryRepository.findByUserIdAndEntryDateBetweenAndSymptomIdInOrderByEntryDateDescEntryTimeDesc(
-                        userId,
-                        startDate,
-                        endDate,
-                        symptomIds))
-                .stream()
-                .map(this::toSymptomEntryDto)
-                .toList();
+        return symptomIds.isEmpty()
+                ? symptomEntryRepository.findEntryDtosInPeriod(userId, startDate, endDate)
+                : symptomEntryRepository.findEntryDtosInPeriodForSymptoms(userId, startDate, endDate, symptomIds);
     }
 
     private List<String> getSelectedSymptomNames(List<Long> symptomIds) {
@@ -172,24 +391,4 @@ public class ReportService implements ReportServiceInterface {
                 .filter(Objects::nonNull)
                 .toList();
     }
-
-    private SymptomEntryDto toSymptomEntryDto(SymptomEntry entry) {
-        LocalDateTime loggedAt = null;
-        if (entry.getEntryDate() != null && entry.getEntryTime() != null) {
-            loggedAt = LocalDateTime.of(entry.getEntryDate(), entry.getEntryTime());
-        }
-
-        return new SymptomEntryDto(
-                entry.getId(),
-                entry.getSymptom() != null ? entry.getSymptom().getId() : null,
-                entry.getSymptom() != null ? entry.getSymptom().getName() : "Custom symptom",
-                entry.getSymptom() != null ? entry.getSymptom().getCategory() : "Custom",
-                entry.getCustomDescription(),
-                entry.getSeverity(),
-                entry.getNotes(),
-                entry.getEntryDate(),
-                entry.getEntryTime(),
-                loggedAt,
-                entry.getCreatedAt());
-    }
 }
@@ -0,0 +1,161 @@
+package com.medmuse.medmuse_backend.service;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.springframework.stereotype.Component;
+
+import com.medmuse.medmuse_backend.repository.SeverityPoint;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Rasterizes per-symptom severity charts for report PDFs. A chart is drawn once per report
+ * and symptom and kept in a bounded LRU cache, so re-renders of a report (stream mode,
+ * re-renders after the stored object is swept) only re-embed the PNG. The cached image is
+ * dropped if the points it was drawn from have changed since.
+ *
+ * <p>Only the plot is rasterized; titles and axis labels are laid out as PDF text so no
+ * AWT fonts are needed on the server.
+ */
+@Component
+public class SeverityChartRenderer {
+
+    public static final int WIDTH = 1000;
+    public static final int HEIGHT = 260;
+    static final int MAX_SEVERITY = 10;
+
+    private static final int MAX_CACHED_CHARTS = 512;
+    private static final int PADDING = 16;
+    private static final Color GRID = new Color(0xE0E0E0);
+    private static final Color PEAK = new Color(0xF4B6A8);
+    private static final Color MEAN = new Color(0x2F6DB5);
+
+    private record ChartKey(Long reportId, Long symptomId) {
+    }
+
+    private record CachedChart(List<SeverityPoint> points, byte[] png) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<ChartKey, CachedChart> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ChartKey, CachedChart> eldest) {
+            return size() > MAX_CACHED_CHARTS;
+        }
+    };
+
+    public SeverityChartRenderer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Returns the chart of one symptom as PNG. {@code points} are that symptom's daily
+     * severities within the period, in date order.
+     */
+    public byte[] render(Long reportId, Long symptomId, List<SeverityPoint> points, LocalDate startDate,
+            LocalDate endDate) {
+        ChartKey key = new ChartKey(reportId, symptomId);
+        synchronized (cache) {
+            CachedChart cached = cache.get(key);
+            if (cached != null && cached.points().equals(points)) {
+                recordLookup("hit");
+                return cached.png();
+            }
+        }
+
+        // Drawn outside the lock; two renders of the same chart produce the same image
+        byte[] png = draw(points, startDate, endDate);
+        synchronized (cache) {
+            cache.put(key, new CachedChart(List.copyOf(points), png));
+        }
+        recordLookup("rendered");
+        return png;
+    }
+
+    private byte[] draw(List<SeverityPoint> points, LocalDate startDate, LocalDate endDate) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, WIDTH, HEIGHT);
+
+            graphics.setColor(GRID);
+            graphics.setStroke(new BasicStroke(1.5f));
+            for (int severity = 0; severity <= MAX_SEVERITY; severity += 2) {
+                double y = y(severity);
+                graphics.draw(new Line2D.Double(PADDING, y, WIDTH - PADDING, y));
+            }
+
+            long days = Math.max(0, ChronoUnit.DAYS.between(startDate, endDate));
+            graphics.setColor(PEAK);
+            graphics.setStroke(new BasicStroke(6f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            for (SeverityPoint point : points) {
+                double x = x(point.entryDate(), startDate, days);
+                graphics.draw(new Line2D.Double(x, y(0), x, y(point.maxSeverity())));
+            }
+
+            Path2D.Double mean = new Path2D.Double();
+            for (SeverityPoint point : points) {
+                double x = x(point.entryDate(), startDate, days);
+                double y = y(point.averageSeverity());
+                if (mean.getCurrentPoint() == null) {
+                    mean.moveTo(x, y);
+                } else {
+                    mean.lineTo(x, y);
+                }
+            }
+            graphics.setColor(MEAN);
+            graphics.setStroke(new BasicStroke(3f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            graphics.draw(mean);
+            for (SeverityPoint point : points) {
+                double x = x(point.entryDate(), startDate, days);
+                double y = y(point.averageSeverity());
+                graphics.fill(new Ellipse2D.Double(x - 5, y - 5, 10, 10));
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream(8 * 1024);
+        try {
+            ImageIO.write(image, "png", png);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode severity chart", e);
+        }
+        return png.toByteArray();
+    }
+
+    private static double x(LocalDate date, LocalDate startDate, long days) {
+        if (days == 0) {
+            return WIDTH / 2.0;
+        }
+        return PADDING + (WIDTH - 2.0 * PADDING) * ChronoUnit.DAYS.between(startDate, date) / days;
+    }
+
+    private static double y(double severity) {
+        return HEIGHT - PADDING - (HEIGHT - 2.0 * PADDING) * Math.min(severity, MAX_SEVERITY) / MAX_SEVERITY;
+    }
+
+    private void recordLookup(String outcome) {
+        meterRegistry.counter("medmuse.report.pdf.charts", "outcome", outcome).increment();
+    }
+}
@@ -1,61 +1,69 @@
 package com.medmuse.medmuse_backend.service;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import org.modelmapper.ModelMapper;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import com.medmuse.medmuse_backend.dto.CursorPage;
 import com.medmuse.medmuse_backend.dto.SymptomDto;
 import com.medmuse.medmuse_backend.dto.SymptomEntryDto;
 import com.medmuse.medmuse_backend.entity.Symptom;
 import com.medmuse.medmuse_backend.entity.SymptomEntry;
 import com.medmuse.medmuse_backend.entity.User;
+import com.medmuse.medmuse_backend.mapper.DtoMapper;
 import com.medmuse.medmuse_backend.repository.SymptomEntryRepository;
 import com.medmuse.medmuse_backend.repository.SymptomRepository;
 import com.medmuse.medmuse_backend.repository.UserRepository;
 import com.medmuse.medmuse_backend.service.interfaces.SymptomServiceInterface;
+import com.medmuse.medmuse_backend.util.PageCursor;
 
 @Service
 @Transactional
 public class SymptomService implements SymptomServiceInterface {
 
-    @Autowired
-    private ModelMapper modelMapper;
-    
     private final SymptomRepository symptomRepository;
     private final SymptomEntryRepository symptomEntryRepository;
     private final UserRepository userRepository;
+    private final ReportCacheService reportCacheService;
+    private final DtoMapper dtoMapper;
     
     public SymptomService(SymptomRepository symptomRepository,
                          SymptomEntryRepository symptomEntryRepository,
-                         UserRepository userRepository) {
+                         UserRepository userRepository,
+                         ReportCacheService reportCacheService,
+                         DtoMapper dtoMapper) {
         this.symptomRepository = symptomRepository;
         this.symptomEntryRepository = symptomEntryRepository;
         this.userRepository = userRepository;
+        this.reportCacheService = reportCacheService;
+        this.dtoMapper = dtoMapper;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<SymptomDto> getAllActiveSymptoms() {
         return symptomRepository.findByIsActiveTrue().stream()
-            .map(symptom -> modelMapper.map(symptom, SymptomDto.class))
+            .map(dtoMapper::toDto)
             .collect(Collectors.toList());
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<Symptom> getSymptomsByCategory(String category) {
         return symptomRepository.findByCategoryAndIsActiveTrue(category);
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<Symptom> searchSymptoms(String searchTerm) {
         return symptomRepository.findByNameContainingIgnoreCaseAndIsActiveTrue(searchTerm);
     }
@@ -82,8 +90,9 @@ public class SymptomService implements SymptomServiceInterface {
             resolveEntryTime(entryDto.getEntryTime())
         );
         entry = symptomEntryRepository.save(entry);
+        reportCacheService.invalidate(userId);
         
-        return toDto(entry);
+        return dtoMapper.toDto(entry);
     }
     
     @Override
@@ -94,17 +103,37 @@ public class SymptomService implements SymptomServiceInterface {
     }
     
     @Override
+    @Transactional(readOnly = true)
     public Page<SymptomEntryDto> getUserSymptomEntries(Long userId, Pageable pageable) {
-        return symptomEntryRepository.findByUserIdOrderByEntryDateDescEntryTimeDesc(userId, pageable)
-            .map(this::toDto);
+        return symptomEntryRepository.findEntryDtosByUserId(userId, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<SymptomEntryDto> getUserSymptomEntries(Long userId, String cursor, int size, boolean includeTotal) {
+        int pageSize = PageCursor.clampPageSize(size);
+        Limit limit = Limit.of(pageSize + 1);
+        List<SymptomEntryDto> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = symptomEntryRepository.findEntryDtosByUserId(userId, limit);
+        } else {
+            String[] keys = PageCursor.decode(cursor, 3);
+            try {
+                rows = symptomEntryRepository.findEntryDtosBefore(userId, LocalDate.parse(keys[0]),
+                    LocalTime.parse(keys[1]), Long.valueOf(keys[2]), limit);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw PageCursor.invalid();
+            }
+        }
+        Long total = includeTotal ? symptomEntryRepository.countByUserId(userId) : null;
+        return CursorPage.of(rows, pageSize,
+            entry -> PageCursor.encode(entry.getEntryDate(), entry.getEntryTime(), entry.getId()), total);
     }
     
     @Override
+    @Transactional(readOnly = true)
     public List<SymptomEntryDto> getUserSymptomEntriesByDateRange(Long userId, LocalDate startDate, LocalDate endDate) {
-        return symptomEntryRepository.findByUserIdAndEntryDateBetweenOrderByEntryDateDescEntryTimeDesc(userId, startDate, endDate)
-            .stream()
-            .map(this::toDto)
-            .collect(Collectors.toList());
+        return symptomEntryRepository.findEntryDtosInPeriod(userId, startDate, endDate);
     }
     
     @Override
@@ -140,7 +169,8 @@ public class SymptomService implements SymptomServiceInterface {
         }
         
         entry = symptomEntryRepository.save(entry);
-        return toDto(entry);
+        reportCacheService.invalidate(userId);
+        return dtoMapper.toDto(entry);
     }
     
     @Override
@@ -153,27 +183,7 @@ public class SymptomService implements SymptomServiceInterface {
         }
         
         symptomEntryRepository.delete(entry);
-    }
-
-    private SymptomEntryDto toDto(SymptomEntry entry) {
-        LocalDateTime loggedAt = null;
-        if (entry.getEntryDate() != null && entry.getEntryTime() != null) {
-            loggedAt = LocalDateTime.of(entry.getEntryDate(), entry.getEntryTime());
-        }
-
-        return new SymptomEntryDto(
-            entry.getId(),
-            entry.getSymptom() != null ? entry.getSymptom().getId() : null,
-            entry.getSymptom() != null ? entry.getSymptom().getName() : "Custom symptom",
-            entry.getSymptom() != null ? entry.getSymptom().getCategory() : "Custom",
-            entry.getCustomDescription(),
-            entry.getSeverity(),
-            entry.getNotes(),
-            entry.getEntryDate(),
-            entry.getEntryTime(),
-            loggedAt,
-            entry.getCreatedAt()
-        );
+        reportCacheService.invalidate(userId);
     }
 
     private LocalDate resolveEntryDate(LocalDate entryDate) {
@@ -0,0 +1,75 @@
+package com.medmuse.medmuse_backend.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.service.interfaces.ReportRenderer;
+
+/**
+ * Walks the report sections in the order of the PDF layout and leaves the markup to
+ * subclasses. Text formats carry only the AI text; the severity charts and the entry
+ * appendix stay in the PDF.
+ */
+abstract class TextReportRenderer implements ReportRenderer {
+
+    @Override
+    public void render(Report report, OutputStream outputStream) throws IOException {
+        StringBuilder out = new StringBuilder(4 * 1024);
+
+        begin(out, PdfService.TITLE_TEXT);
+        note(out, "Report Period: " + report.getWeekStartDate().format(PdfService.PERIOD_FORMATTER)
+                + " - " + report.getWeekEndDate().format(PdfService.PERIOD_FORMATTER));
+        note(out, "Generated on: " + report.getGeneratedAt().format(PdfService.GENERATED_FORMATTER));
+
+        heading(out, "Health Summary");
+        for (String paragraph : split(report.getHealthSummary(), "\n\n")) {
+            paragraph(out, paragraph);
+        }
+
+        List<String> riskAreas = split(report.getRiskAreas(), "\n");
+        if (!riskAreas.isEmpty()) {
+            heading(out, "Areas of Attention");
+            bullets(out, riskAreas);
+        }
+
+        heading(out, "Personalized Recommendations");
+        bullets(out, split(report.getRecommendations(), "\n"));
+
+        subheading(out, "Medical Disclaimer");
+        disclaimer(out, PdfService.DISCLAIMER_TEXT);
+        note(out, PdfService.FOOTER_TEXT);
+        end(out);
+
+        outputStream.write(out.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected abstract void begin(StringBuilder out, String title);
+
+    protected abstract void note(StringBuilder out, String text);
+
+    protected abstract void heading(StringBuilder out, String text);
+
+    protected abstract void subheading(StringBuilder out, String text);
+
+    protected abstract void paragraph(StringBuilder out, String text);
+
+    protected abstract void bullets(StringBuilder out, List<String> items);
+
+    protected abstract void disclaimer(StringBuilder out, String text);
+
+    protected abstract void end(StringBuilder out);
+
+    private static List<String> split(String text, String separator) {
+        if (text == null) {
+            return List.of();
+        }
+        return Arrays.stream(text.split(separator))
+                .map(String::trim)
+                .filter(part -> !part.isEmpty())
+                .toList();
+    }
+}
@@ -2,8 +2,6 @@ package com.medmuse.medmuse_backend.service;
 
 import java.util.Optional;
 
-import org.modelmapper.ModelMapper;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.Map;
@@ -12,6 +10,7 @@ import com.medmuse.medmuse_backend.dto.UserDemographicsDto;
 import com.medmuse.medmuse_backend.dto.UserDto;
 import com.medmuse.medmuse_backend.entity.User;
 import com.medmuse.medmuse_backend.entity.UserDemographics;
+import com.medmuse.medmuse_backend.mapper.DtoMapper;
 import com.medmuse.medmuse_backend.repository.UserRepository;
 import com.medmuse.medmuse_backend.repository.DemographicsRepository;
 import com.medmuse.medmuse_backend.service.interfaces.UserServiceInterface;
@@ -20,15 +19,17 @@ import com.medmuse.medmuse_backend.service.interfaces.UserServiceInterface;
 @Transactional
 public class UserService implements UserServiceInterface {
 
-    @Autowired
-    private ModelMapper modelMapper;
-
     private final UserRepository userRepository;
     private final DemographicsRepository demographicRepository;
+    private final ReportCacheService reportCacheService;
+    private final DtoMapper dtoMapper;
 
-    public UserService(UserRepository userRepository, DemographicsRepository demographicRepository) {
+    public UserService(UserRepository userRepository, DemographicsRepository demographicRepository,
+            ReportCacheService reportCacheService, DtoMapper dtoMapper) {
         this.userRepository = userRepository;
         this.demographicRepository = demographicRepository;
+        this.reportCacheService = reportCacheService;
+        this.dtoMapper = dtoMapper;
     }
 
     @Override
@@ -42,19 +43,19 @@ public class UserService implements UserServiceInterface {
         user.setProfilePicture(profilePicture);
 
         user = userRepository.save(user);
-        return modelMapper.map(user, UserDto.class);
+        return dtoMapper.toDto(user);
     }
 
     @Override
     public Optional<UserDto> findByGoogleId(String googleId) {
         return userRepository.findByGoogleId(googleId)
-                .map(entry -> modelMapper.map(entry, UserDto.class));
+                .map(dtoMapper::toDto);
     }
 
     @Override
     public Optional<UserDto> findById(Long id) {
         return userRepository.findById(id)
-                .map(entry -> modelMapper.map(entry, UserDto.class));
+                .map(dtoMapper::toDto);
     }
 
     @Override
@@ -63,7 +64,7 @@ public class UserService implements UserServiceInterface {
             .orElseThrow(() -> new RuntimeException("User not found: " + userId));
         user.setName(name);
         user = userRepository.save(user);
-        return modelMapper.map(user, UserDto.class);
+        return dtoMapper.toDto(user);
     }
 
     @Override
@@ -96,7 +97,8 @@ public class UserService implements UserServiceInterface {
         // Save both user and demographics to ensure the relationship is persisted
         userDemographics = demographicRepository.save(userDemographics);
         userRepository.save(user);
+        reportCacheService.invalidate(userId);
         
-        return modelMapper.map(userDemographics, UserDemographicsDto.class);
+        return dtoMapper.toDto(userDemographics);
     }
 }
\ No newline at end of file
@@ -6,4 +6,6 @@ import com.medmuse.medmuse_backend.dto.HealthAnalysisResponse;
 
 public interface AIServiceInterface {
     HealthAnalysisResponse analyzeHealthData(HealthAnalysisRequest request);
+
+    void streamHealthData(HealthAnalysisRequest request, HealthAnalysisStreamHandler handler);
 }
@@ -0,0 +1,29 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+final class AiJson {
+
+    private AiJson() {
+    }
+
+    static String sanitize(String aiText) {
+        return aiText.trim()
+                .replaceFirst("(?is)^```(?:json)?\\s*", "")
+                .replaceFirst("(?is)\\s*```$", "")
+                .trim();
+    }
+
+    static boolean isJsonObject(ObjectMapper objectMapper, String aiText) {
+        if (aiText == null || aiText.isBlank()) {
+            return false;
+        }
+
+        try {
+            return objectMapper.readTree(sanitize(aiText)).isObject();
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+/**
+ * Runs every call to the wrapped provider model through its {@link ProviderGuard} and
+ * reports the outcome to the provider's circuit breaker.
+ */
+public class GuardedChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final ProviderGuard guard;
+
+    public GuardedChatModel(ChatModel delegate, ProviderGuard guard) {
+        this.delegate = delegate;
+        this.guard = guard;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        return chat(chatRequest, () -> false);
+    }
+
+    /**
+     * Same as {@link #chat(ChatRequest)} for a caller that may abandon the call, such as a
+     * hedge that lost. Failures once {@code cancelled} is true are not held against the provider.
+     */
+    public ChatResponse chat(ChatRequest chatRequest, BooleanSupplier cancelled) {
+        ProviderGuard.Permit permit = guard.acquire(chatRequest);
+        try {
+            ChatResponse response = delegate.chat(chatRequest);
+            permit.recordSuccess();
+            return response;
+        } catch (RateLimitException e) {
+            throw guard.providerRateLimited(e);
+        } catch (RuntimeException e) {
+            if (!cancelled.getAsBoolean()) {
+                permit.recordFailure();
+            }
+            throw e;
+        } finally {
+            permit.close();
+        }
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+}
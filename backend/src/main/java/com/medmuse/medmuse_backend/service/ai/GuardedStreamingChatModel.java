@@ -0,0 +1,79 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import java.util.Set;
+
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+
+/**
+ * Streaming counterpart of {@link GuardedChatModel}. The permit is held until the stream
+ * completes or fails rather than until {@code chat} returns.
+ */
+public class GuardedStreamingChatModel implements StreamingChatModel {
+
+    private final StreamingChatModel delegate;
+    private final ProviderGuard guard;
+
+    public GuardedStreamingChatModel(StreamingChatModel delegate, ProviderGuard guard) {
+        this.delegate = delegate;
+        this.guard = guard;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        ProviderGuard.Permit permit = guard.acquire(chatRequest);
+        try {
+            delegate.chat(chatRequest, new StreamingChatResponseHandler() {
+                @Override
+                public void onPartialResponse(String partialResponse) {
+                    handler.onPartialResponse(partialResponse);
+                }
+
+                @Override
+                public void onCompleteResponse(ChatResponse completeResponse) {
+                    permit.recordSuccess();
+                    permit.close();
+                    handler.onCompleteResponse(completeResponse);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    if (!(error instanceof RateLimitException)) {
+                        permit.recordFailure();
+                    }
+                    permit.close();
+                    handler.onError(error instanceof RateLimitException rateLimit
+                            ? guard.providerRateLimited(rateLimit)
+                            : error);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (!(e instanceof RateLimitException)) {
+                permit.recordFailure();
+            }
+            permit.close();
+            throw e instanceof RateLimitException rateLimit ? guard.providerRateLimited(rateLimit) : e;
+        }
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+}
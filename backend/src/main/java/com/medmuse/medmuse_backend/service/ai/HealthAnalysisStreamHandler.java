@@ -0,0 +1,12 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import com.medmuse.medmuse_backend.dto.HealthAnalysisResponse;
+
+public interface HealthAnalysisStreamHandler {
+
+    void onPartial(String field, String text);
+
+    void onComplete(HealthAnalysisResponse response);
+
+    void onError(Throwable error);
+}
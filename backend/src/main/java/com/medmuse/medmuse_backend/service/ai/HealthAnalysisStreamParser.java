@@ -0,0 +1,158 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Incrementally scans the streamed JSON completion and emits the decoded text of the
+ * top-level report fields as it arrives, so partial output can be shown before the
+ * whole object has been received. The complete text is still parsed normally once the
+ * stream finishes.
+ */
+class HealthAnalysisStreamParser {
+
+    static final Set<String> REPORT_FIELDS = Set.of("healthSummary", "riskAreas", "recommendations");
+
+    private enum State {
+        SCAN,
+        KEY,
+        KEY_ESCAPE,
+        VALUE,
+        VALUE_ESCAPE,
+        VALUE_UNICODE,
+        SKIP_STRING,
+        SKIP_ESCAPE
+    }
+
+    private final BiConsumer<String, String> listener;
+    private final StringBuilder key = new StringBuilder();
+    private final StringBuilder pending = new StringBuilder();
+    private final StringBuilder unicode = new StringBuilder(4);
+
+    private State state = State.SCAN;
+    private int depth;
+    private boolean expectingKey;
+    private String currentKey;
+    private String streamingField;
+
+    HealthAnalysisStreamParser(BiConsumer<String, String> listener) {
+        this.listener = listener;
+    }
+
+    void feed(String chunk) {
+        if (chunk == null) {
+            return;
+        }
+
+        for (int i = 0; i < chunk.length(); i++) {
+            accept(chunk.charAt(i));
+        }
+        flush();
+    }
+
+    private void accept(char c) {
+        switch (state) {
+            case SCAN -> scan(c);
+            case KEY -> {
+                if (c == '\\') {
+                    state = State.KEY_ESCAPE;
+                } else if (c == '"') {
+                    currentKey = key.toString();
+                    state = State.SCAN;
+                } else {
+                    key.append(c);
+                }
+            }
+            case KEY_ESCAPE -> {
+                key.append(c);
+                state = State.KEY;
+            }
+            case VALUE -> {
+                if (c == '\\') {
+                    state = State.VALUE_ESCAPE;
+                } else if (c == '"') {
+                    flush();
+                    streamingField = null;
+                    state = State.SCAN;
+                } else {
+                    pending.append(c);
+                }
+            }
+            case VALUE_ESCAPE -> {
+                state = State.VALUE;
+                switch (c) {
+                    case 'n' -> pending.append('\n');
+                    case 't' -> pending.append('\t');
+                    case 'r' -> pending.append('\r');
+                    case 'b' -> pending.append('\b');
+                    case 'f' -> pending.append('\f');
+                    case 'u' -> {
+                        unicode.setLength(0);
+                        state = State.VALUE_UNICODE;
+                    }
+                    default -> pending.append(c);
+                }
+            }
+            case VALUE_UNICODE -> {
+                unicode.append(c);
+                if (unicode.length() == 4) {
+                    try {
+                        pending.append((char) Integer.parseInt(unicode.toString(), 16));
+                    } catch (NumberFormatException e) {
+                        // Malformed escape; the final parse of the full text decides what to keep
+                    }
+                    state = State.VALUE;
+                }
+            }
+            case SKIP_STRING -> {
+                if (c == '\\') {
+                    state = State.SKIP_ESCAPE;
+                } else if (c == '"') {
+                    state = State.SCAN;
+                }
+            }
+            case SKIP_ESCAPE -> state = State.SKIP_STRING;
+        }
+    }
+
+    private void scan(char c) {
+        switch (c) {
+            case '{', '[' -> {
+                depth++;
+                expectingKey = depth == 1 && c == '{';
+            }
+            case '}', ']' -> depth--;
+            case ':' -> {
+                if (depth == 1) {
+                    expectingKey = false;
+                }
+            }
+            case ',' -> {
+                if (depth == 1) {
+                    expectingKey = true;
+                    currentKey = null;
+                }
+            }
+            case '"' -> {
+                if (depth == 1 && expectingKey) {
+                    key.setLength(0);
+                    state = State.KEY;
+                } else if (depth == 1 && currentKey != null && REPORT_FIELDS.contains(currentKey)) {
+                    streamingField = currentKey;
+                    state = State.VALUE;
+                } else {
+                    state = State.SKIP_STRING;
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void flush() {
+        if (streamingField != null && pending.length() > 0) {
+            listener.accept(streamingField, pending.toString());
+        }
+        pending.setLength(0);
+    }
+}
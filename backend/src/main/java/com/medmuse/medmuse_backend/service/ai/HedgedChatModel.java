@@ -0,0 +1,265 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medmuse.medmuse_backend.config.AiProperties;
+
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends each request to the primary provider and, once the primary has taken longer than
+ * its observed latency percentile (or has failed), to the secondary as well. The first
+ * response that is a valid JSON object wins and the other call is cancelled.
+ */
+@Slf4j
+public class HedgedChatModel implements ChatModel {
+
+    /** Provider reported for a failure when the primary and the hedge both failed. */
+    public static final String BOTH_PROVIDERS = "hedged";
+
+    public record ProviderResponse(ChatResponse response, String provider) {
+    }
+
+    /**
+     * A failed call, naming the provider that failed, or {@link #BOTH_PROVIDERS} when both
+     * legs did. The provider's own exception is the cause.
+     */
+    public static final class ProviderFailure extends RuntimeException {
+
+        private final String provider;
+
+        ProviderFailure(String provider, RuntimeException error) {
+            super(error.getMessage(), error);
+            this.provider = provider;
+        }
+
+        public String provider() {
+            return provider;
+        }
+
+        public RuntimeException error() {
+            return (RuntimeException) getCause();
+        }
+    }
+
+    private record Attempt(String provider, boolean primary, ChatResponse response, RuntimeException error,
+            boolean valid) {
+    }
+
+    private final String primaryName;
+    private final ChatModel primary;
+    private final String secondaryName;
+    private final ChatModel secondary;
+    private final AiProperties.HedgeSettings settings;
+    private final Executor executor;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final LatencyWindow primaryLatency;
+
+    public HedgedChatModel(String primaryName, ChatModel primary, String secondaryName, ChatModel secondary,
+            AiProperties.HedgeSettings settings, Executor executor, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        this.primaryName = primaryName;
+        this.primary = primary;
+        this.secondaryName = secondaryName;
+        this.secondary = secondary;
+        this.settings = settings;
+        this.executor = executor;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.primaryLatency = new LatencyWindow(settings.getSampleWindow());
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        return chatWithProvider(chatRequest).response();
+    }
+
+    public ProviderResponse chatWithProvider(String userMessage) {
+        return chatWithProvider(ChatRequest.builder().messages(UserMessage.from(userMessage)).build());
+    }
+
+    public ProviderResponse chatWithProvider(ChatRequest chatRequest) {
+        try {
+            return attributedChat(chatRequest);
+        } catch (ProviderFailure e) {
+            throw e.error();
+        }
+    }
+
+    /**
+     * Same as {@link #chatWithProvider(String)}, but failures are thrown as a
+     * {@link ProviderFailure} so callers can attribute them to the provider that failed.
+     */
+    public ProviderResponse chatAttributingFailures(String userMessage) {
+        return attributedChat(ChatRequest.builder().messages(UserMessage.from(userMessage)).build());
+    }
+
+    private ProviderResponse attributedChat(ChatRequest chatRequest) {
+        BlockingQueue<Attempt> attempts = new LinkedBlockingQueue<>();
+        List<Future<?>> calls = new ArrayList<>(2);
+        AtomicBoolean settled = new AtomicBoolean();
+
+        try {
+            long hedgeDelay = hedgeDelayNanos();
+            Future<?> primaryCall = submit(primaryName, true, primary, chatRequest, settled, attempts, hedgeDelay);
+            if (primaryCall == null) {
+                // No spare worker; call the primary on this thread without hedging
+                return winner(attempt(primaryName, true, primary, chatRequest, settled, hedgeDelay));
+            }
+            calls.add(primaryCall);
+
+            Attempt first = attempts.poll(hedgeDelay, TimeUnit.NANOSECONDS);
+            if (first != null && first.valid()) {
+                return winner(first);
+            }
+
+            meterRegistry.counter("medmuse.ai.hedge.requests", "provider", secondaryName,
+                    "reason", first == null ? "slow" : first.error() != null ? "failed" : "invalid").increment();
+            Future<?> secondaryCall = submit(secondaryName, false, secondary, chatRequest, settled, attempts, 0);
+            if (secondaryCall != null) {
+                calls.add(secondaryCall);
+            }
+
+            List<Attempt> completed = new ArrayList<>(2);
+            if (first != null) {
+                completed.add(first);
+            }
+            while (completed.size() < calls.size()) {
+                Attempt next = attempts.take();
+                if (next.valid()) {
+                    return winner(next);
+                }
+                completed.add(next);
+            }
+
+            return noValidResponse(completed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProviderFailure(calls.size() > 1 ? BOTH_PROVIDERS : primaryName,
+                    new RuntimeException("Interrupted while waiting for AI response", e));
+        } finally {
+            // Set before interrupting, so calls failing from the interrupt know they were cancelled
+            settled.set(true);
+            calls.forEach(call -> call.cancel(true));
+        }
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return primary.defaultRequestParameters();
+    }
+
+    long hedgeDelayNanos() {
+        long minDelay = settings.getMinDelay().toNanos();
+        if (primaryLatency.size() < settings.getMinSamples()) {
+            return Math.max(minDelay, settings.getInitialDelay().toNanos());
+        }
+        return Math.max(minDelay, primaryLatency.percentile(settings.getPercentile()));
+    }
+
+    private Future<?> submit(String provider, boolean isPrimary, ChatModel model, ChatRequest chatRequest,
+            AtomicBoolean settled, BlockingQueue<Attempt> attempts, long hedgeDelay) {
+        FutureTask<Void> task = new FutureTask<>(
+                () -> attempts.add(attempt(provider, isPrimary, model, chatRequest, settled, hedgeDelay)), null);
+        try {
+            executor.execute(task);
+            return task;
+        } catch (RejectedExecutionException e) {
+            log.debug("Hedge executor saturated, not submitting {} call", provider);
+            return null;
+        }
+    }
+
+    private Attempt attempt(String provider, boolean isPrimary, ChatModel model, ChatRequest chatRequest,
+            AtomicBoolean settled, long hedgeDelay) {
+        long startNanos = System.nanoTime();
+        try {
+            ChatResponse response = model instanceof GuardedChatModel guarded
+                    ? guarded.chat(chatRequest, settled::get)
+                    : model.chat(chatRequest);
+            if (isPrimary) {
+                primaryLatency.record(System.nanoTime() - startNanos);
+            }
+            String text = response != null && response.aiMessage() != null ? response.aiMessage().text() : null;
+            return new Attempt(provider, isPrimary, response, null, AiJson.isJsonObject(objectMapper, text));
+        } catch (RuntimeException e) {
+            if (isPrimary) {
+                // A primary that failed or was cancelled after losing to the hedge still took at least this
+                // long; dropping it would drag the percentile down and make hedging fire ever earlier
+                primaryLatency.record(Math.max(System.nanoTime() - startNanos, hedgeDelay));
+            }
+            log.warn("{} request failed: {}", provider, e.getMessage());
+            return new Attempt(provider, isPrimary, null, e, false);
+        }
+    }
+
+    private ProviderResponse winner(Attempt attempt) {
+        if (attempt.error() != null) {
+            throw new ProviderFailure(attempt.provider(), attempt.error());
+        }
+        meterRegistry.counter("medmuse.ai.hedge.wins", "provider", attempt.provider()).increment();
+        return new ProviderResponse(attempt.response(), attempt.provider());
+    }
+
+    private ProviderResponse noValidResponse(List<Attempt> completed) {
+        // Prefer an unparseable answer over an exception so the caller's fallback handling applies
+        Attempt chosen = completed.stream()
+                .filter(attempt -> attempt.response() != null)
+                .findFirst()
+                .orElseGet(() -> completed.stream().filter(Attempt::primary).findFirst().orElse(completed.get(0)));
+        if (chosen.error() != null) {
+            // Only reached when every attempt failed
+            throw new ProviderFailure(completed.size() > 1 ? BOTH_PROVIDERS : chosen.provider(), chosen.error());
+        }
+        return new ProviderResponse(chosen.response(), chosen.provider());
+    }
+
+    /**
+     * Ring buffer of the most recent primary latencies.
+     */
+    static final class LatencyWindow {
+
+        private final long[] samples;
+        private int next;
+        private int size;
+
+        LatencyWindow(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long percentile(double percentile) {
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.medmuse.medmuse_backend.service.ai;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -12,8 +13,16 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.medmuse.medmuse_backend.dto.HealthAnalysisRequest;
 import com.medmuse.medmuse_backend.dto.HealthAnalysisResponse;
 import com.medmuse.medmuse_backend.dto.SymptomEntryDto;
+import com.medmuse.medmuse_backend.entity.PromptMode;
+import com.medmuse.medmuse_backend.exception.AiCapacityExceededException;
+import com.medmuse.medmuse_backend.exception.AiUnavailableException;
 
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -23,17 +32,33 @@ public class LangChainAiService implements AIServiceInterface {
     private static final String FALLBACK_SUMMARY = "Unable to process AI response.";
     private static final String FALLBACK_RISKS = "Parsing error.";
     private static final String FALLBACK_RECOMMENDATIONS = "Please retry later.";
+    private static final long PROVIDER_FAILURE_RETRY_SECONDS = 30;
 
     private final ChatModel chatModel;
+    private final StreamingChatModel streamingChatModel;
     private final ObjectMapper objectMapper;
+    private final PromptCompactor promptCompactor;
+    private final MeterRegistry meterRegistry;
     private final String aiProvider;
+    private final String aiModel;
 
     public LangChainAiService(ChatModel chatModel,
+                              StreamingChatModel streamingChatModel,
                               ObjectMapper objectMapper,
-                              @Qualifier("activeAiProviderName") String aiProvider) {
+                              PromptCompactor promptCompactor,
+                              MeterRegistry meterRegistry,
+                              @Qualifier("activeAiProviderName") String aiProvider,
+                              @Qualifier("activeAiModelName") String aiModel) {
         this.chatModel = chatModel;
+        this.streamingChatModel = streamingChatModel;
         this.objectMapper = objectMapper;
+        this.promptCompactor = promptCompactor;
+        this.meterRegistry = meterRegistry;
         this.aiProvider = aiProvider;
+        this.aiModel = aiModel;
+    }
+
+    private record Prompt(String text, PromptMode mode) {
     }
 
     @Override
@@ -42,14 +67,130 @@ public class LangChainAiService implements AIServiceInterface {
             throw new RuntimeException("HealthAnalysisRequest or demographics missing");
         }
 
-        String prompt = buildPrompt(request);
-        String aiText = chatModel.chat(prompt);
+        long promptStartNanos = System.nanoTime();
+        Prompt prompt = buildPrompt(request);
+        long callStartNanos = System.nanoTime();
+        if (chatModel instanceof HedgedChatModel hedgedChatModel) {
+            HedgedChatModel.ProviderResponse providerResponse;
+            try {
+                providerResponse = hedgedChatModel.chatAttributingFailures(prompt.text());
+            } catch (HedgedChatModel.ProviderFailure e) {
+                throw providerFailure(e.error(), e.provider(), callStartNanos);
+            }
+            ChatResponse response = providerResponse.response();
+            String aiText = response != null && response.aiMessage() != null ? response.aiMessage().text() : null;
+            String model = response != null && response.modelName() != null ? response.modelName() : aiModel;
+            return complete(prompt, aiText, providerResponse.provider(), model,
+                    callStartNanos - promptStartNanos, System.nanoTime() - callStartNanos);
+        }
 
-        return parseResponse(aiText);
+        String aiText;
+        try {
+            aiText = chatModel.chat(prompt.text());
+        } catch (RuntimeException e) {
+            throw providerFailure(e, aiProvider, callStartNanos);
+        }
+        return complete(prompt, aiText, aiProvider, aiModel,
+                callStartNanos - promptStartNanos, System.nanoTime() - callStartNanos);
     }
 
-    private String buildPrompt(HealthAnalysisRequest request) {
-        String symptoms = formatSymptoms(request.getSymptomEntries(), request.getSelectedSymptomNames());
+    @Override
+    public void streamHealthData(HealthAnalysisRequest request, HealthAnalysisStreamHandler handler) {
+        if (request == null || request.getDemographics() == null) {
+            throw new RuntimeException("HealthAnalysisRequest or demographics missing");
+        }
+
+        long promptStartNanos = System.nanoTime();
+        Prompt prompt = buildPrompt(request);
+        HealthAnalysisStreamParser parser = new HealthAnalysisStreamParser(handler::onPartial);
+        long callStartNanos = System.nanoTime();
+
+        StreamingChatResponseHandler responseHandler = new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                parser.feed(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                String aiText = completeResponse.aiMessage() != null ? completeResponse.aiMessage().text() : null;
+                String model = completeResponse.modelName() != null ? completeResponse.modelName() : aiModel;
+                handler.onComplete(complete(prompt, aiText, aiProvider, model,
+                        callStartNanos - promptStartNanos, System.nanoTime() - callStartNanos));
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                handler.onError(providerFailure(error, aiProvider, callStartNanos));
+            }
+        };
+
+        try {
+            streamingChatModel.chat(prompt.text(), responseHandler);
+        } catch (RuntimeException e) {
+            throw providerFailure(e, aiProvider, callStartNanos);
+        }
+    }
+
+    // Shared by blocking and streaming calls, so callers can fall back on AiUnavailableException either way
+    private RuntimeException providerFailure(Throwable error, String provider, long callStartNanos) {
+        if (error instanceof AiCapacityExceededException || error instanceof AiUnavailableException) {
+            recordFailure(provider, System.nanoTime() - callStartNanos, "rejected");
+            return (RuntimeException) error;
+        }
+        recordFailure(provider, System.nanoTime() - callStartNanos, "error");
+        log.warn("{} request failed: {}", provider, error.getMessage());
+        return new AiUnavailableException(provider, "Provider request failed", PROVIDER_FAILURE_RETRY_SECONDS, error);
+    }
+
+    /**
+     * Parses the provider output and records per-stage timings, prompt and response sizes
+     * and the parse outcome, tagged by the provider and model that answered. The timings
+     * are also returned on the response so they can be stored with the report.
+     */
+    private HealthAnalysisResponse complete(Prompt prompt, String aiText, String provider, String model,
+            long promptNanos, long callNanos) {
+        long parseStartNanos = System.nanoTime();
+        HealthAnalysisResponse response = parseResponse(aiText, provider);
+        response.setPromptMode(prompt.mode());
+        long parseNanos = System.nanoTime() - parseStartNanos;
+
+        Tags tags = Tags.of("provider", provider, "model", model);
+        recordStage(response, "prompt-build", tags, promptNanos);
+        recordStage(response, "provider-call", tags, callNanos);
+        recordStage(response, "response-parse", tags, parseNanos);
+
+        Tags promptTags = tags.and("mode", prompt.mode().name());
+        meterRegistry.summary("medmuse.ai.prompt.chars", promptTags).record(prompt.text().length());
+        meterRegistry.summary("medmuse.ai.prompt.tokens", promptTags).record(PromptCompactor.estimateTokens(prompt.text()));
+        meterRegistry.summary("medmuse.ai.response.chars", tags).record(aiText == null ? 0 : aiText.length());
+
+        String outcome;
+        if (!response.isFallback()) {
+            outcome = "parsed";
+        } else {
+            outcome = aiText == null || aiText.isBlank() ? "empty" : "parse-failed";
+        }
+        meterRegistry.counter("medmuse.ai.responses", tags.and("outcome", outcome)).increment();
+        return response;
+    }
+
+    private void recordStage(HealthAnalysisResponse response, String stage, Tags tags, long nanos) {
+        meterRegistry.timer("medmuse.ai.stage", tags.and("stage", stage)).record(Duration.ofNanos(nanos));
+        response.getStageMillis().put(stage, Duration.ofNanos(nanos).toMillis());
+    }
+
+    private void recordFailure(String provider, long callNanos, String outcome) {
+        // The configured model belongs to the primary; no response means no model name for the others
+        Tags tags = Tags.of("provider", provider, "model", provider.equals(aiProvider) ? aiModel : "unknown");
+        meterRegistry.timer("medmuse.ai.stage", tags.and("stage", "provider-call")).record(Duration.ofNanos(callNanos));
+        meterRegistry.counter("medmuse.ai.responses", tags.and("outcome", outcome)).increment();
+    }
+
+    private Prompt buildPrompt(HealthAnalysisRequest request) {
+        PromptCompactor.CompactedSymptoms symptoms = promptCompactor.compact(
+                formatSymptoms(request.getSymptomEntries(), request.getSelectedSymptomNames()),
+                request.getSymptomEntries());
         String selectedSymptoms = formatSelectedSymptoms(request.getSelectedSymptomNames());
         String demographics = String.format(
                 "Age: %s, Gender: %s, Weight: %s, Height: %s, Nationality: %s",
@@ -60,7 +201,7 @@ public class LangChainAiService implements AIServiceInterface {
                 valueOrDefault(request.getDemographics().getNationality(), "unknown")
         );
 
-        return """
+        return new Prompt("""
             You are a healthcare analytics AI assistant.
 
             IMPORTANT:
@@ -90,8 +231,8 @@ public class LangChainAiService implements AIServiceInterface {
                 valueOrDefault(request.getEndDate(), "unknown"),
                 selectedSymptoms,
                 demographics,
-                symptoms
-        );
+                symptoms.text()
+        ), symptoms.mode());
     }
 
     private String formatSymptoms(List<SymptomEntryDto> symptomEntries, List<String> selectedSymptomNames) {
@@ -145,39 +286,34 @@ public class LangChainAiService implements AIServiceInterface {
         return text.isEmpty() ? fallback : text;
     }
 
-    private HealthAnalysisResponse parseResponse(String aiText) {
+    private HealthAnalysisResponse parseResponse(String aiText, String provider) {
         if (aiText == null || aiText.isBlank()) {
-            return fallback();
+            return fallback(provider);
         }
 
         try {
-            String cleanJson = sanitizeJson(aiText);
+            String cleanJson = AiJson.sanitize(aiText);
             JsonNode aiJson = objectMapper.readTree(cleanJson);
 
             String summary = aiJson.path("healthSummary").asText("No summary available");
             String risks = aiJson.path("riskAreas").asText("No risks detected");
             String recs = aiJson.path("recommendations").asText("No recommendations available");
 
-            return new HealthAnalysisResponse(summary, risks, recs, aiProvider);
+            return new HealthAnalysisResponse(summary, risks, recs, provider);
         } catch (JsonProcessingException e) {
-            log.warn("Failed to parse {} response as JSON: {}", aiProvider, e.getOriginalMessage());
-            return fallback();
+            log.warn("Failed to parse {} response as JSON: {}", provider, e.getOriginalMessage());
+            return fallback(provider);
         }
     }
 
-    private String sanitizeJson(String aiText) {
-        return aiText.trim()
-                .replaceFirst("(?is)^```(?:json)?\\s*", "")
-                .replaceFirst("(?is)\\s*```$", "")
-                .trim();
-    }
-
-    private HealthAnalysisResponse fallback() {
+    private HealthAnalysisResponse fallback(String provider) {
         return new HealthAnalysisResponse(
                 FALLBACK_SUMMARY,
                 FALLBACK_RISKS,
                 FALLBACK_RECOMMENDATIONS,
-                aiProvider
+                provider,
+                PromptMode.RAW,
+                true
         );
     }
 }
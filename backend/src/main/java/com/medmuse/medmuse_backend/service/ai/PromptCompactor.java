@@ -0,0 +1,238 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IntSummaryStatistics;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+
+import com.medmuse.medmuse_backend.config.AiProperties;
+import com.medmuse.medmuse_backend.dto.SymptomEntryDto;
+import com.medmuse.medmuse_backend.entity.PromptMode;
+
+@Component
+public class PromptCompactor {
+
+    // Rough average for English prose with the tokenizers used by both providers
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final AiProperties.PromptSettings settings;
+
+    public PromptCompactor(AiProperties properties) {
+        this.settings = properties.getPrompt();
+    }
+
+    public record CompactedSymptoms(String text, PromptMode mode) {
+    }
+
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    public CompactedSymptoms compact(String rawSymptoms, List<SymptomEntryDto> symptomEntries) {
+        if (estimateTokens(rawSymptoms) <= settings.getTokenBudget()
+                || symptomEntries == null
+                || symptomEntries.isEmpty()) {
+            return new CompactedSymptoms(rawSymptoms, PromptMode.RAW);
+        }
+
+        List<SymptomEntryDto> entries = symptomEntries.stream().filter(Objects::nonNull).toList();
+        List<String> lines = new ArrayList<>();
+
+        String header = "Aggregated from " + entries.size() + " symptom entries (raw entries exceed the prompt budget).";
+        lines.add(header);
+        int remainingTokens = settings.getTokenBudget() - cost(header);
+
+        // Most frequent symptoms first, so the budget cuts the rarest
+        List<String> symptomLines = entries.stream()
+                .collect(Collectors.groupingBy(this::aggregateLabel, LinkedHashMap::new, Collectors.toList()))
+                .entrySet().stream()
+                .sorted(Comparator.comparingInt(
+                        (Map.Entry<String, List<SymptomEntryDto>> group) -> group.getValue().size()).reversed())
+                .map(group -> formatSymptomAggregate(group.getKey(), group.getValue()))
+                .toList();
+        remainingTokens -= appendSection(lines, "Per-symptom summary:", symptomLines,
+                "- %d less frequent symptoms omitted to fit the prompt budget", false, remainingTokens);
+
+        List<String> notes = sampleNotes(entries);
+        remainingTokens -= appendSection(lines, "Representative notes:", notes.isEmpty() ? List.of("- none") : notes,
+                "- %d notes omitted to fit the prompt budget", false, remainingTokens);
+
+        appendSection(lines, "Per-day summary:", dailyAggregates(entries),
+                "- %d earlier days omitted to fit the prompt budget", true, remainingTokens);
+
+        return new CompactedSymptoms(String.join(System.lineSeparator(), lines), PromptMode.AGGREGATED);
+    }
+
+    /**
+     * Adds the section header and as many items as fit in {@code remainingTokens}, in order,
+     * plus a line counting the items left out. A section whose header and omission line do not
+     * fit is dropped. {@code chronological} items are given newest first and written oldest first.
+     * Returns the tokens used.
+     */
+    private int appendSection(List<String> lines, String header, List<String> items, String omittedFormat,
+            boolean chronological, int remainingTokens) {
+        int used = cost(header);
+        int allItems = items.stream().mapToInt(PromptCompactor::cost).sum();
+        if (used + allItems <= remainingTokens) {
+            lines.add(header);
+            lines.addAll(chronological ? items.reversed() : items);
+            return used + allItems;
+        }
+
+        used += cost(String.format(omittedFormat, items.size()));
+        if (used > remainingTokens) {
+            return 0;
+        }
+
+        List<String> kept = new ArrayList<>();
+        for (String item : items) {
+            if (used + cost(item) > remainingTokens) {
+                break;
+            }
+            used += cost(item);
+            kept.add(item);
+        }
+
+        String omitted = String.format(omittedFormat, items.size() - kept.size());
+        lines.add(header);
+        if (chronological) {
+            lines.add(omitted);
+            lines.addAll(kept.reversed());
+        } else {
+            lines.addAll(kept);
+            lines.add(omitted);
+        }
+        return used;
+    }
+
+    // Each line also costs its separator
+    private static int cost(String line) {
+        return estimateTokens(line) + 1;
+    }
+
+    private String formatSymptomAggregate(String label, List<SymptomEntryDto> group) {
+        IntSummaryStatistics severity = severityStatistics(group);
+        long descriptions = group.stream().map(SymptomEntryDto::getCustomDescription)
+                .filter(description -> description != null && !description.isBlank())
+                .map(String::trim)
+                .distinct()
+                .count();
+        LocalDateTime firstSeen = group.stream().map(this::loggedAt).filter(Objects::nonNull)
+                .min(Comparator.naturalOrder()).orElse(null);
+        LocalDateTime lastSeen = group.stream().map(this::loggedAt).filter(Objects::nonNull)
+                .max(Comparator.naturalOrder()).orElse(null);
+
+        return String.format(
+                "- symptom=%s; category=%s; count=%d; severityMin=%s; severityMax=%s; severityMean=%s; firstSeen=%s; lastSeen=%s",
+                label,
+                valueOrDefault(group.get(0).getSymptomCategory(), "unknown"),
+                group.size(),
+                severity.getCount() == 0 ? "unknown" : severity.getMin(),
+                severity.getCount() == 0 ? "unknown" : severity.getMax(),
+                severity.getCount() == 0 ? "unknown" : String.format("%.1f", severity.getAverage()),
+                valueOrDefault(firstSeen, "unknown"),
+                valueOrDefault(lastSeen, "unknown"))
+                + (descriptions > 0 ? "; distinctDescriptions=" + descriptions : "");
+    }
+
+    // Newest first, so the most recent days are kept when the per-day section does not fit
+    private List<String> dailyAggregates(List<SymptomEntryDto> entries) {
+        TreeMap<LocalDate, List<SymptomEntryDto>> byDay = entries.stream()
+                .filter(entry -> entry.getEntryDate() != null)
+                .collect(Collectors.groupingBy(SymptomEntryDto::getEntryDate, TreeMap::new, Collectors.toList()));
+
+        return byDay.descendingMap().entrySet().stream()
+                .map(day -> formatDailyAggregate(day.getKey(), day.getValue()))
+                .toList();
+    }
+
+    private String formatDailyAggregate(LocalDate date, List<SymptomEntryDto> dayEntries) {
+        IntSummaryStatistics severity = severityStatistics(dayEntries);
+        String symptoms = dayEntries.stream().map(this::symptomLabel).distinct().collect(Collectors.joining(", "));
+
+        return String.format("- date=%s; entries=%d; symptoms=%s; severityMax=%s; severityMean=%s",
+                date,
+                dayEntries.size(),
+                symptoms,
+                severity.getCount() == 0 ? "unknown" : severity.getMax(),
+                severity.getCount() == 0 ? "unknown" : String.format("%.1f", severity.getAverage()));
+    }
+
+    private List<String> sampleNotes(List<SymptomEntryDto> entries) {
+        Comparator<SymptomEntryDto> mostRelevant = Comparator
+                .comparing((SymptomEntryDto entry) -> entry.getSeverity() == null ? 0 : entry.getSeverity())
+                .thenComparing(this::loggedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .reversed();
+
+        List<SymptomEntryDto> withNotes = entries.stream()
+                .filter(entry -> entry.getNotes() != null && !entry.getNotes().isBlank())
+                .sorted(mostRelevant)
+                .toList();
+
+        // One note per symptom first so every symptom is represented, then the most severe of the rest
+        Map<String, SymptomEntryDto> perSymptom = new LinkedHashMap<>();
+        withNotes.forEach(entry -> perSymptom.putIfAbsent(symptomLabel(entry), entry));
+
+        int sampleSize = Math.max(0, settings.getSampleNotes());
+        List<SymptomEntryDto> sample = new ArrayList<>(perSymptom.values());
+        withNotes.stream()
+                .filter(entry -> !perSymptom.containsValue(entry))
+                .limit(Math.max(0, sampleSize - sample.size()))
+                .forEach(sample::add);
+
+        return sample.stream()
+                .limit(sampleSize)
+                .map(entry -> String.format("- %s %s (severity %s): %s",
+                        valueOrDefault(loggedAt(entry), valueOrDefault(entry.getEntryDate(), "unknown")),
+                        symptomLabel(entry),
+                        valueOrDefault(entry.getSeverity(), "unknown"),
+                        entry.getNotes().trim()))
+                .toList();
+    }
+
+    private IntSummaryStatistics severityStatistics(List<SymptomEntryDto> entries) {
+        return entries.stream()
+                .map(SymptomEntryDto::getSeverity)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .summaryStatistics();
+    }
+
+    private String symptomLabel(SymptomEntryDto entry) {
+        if (entry.getSymptomId() == null && entry.getCustomDescription() != null
+                && !entry.getCustomDescription().isBlank()) {
+            return "Custom symptom (" + entry.getCustomDescription().trim() + ")";
+        }
+        return valueOrDefault(entry.getSymptomName(), "unknown");
+    }
+
+    // Custom symptoms rarely repeat a description, so they share one summary line
+    private String aggregateLabel(SymptomEntryDto entry) {
+        return entry.getSymptomId() == null ? "Custom symptoms" : symptomLabel(entry);
+    }
+
+    private LocalDateTime loggedAt(SymptomEntryDto entry) {
+        if (entry.getLoggedAt() != null) {
+            return entry.getLoggedAt();
+        }
+        return entry.getEntryDate() != null ? entry.getEntryDate().atStartOfDay() : null;
+    }
+
+    private String valueOrDefault(Object value, String fallback) {
+        if (value == null) {
+            return fallback;
+        }
+
+        String text = value.toString().trim();
+        return text.isEmpty() ? fallback : text;
+    }
+}
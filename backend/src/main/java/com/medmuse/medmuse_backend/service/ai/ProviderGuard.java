@@ -0,0 +1,233 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import com.medmuse.medmuse_backend.config.AiProperties;
+import com.medmuse.medmuse_backend.exception.AiCapacityExceededException;
+import com.medmuse.medmuse_backend.exception.AiUnavailableException;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Concurrency bulkhead, request and token rate limits and a circuit breaker for a single
+ * AI provider. Callers beyond the concurrency limit wait in a bounded queue; anything that
+ * cannot be admitted within the configured wait is rejected with a retry hint, and while
+ * the circuit is open calls fail fast without reaching the provider.
+ */
+public class ProviderGuard {
+
+    private static final long PROVIDER_RATE_LIMIT_RETRY_SECONDS = 30;
+
+    private final String provider;
+    private final int maxConcurrent;
+    private final int queueCapacity;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final TokenBucket requestBucket;
+    private final TokenBucket tokenBucket;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final Timer waitTimer;
+
+    public ProviderGuard(String provider, AiProperties.ProviderSettings settings, MeterRegistry meterRegistry) {
+        this(provider, settings, meterRegistry, System::nanoTime);
+    }
+
+    ProviderGuard(String provider, AiProperties.ProviderSettings settings, MeterRegistry meterRegistry,
+            LongSupplier nanoClock) {
+        this.provider = provider;
+        this.maxConcurrent = settings.getMaxConcurrent();
+        this.queueCapacity = settings.getQueueCapacity();
+        this.maxWaitNanos = settings.getMaxWait().toNanos();
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.requestBucket = settings.getRequestsPerMinute() > 0
+                ? new TokenBucket(settings.getRequestsPerMinute(), nanoClock)
+                : null;
+        this.tokenBucket = settings.getTokensPerMinute() > 0
+                ? new TokenBucket(settings.getTokensPerMinute(), nanoClock)
+                : null;
+        this.circuitBreaker = new CircuitBreaker(settings.getCircuitFailureThreshold(),
+                settings.getCircuitOpenDuration().toNanos(), nanoClock);
+        this.meterRegistry = meterRegistry;
+        this.waitTimer = meterRegistry.timer("medmuse.ai.permits.wait", "provider", provider);
+
+        Gauge.builder("medmuse.ai.permits.in-use", permits, p -> maxConcurrent - p.availablePermits())
+                .tag("provider", provider)
+                .description("Concurrent AI provider calls in flight")
+                .register(meterRegistry);
+        Gauge.builder("medmuse.ai.permits.waiting", waiting, AtomicInteger::get)
+                .tag("provider", provider)
+                .description("AI provider calls waiting for a permit")
+                .register(meterRegistry);
+        Gauge.builder("medmuse.ai.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .tag("provider", provider)
+                .description("Provider circuit state: 0 closed, 1 half-open, 2 open")
+                .register(meterRegistry);
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public Permit acquire(ChatRequest request) {
+        if (!circuitBreaker.tryAcquire()) {
+            meterRegistry.counter("medmuse.ai.requests.rejected", "provider", provider, "reason", "circuit-open")
+                    .increment();
+            throw new AiUnavailableException(provider, "Circuit open after repeated provider failures",
+                    retryAfterSeconds(circuitBreaker.remainingOpenNanos()));
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            acquireConcurrencyPermit();
+        } catch (RuntimeException e) {
+            circuitBreaker.onIgnored();
+            throw e;
+        }
+
+        Permit permit = new Permit();
+        try {
+            long remainingNanos = maxWaitNanos - (System.nanoTime() - startNanos);
+            long requestWaitNanos = reserve(requestBucket, 1, remainingNanos);
+            long tokenWaitNanos;
+            try {
+                tokenWaitNanos = reserve(tokenBucket, estimateTokens(request), remainingNanos);
+            } catch (RuntimeException e) {
+                // The call never goes out, so hand back the request slot taken above
+                release(requestBucket, 1);
+                throw e;
+            }
+            long rateWaitNanos = Math.max(requestWaitNanos, tokenWaitNanos);
+            if (rateWaitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(rateWaitNanos);
+            }
+        } catch (InterruptedException e) {
+            permit.close();
+            Thread.currentThread().interrupt();
+            throw reject("interrupted", "Interrupted while waiting for provider capacity", 1);
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        } finally {
+            waitTimer.record(Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+
+        return permit;
+    }
+
+    public AiCapacityExceededException providerRateLimited(RuntimeException cause) {
+        AiCapacityExceededException exception = reject("provider-429", "Provider rate limit reached",
+                PROVIDER_RATE_LIMIT_RETRY_SECONDS);
+        exception.initCause(cause);
+        return exception;
+    }
+
+    private void acquireConcurrencyPermit() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+
+        if (waiting.incrementAndGet() > queueCapacity) {
+            waiting.decrementAndGet();
+            throw reject("queue-full", "Too many requests waiting for the provider", retryAfterSeconds(maxWaitNanos));
+        }
+
+        try {
+            if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                throw reject("wait-timeout", "Timed out waiting for provider capacity", retryAfterSeconds(maxWaitNanos));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("interrupted", "Interrupted while waiting for provider capacity", 1);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private long reserve(TokenBucket bucket, long amount, long maxWait) {
+        if (bucket == null) {
+            return 0;
+        }
+
+        TokenBucket.Reservation reservation = bucket.reserve(amount, Math.max(0, maxWait));
+        if (!reservation.granted()) {
+            throw reject("rate-limit", "Provider rate limit reached", retryAfterSeconds(reservation.waitNanos()));
+        }
+        return reservation.waitNanos();
+    }
+
+    private void release(TokenBucket bucket, long amount) {
+        if (bucket != null) {
+            bucket.release(amount);
+        }
+    }
+
+    private AiCapacityExceededException reject(String reason, String message, long retryAfterSeconds) {
+        meterRegistry.counter("medmuse.ai.requests.rejected", "provider", provider, "reason", reason).increment();
+        return new AiCapacityExceededException(provider, message, retryAfterSeconds);
+    }
+
+    private long retryAfterSeconds(long nanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    static long estimateTokens(ChatRequest request) {
+        long tokens = 0;
+        for (ChatMessage message : request.messages()) {
+            String text;
+            if (message instanceof UserMessage userMessage) {
+                text = userMessage.hasSingleText() ? userMessage.singleText() : userMessage.contents().toString();
+            } else if (message instanceof SystemMessage systemMessage) {
+                text = systemMessage.text();
+            } else if (message instanceof AiMessage aiMessage) {
+                text = aiMessage.text();
+            } else {
+                text = message.toString();
+            }
+            tokens += PromptCompactor.estimateTokens(text);
+        }
+        return tokens;
+    }
+
+    public final class Permit implements AutoCloseable {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile boolean outcomeRecorded;
+
+        private Permit() {
+        }
+
+        public void recordSuccess() {
+            outcomeRecorded = true;
+            circuitBreaker.onSuccess();
+        }
+
+        public void recordFailure() {
+            outcomeRecorded = true;
+            circuitBreaker.onFailure();
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+                if (!outcomeRecorded) {
+                    circuitBreaker.onIgnored();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.medmuse.medmuse_backend.config.AiProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Holds one {@link ProviderGuard} per provider so the blocking and streaming models of the
+ * same provider share a single concurrency and rate budget.
+ */
+public class ProviderGuards {
+
+    private final AiProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<AiProperties.Provider, ProviderGuard> guards = new EnumMap<>(AiProperties.Provider.class);
+
+    public ProviderGuards(AiProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public synchronized ProviderGuard forProvider(AiProperties.Provider provider) {
+        return guards.computeIfAbsent(provider, p ->
+                new ProviderGuard(p.displayName(), properties.settingsFor(p), meterRegistry));
+    }
+}
@@ -0,0 +1,118 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.medmuse.medmuse_backend.config.AiProperties;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+/**
+ * Local stand-in for a real provider. Latency follows a log-normal distribution fitted to
+ * the configured median and p99, a configurable fraction of calls fail, and responses are
+ * either generated report JSON of a given size or recorded responses replayed in order.
+ * All randomness comes from a seeded generator, so runs are repeatable.
+ */
+public class StubChatModel implements ChatModel {
+
+    private static final double Z_99 = 2.3263;
+    private static final String FILLER = "Stub analysis text generated for offline testing. ";
+
+    private final Random random;
+    private final double mu;
+    private final double sigma;
+    private final double errorRate;
+    private final String generatedResponse;
+    private final List<String> recordedResponses;
+    private final AtomicLong replayIndex = new AtomicLong();
+
+    public StubChatModel(AiProperties.StubSettings settings) {
+        this.random = new Random(settings.getSeed());
+        long medianMillis = Math.max(1, settings.getLatencyMedian().toMillis());
+        long p99Millis = Math.max(medianMillis, settings.getLatencyP99().toMillis());
+        this.mu = Math.log(medianMillis);
+        this.sigma = Math.log((double) p99Millis / medianMillis) / Z_99;
+        this.errorRate = settings.getErrorRate();
+        this.generatedResponse = generateResponse(settings.getResponseChars());
+        this.recordedResponses = loadRecordedResponses(settings.getReplayDirectory());
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        return ChatResponse.builder()
+                .aiMessage(AiMessage.from(respond()))
+                .build();
+    }
+
+    String respond() {
+        long latencyMillis;
+        boolean fail;
+        synchronized (random) {
+            latencyMillis = Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+            fail = random.nextDouble() < errorRate;
+        }
+
+        try {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerException("Stub provider interrupted");
+        }
+
+        if (fail) {
+            throw new InternalServerException("Stub provider simulated failure");
+        }
+
+        if (recordedResponses.isEmpty()) {
+            return generatedResponse;
+        }
+        return recordedResponses.get((int) (replayIndex.getAndIncrement() % recordedResponses.size()));
+    }
+
+    private static String generateResponse(int responseChars) {
+        // Split the requested size across the three report fields
+        int fieldChars = Math.max(1, responseChars / 3);
+        return """
+                {"healthSummary":"%s","riskAreas":"%s","recommendations":"%s"}"""
+                .formatted(filler(fieldChars), filler(fieldChars), filler(fieldChars));
+    }
+
+    private static String filler(int length) {
+        return FILLER.repeat(length / FILLER.length() + 1).substring(0, length).trim();
+    }
+
+    private static List<String> loadRecordedResponses(String replayDirectory) {
+        if (replayDirectory == null || replayDirectory.isBlank()) {
+            return List.of();
+        }
+
+        Path directory = Path.of(replayDirectory.trim());
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .sorted()
+                    .map(StubChatModel::read)
+                    .toList();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read stub replay directory " + directory, e);
+        }
+    }
+
+    private static String read(Path file) {
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read stub replay file " + file, e);
+        }
+    }
+}
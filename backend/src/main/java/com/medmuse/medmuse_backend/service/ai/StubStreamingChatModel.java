@@ -0,0 +1,37 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+
+/**
+ * Streams the {@link StubChatModel} response in small chunks, on the calling thread.
+ */
+public class StubStreamingChatModel implements StreamingChatModel {
+
+    private static final int CHUNK_CHARS = 32;
+
+    private final StubChatModel stub;
+
+    public StubStreamingChatModel(StubChatModel stub) {
+        this.stub = stub;
+    }
+
+    @Override
+    public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        String text;
+        try {
+            text = stub.respond();
+        } catch (RuntimeException e) {
+            handler.onError(e);
+            return;
+        }
+
+        for (int start = 0; start < text.length(); start += CHUNK_CHARS) {
+            handler.onPartialResponse(text.substring(start, Math.min(text.length(), start + CHUNK_CHARS)));
+        }
+        handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(text)).build());
+    }
+}
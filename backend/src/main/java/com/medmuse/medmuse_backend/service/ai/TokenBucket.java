@@ -0,0 +1,59 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-minute token bucket that refills continuously. Callers reserve capacity up front
+ * and are told how long to wait before the reservation becomes usable, so waiting
+ * happens outside the lock.
+ */
+class TokenBucket {
+
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    record Reservation(boolean granted, long waitNanos) {
+    }
+
+    private final double capacity;
+    private final double refillPerNano;
+    private final LongSupplier nanoClock;
+
+    private double available;
+    private long lastRefillNanos;
+
+    TokenBucket(long perMinute, LongSupplier nanoClock) {
+        this.capacity = perMinute;
+        this.refillPerNano = (double) perMinute / NANOS_PER_MINUTE;
+        this.nanoClock = nanoClock;
+        this.available = perMinute;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    synchronized Reservation reserve(long amount, long maxWaitNanos) {
+        refill();
+
+        // A single request larger than the per-minute allowance would never fit otherwise
+        double requested = Math.min(amount, capacity);
+        double deficit = requested - available;
+        long waitNanos = deficit <= 0 ? 0 : (long) Math.ceil(deficit / refillPerNano);
+
+        if (waitNanos > maxWaitNanos) {
+            return new Reservation(false, waitNanos);
+        }
+
+        available -= requested;
+        return new Reservation(true, waitNanos);
+    }
+
+    synchronized void release(long amount) {
+        refill();
+        available = Math.min(capacity, available + Math.min(amount, capacity));
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        available = Math.min(capacity, available + (now - lastRefillNanos) * refillPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,24 @@
+package com.medmuse.medmuse_backend.service.interfaces;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.springframework.http.MediaType;
+
+import com.itextpdf.text.DocumentException;
+import com.medmuse.medmuse_backend.entity.Report;
+
+/**
+ * Presents a stored report in one output format. {@code GET /reports/{reportId}} picks the
+ * renderer whose media type matches the Accept header; JSON stays the default.
+ */
+public interface ReportRenderer {
+
+    MediaType mediaType();
+
+    /**
+     * Writes the report to the given stream and leaves it open. Renders of the same report
+     * produce the same bytes.
+     */
+    void render(Report report, OutputStream outputStream) throws DocumentException, IOException;
+}
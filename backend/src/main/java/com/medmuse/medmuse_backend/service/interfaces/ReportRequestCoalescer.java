@@ -0,0 +1,26 @@
+package com.medmuse.medmuse_backend.service.interfaces;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import com.itextpdf.text.DocumentException;
+import com.medmuse.medmuse_backend.dto.ReportDto;
+
+/**
+ * Lets concurrent identical report requests share one generation. The default
+ * implementation coalesces within a single node; an implementation backed by a database
+ * lock can be registered as the primary bean to coalesce across nodes.
+ */
+public interface ReportRequestCoalescer {
+
+    record Key(Long userId, LocalDate startDate, LocalDate endDate, List<Long> symptomIds) {
+    }
+
+    @FunctionalInterface
+    interface ReportComputation {
+        ReportDto compute() throws DocumentException, IOException;
+    }
+
+    ReportDto coalesce(Key key, ReportComputation computation) throws DocumentException, IOException;
+}
@@ -1,6 +1,7 @@
 package com.medmuse.medmuse_backend.service.interfaces;
 
 import com.itextpdf.text.DocumentException;
+import com.medmuse.medmuse_backend.dto.CursorPage;
 import com.medmuse.medmuse_backend.dto.ReportDto;
 
 import java.io.IOException;
@@ -14,6 +15,8 @@ public interface ReportServiceInterface {
     ReportDto generateReportForPeriod(Long userId, LocalDate startDate, LocalDate endDate) throws DocumentException, IOException;
     ReportDto generateReportForPeriod(Long userId, LocalDate startDate, LocalDate endDate, List<Long> symptomIds)
             throws DocumentException, IOException;
+    void streamReportForPeriod(Long userId, LocalDate startDate, LocalDate endDate, List<Long> symptomIds,
+            ReportStreamListener listener);
     // List<ReportDto> getUserReports(Long userId);
     // Page<ReportDto> getUserReports(Long userId, Pageable pageable);
     // ReportDto getReportById(Long userId, Long reportId);
@@ -23,5 +26,7 @@ public interface ReportServiceInterface {
 
     Page<ReportDto> getUserReports(Long id, Pageable pageable);
 
+    CursorPage<ReportDto> getUserReports(Long id, String cursor, int size, boolean includeTotal);
+
     ReportDto getReportById(Long id, Long reportId);
 }
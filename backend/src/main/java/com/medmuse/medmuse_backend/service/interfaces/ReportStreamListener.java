@@ -0,0 +1,12 @@
+package com.medmuse.medmuse_backend.service.interfaces;
+
+import com.medmuse.medmuse_backend.dto.ReportDto;
+
+public interface ReportStreamListener {
+
+    void onPartial(String field, String text);
+
+    void onReport(ReportDto report);
+
+    void onError(Throwable error);
+}
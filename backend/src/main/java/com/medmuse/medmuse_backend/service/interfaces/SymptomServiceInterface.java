@@ -6,6 +6,7 @@ import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import com.medmuse.medmuse_backend.dto.CursorPage;
 import com.medmuse.medmuse_backend.dto.SymptomDto;
 import com.medmuse.medmuse_backend.dto.SymptomEntryDto;
 import com.medmuse.medmuse_backend.entity.Symptom;
@@ -17,6 +18,7 @@ public interface SymptomServiceInterface {
     SymptomEntryDto createSymptomEntry(Long userId, SymptomEntryDto entryDto);
     List<SymptomEntryDto> createMultipleSymptomEntries(Long userId, List<SymptomEntryDto> entryDtos);
     Page<SymptomEntryDto> getUserSymptomEntries(Long userId, Pageable pageable);
+    CursorPage<SymptomEntryDto> getUserSymptomEntries(Long userId, String cursor, int size, boolean includeTotal);
     List<SymptomEntryDto> getUserSymptomEntriesByDateRange(Long userId, LocalDate startDate, LocalDate endDate);
     SymptomEntryDto updateSymptomEntry(Long userId, Long entryId, SymptomEntryDto updateDto);
     void deleteSymptomEntry(Long userId, Long entryId);
@@ -0,0 +1,192 @@
+package com.medmuse.medmuse_backend.service.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * Stores PDFs under a local directory using the sharded key layout. Objects are written to
+ * a temporary file in the shard and moved into place, so readers never see partial files
+ * and concurrent writers of the same content simply replace one another. Writing content
+ * that is already stored refreshes the file's modification time instead.
+ */
+public class LocalPdfStore implements PdfStore {
+
+    private final Path root;
+    private final boolean compress;
+    private final Clock clock;
+
+    public LocalPdfStore(Path root, boolean compress) {
+        this(root, compress, Clock.systemUTC());
+    }
+
+    public LocalPdfStore(Path root, boolean compress, Clock clock) {
+        this.root = root;
+        this.compress = compress;
+        this.clock = clock;
+    }
+
+    @Override
+    public StoredPdf put(byte[] pdf) throws IOException {
+        return put(PdfStore.sha256(pdf), outputStream -> outputStream.write(pdf));
+    }
+
+    @Override
+    public StoredPdf put(Path pdf) throws IOException {
+        return put(PdfStore.sha256(pdf), outputStream -> Files.copy(pdf, outputStream));
+    }
+
+    private StoredPdf put(String digest, Content content) throws IOException {
+        String key = PdfStore.keyFor(digest, compress);
+        Path target = root.resolve(key);
+
+        if (!touch(target)) {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), digest, ".tmp");
+            try {
+                try (OutputStream outputStream = compress
+                        ? new GZIPOutputStream(Files.newOutputStream(temp))
+                        : Files.newOutputStream(temp)) {
+                    content.writeTo(outputStream);
+                }
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        return describe(key, digest, target);
+    }
+
+    private interface Content {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    // A deduplicated write is a fresh use of the object; the retention sweep ages it by this time
+    private boolean touch(Path target) throws IOException {
+        try {
+            Files.setLastModifiedTime(target, FileTime.from(clock.instant()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Optional<StoredPdf> find(String key) throws IOException {
+        String digest = PdfStore.digestOf(key);
+        if (digest == null) {
+            return Optional.empty();
+        }
+
+        Path path = root.resolve(key);
+        return Files.isReadable(path) ? Optional.of(describe(key, digest, path)) : Optional.empty();
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        if (PdfStore.digestOf(key) == null) {
+            return false;
+        }
+
+        Path path = root.resolve(key);
+        boolean deleted = Files.deleteIfExists(path);
+
+        // Drop shard directories left empty; another writer may have just repopulated them
+        for (Path shard = path.getParent(); deleted && !shard.equals(root); shard = shard.getParent()) {
+            try {
+                Files.deleteIfExists(shard);
+            } catch (DirectoryNotEmptyException e) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Entry> list(String startAfter, int limit) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.isDirectory(root)) {
+            return entries;
+        }
+
+        // Keys are fixed-width hex, so walking shards in name order yields keys in order
+        for (String first : sortedNames(root)) {
+            if (startAfter != null && first.compareTo(startAfter.substring(0, 2)) < 0) {
+                continue;
+            }
+            for (String second : sortedNames(root.resolve(first))) {
+                String shard = first + "/" + second;
+                if (startAfter != null && shard.compareTo(startAfter.substring(0, 5)) < 0) {
+                    continue;
+                }
+                for (String name : sortedNames(root.resolve(shard))) {
+                    String key = shard + "/" + name;
+                    if (PdfStore.digestOf(key) == null || (startAfter != null && key.compareTo(startAfter) <= 0)) {
+                        continue;
+                    }
+                    try {
+                        entries.add(new Entry(key, Files.getLastModifiedTime(root.resolve(key)).toInstant()));
+                    } catch (NoSuchFileException e) {
+                        // Deleted since the shard was listed
+                        continue;
+                    }
+                    if (entries.size() == limit) {
+                        return entries;
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    private List<String> sortedNames(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> children = Files.list(directory)) {
+            return children.map(child -> child.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    private StoredPdf describe(String key, String digest, Path path) throws IOException {
+        if (!PdfStore.isCompressed(key)) {
+            Resource resource = new FileSystemResource(path);
+            return new StoredPdf(key, digest, Files.size(path), Files.getLastModifiedTime(path).toInstant(), resource);
+        }
+
+        long length = uncompressedLength(path);
+        Instant lastModified = Files.getLastModifiedTime(path).toInstant();
+        Resource resource = new StoredPdfResource("PDF [" + path + "]", () -> Files.newInputStream(path),
+                true, length, lastModified);
+        return new StoredPdf(key, digest, length, lastModified, resource);
+    }
+
+    private long uncompressedLength(Path path) throws IOException {
+        // The gzip trailer ends with the uncompressed size modulo 2^32, far above any report PDF
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(trailer, channel.size() - 4);
+            return Integer.toUnsignedLong(trailer.getInt(0));
+        }
+    }
+}
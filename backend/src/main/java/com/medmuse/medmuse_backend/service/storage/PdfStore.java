@@ -0,0 +1,101 @@
+package com.medmuse.medmuse_backend.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Content-addressed storage for rendered report PDFs. Objects are keyed by the SHA-256 of
+ * the PDF bytes and sharded by the first two byte pairs of the digest, e.g.
+ * {@code 3f/a2/3fa2...e1.pdf}, so identical PDFs are stored once and no directory grows
+ * past a few hundred entries. Compressed objects carry a {@code .gz} suffix; the key alone
+ * is enough to read an object back regardless of the current compression setting.
+ */
+public interface PdfStore {
+
+    record StoredPdf(String key, String digest, long length, Instant lastModified, Resource resource) {
+    }
+
+    record Entry(String key, Instant lastModified) {
+    }
+
+    /**
+     * Stores the PDF unless an object with the same content is already present, and
+     * describes the stored object. {@code length} is always the uncompressed size.
+     */
+    StoredPdf put(byte[] pdf) throws IOException;
+
+    /**
+     * Same as {@link #put(byte[])} for a PDF in a file, which is streamed rather than read
+     * into memory. The file is left in place for the caller.
+     */
+    StoredPdf put(Path pdf) throws IOException;
+
+    Optional<StoredPdf> find(String key) throws IOException;
+
+    boolean delete(String key) throws IOException;
+
+    /**
+     * Up to {@code limit} stored objects in key order, starting after {@code startAfter}
+     * ({@code null} for the first page).
+     */
+    List<Entry> list(String startAfter, int limit) throws IOException;
+
+    Pattern KEY_PATTERN = Pattern.compile("([0-9a-f]{2})/([0-9a-f]{2})/([0-9a-f]{64})\\.pdf(\\.gz)?");
+
+    static String keyFor(String digest, boolean compressed) {
+        return digest.substring(0, 2) + "/" + digest.substring(2, 4) + "/" + digest + ".pdf"
+                + (compressed ? ".gz" : "");
+    }
+
+    /**
+     * The digest encoded in a store key, or {@code null} for values that are not store keys
+     * (such as file paths recorded before the store existed).
+     */
+    static String digestOf(String key) {
+        if (key == null) {
+            return null;
+        }
+
+        Matcher matcher = KEY_PATTERN.matcher(key);
+        return matcher.matches() ? matcher.group(3) : null;
+    }
+
+    static boolean isCompressed(String key) {
+        return key.endsWith(".gz");
+    }
+
+    static String sha256(byte[] bytes) {
+        return HexFormat.of().formatHex(sha256Digest().digest(bytes));
+    }
+
+    static String sha256(Path file) throws IOException {
+        MessageDigest digest = sha256Digest();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            for (int read; (read = inputStream.read(buffer)) > 0; ) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
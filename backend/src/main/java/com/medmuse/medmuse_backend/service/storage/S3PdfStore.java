@@ -0,0 +1,298 @@
+package com.medmuse.medmuse_backend.service.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import com.medmuse.medmuse_backend.config.PdfStorageProperties;
+
+/**
+ * Stores PDFs in an S3-compatible bucket (AWS S3, MinIO, Ceph RGW) using path-style
+ * requests signed with Signature Version 4. Writes skip the upload when an object with the
+ * same key already exists and copy it onto itself instead, which refreshes its modification
+ * time for the retention sweep. The uncompressed size is kept in object metadata so compressed
+ * objects can still be served with byte ranges.
+ */
+public class S3PdfStore implements PdfStore {
+
+    static final String LENGTH_METADATA = "x-amz-meta-pdf-length";
+
+    private final HttpClient httpClient;
+    private final S3RequestSigner signer;
+    private final String baseUri;
+    private final String copySourceBase;
+    private final String prefix;
+    private final boolean compress;
+    private final Duration timeout;
+    private final Clock clock;
+
+    public S3PdfStore(PdfStorageProperties.S3Settings settings, boolean compress, HttpClient httpClient) {
+        this(settings, compress, httpClient, Clock.systemUTC());
+    }
+
+    S3PdfStore(PdfStorageProperties.S3Settings settings, boolean compress, HttpClient httpClient, Clock clock) {
+        if (settings.getEndpoint().isBlank() || settings.getBucket().isBlank()) {
+            throw new IllegalStateException(
+                    "medmuse.storage.pdf.s3.endpoint and medmuse.storage.pdf.s3.bucket are required for the s3 store");
+        }
+
+        String endpoint = settings.getEndpoint().endsWith("/")
+                ? settings.getEndpoint().substring(0, settings.getEndpoint().length() - 1)
+                : settings.getEndpoint();
+        this.httpClient = httpClient;
+        this.signer = new S3RequestSigner(settings.getAccessKey(), settings.getSecretKey(), settings.getRegion());
+        this.baseUri = endpoint + "/" + S3RequestSigner.encode(settings.getBucket()) + "/";
+        this.copySourceBase = "/" + S3RequestSigner.encode(settings.getBucket()) + "/";
+        this.prefix = settings.getPrefix();
+        this.compress = compress;
+        this.timeout = settings.getTimeout();
+        this.clock = clock;
+    }
+
+    @Override
+    public StoredPdf put(byte[] pdf) throws IOException {
+        String digest = PdfStore.sha256(pdf);
+        String key = PdfStore.keyFor(digest, compress);
+
+        if (!refresh(key, pdf.length)) {
+            byte[] body = compress ? gzip(pdf) : pdf;
+            upload(key, pdf.length, HttpRequest.BodyPublishers.ofByteArray(body), S3RequestSigner.sha256Hex(body));
+        }
+
+        return describe(key, digest, pdf.length, Instant.now(clock));
+    }
+
+    @Override
+    public StoredPdf put(Path pdf) throws IOException {
+        String digest = PdfStore.sha256(pdf);
+        String key = PdfStore.keyFor(digest, compress);
+        long length = Files.size(pdf);
+
+        if (!refresh(key, length)) {
+            if (!compress) {
+                // The payload hash SigV4 wants is the content digest we already have
+                upload(key, length, HttpRequest.BodyPublishers.ofFile(pdf), digest);
+            } else {
+                Path compressed = Files.createTempFile("medmuse-pdf-", ".gz");
+                try {
+                    try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+                        Files.copy(pdf, outputStream);
+                    }
+                    upload(key, length, HttpRequest.BodyPublishers.ofFile(compressed), PdfStore.sha256(compressed));
+                } finally {
+                    Files.deleteIfExists(compressed);
+                }
+            }
+        }
+
+        return describe(key, digest, length, Instant.now(clock));
+    }
+
+    private boolean refresh(String key, long length) throws IOException {
+        return find(key).isPresent() && touch(key, length);
+    }
+
+    private void upload(String key, long length, HttpRequest.BodyPublisher body, String payloadSha256)
+            throws IOException {
+        HttpResponse<Void> response = send("PUT", prefix + key, objectMetadata(length), body, payloadSha256,
+                HttpResponse.BodyHandlers.discarding());
+        expectSuccess(response, "PUT", key);
+    }
+
+    // S3 has no touch; copying the object onto itself with replaced metadata sets a new Last-Modified
+    private boolean touch(String key, long length) throws IOException {
+        Map<String, String> headers = new HashMap<>(objectMetadata(length));
+        headers.put("x-amz-copy-source", copySourceBase + encodePath(prefix + key));
+        headers.put("x-amz-metadata-directive", "REPLACE");
+
+        HttpResponse<Void> response = send("PUT", prefix + key, headers, null, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            // Deleted since it was found; upload it again
+            return false;
+        }
+        expectSuccess(response, "COPY", key);
+        return true;
+    }
+
+    private Map<String, String> objectMetadata(long length) {
+        return Map.of(
+                "Content-Type", compress ? "application/gzip" : "application/pdf",
+                LENGTH_METADATA, Long.toString(length));
+    }
+
+    private static String encodePath(String path) {
+        return Arrays.stream(path.split("/", -1))
+                .map(S3RequestSigner::encode)
+                .collect(Collectors.joining("/"));
+    }
+
+    @Override
+    public Optional<StoredPdf> find(String key) throws IOException {
+        String digest = PdfStore.digestOf(key);
+        if (digest == null) {
+            return Optional.empty();
+        }
+
+        HttpResponse<Void> response = send("HEAD", prefix + key, Map.of(), null, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return Optional.empty();
+        }
+        expectSuccess(response, "HEAD", key);
+
+        long length = response.headers().firstValueAsLong(LENGTH_METADATA)
+                .orElseGet(() -> response.headers().firstValueAsLong("Content-Length").orElse(0));
+        Instant lastModified = response.headers().firstValue("Last-Modified")
+                .map(value -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant())
+                .orElseGet(() -> Instant.now(clock));
+        return Optional.of(describe(key, digest, length, lastModified));
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        // S3 answers 204 whether or not the object existed, so check first to report what happened
+        if (find(key).isEmpty()) {
+            return false;
+        }
+
+        HttpResponse<Void> response = send("DELETE", prefix + key, Map.of(), null, HttpResponse.BodyHandlers.discarding());
+        expectSuccess(response, "DELETE", key);
+        return true;
+    }
+
+    @Override
+    public List<Entry> list(String startAfter, int limit) throws IOException {
+        String query = "?list-type=2&max-keys=" + limit + "&prefix=" + S3RequestSigner.encode(prefix)
+                + (startAfter == null ? "" : "&start-after=" + S3RequestSigner.encode(prefix + startAfter));
+        HttpResponse<InputStream> response = send("GET", query, Map.of(), null,
+                HttpResponse.BodyHandlers.ofInputStream());
+
+        try (InputStream body = response.body()) {
+            expectSuccess(response, "LIST", prefix);
+
+            List<Entry> entries = new ArrayList<>();
+            NodeList contents = parse(body).getElementsByTagName("Contents");
+            for (int i = 0; i < contents.getLength(); i++) {
+                Element object = (Element) contents.item(i);
+                String key = text(object, "Key").substring(prefix.length());
+                if (PdfStore.digestOf(key) != null) {
+                    entries.add(new Entry(key, Instant.parse(text(object, "LastModified"))));
+                }
+            }
+            return entries;
+        }
+    }
+
+    private Document parse(InputStream body) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(body);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Unreadable S3 listing", e);
+        }
+    }
+
+    private String text(Element element, String tag) {
+        return element.getElementsByTagName(tag).item(0).getTextContent();
+    }
+
+    private StoredPdf describe(String key, String digest, long length, Instant lastModified) {
+        StoredPdfResource resource = new StoredPdfResource("S3 object [" + baseUri + prefix + key + "]",
+                () -> open(key), PdfStore.isCompressed(key), length, lastModified,
+                (start, end) -> open(key, start, end));
+        return new StoredPdf(key, digest, length, lastModified, resource);
+    }
+
+    private InputStream open(String key) throws IOException {
+        HttpResponse<InputStream> response = send("GET", prefix + key, Map.of(), null,
+                HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() / 100 != 2) {
+            response.body().close();
+            expectSuccess(response, "GET", key);
+        }
+        return response.body();
+    }
+
+    private InputStream open(String key, long start, long endInclusive) throws IOException {
+        Map<String, String> range = Map.of("Range", "bytes=" + start + "-" + endInclusive);
+        HttpResponse<InputStream> response = send("GET", prefix + key, range, null,
+                HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 206) {
+            // A 200 would carry the whole object, which is exactly what the range read avoids
+            response.body().close();
+            throw new IOException("S3 ranged GET " + key + " failed with status " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private <T> HttpResponse<T> send(String method, String path, Map<String, String> headers, byte[] body,
+            HttpResponse.BodyHandler<T> handler) throws IOException {
+        return body == null
+                ? send(method, path, headers, HttpRequest.BodyPublishers.noBody(),
+                        S3RequestSigner.EMPTY_PAYLOAD_SHA256, handler)
+                : send(method, path, headers, HttpRequest.BodyPublishers.ofByteArray(body),
+                        S3RequestSigner.sha256Hex(body), handler);
+    }
+
+    private <T> HttpResponse<T> send(String method, String path, Map<String, String> headers,
+            HttpRequest.BodyPublisher body, String payloadSha256, HttpResponse.BodyHandler<T> handler)
+            throws IOException {
+        URI uri = URI.create(baseUri + path);
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .method(method, body);
+        signer.sign(method, uri, headers, payloadSha256, Instant.now(clock)).forEach(request::header);
+
+        try {
+            return httpClient.send(request.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during S3 " + method + " " + path, e);
+        }
+    }
+
+    private void expectSuccess(HttpResponse<?> response, String method, String key) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("S3 " + method + " " + key + " failed with status " + response.statusCode());
+        }
+    }
+
+    private byte[] gzip(byte[] pdf) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(pdf.length);
+        try (GZIPOutputStream outputStream = new GZIPOutputStream(compressed)) {
+            outputStream.write(pdf);
+        }
+        return compressed.toByteArray();
+    }
+}
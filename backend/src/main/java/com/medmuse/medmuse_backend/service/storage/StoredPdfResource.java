@@ -0,0 +1,85 @@
+package com.medmuse.medmuse_backend.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * Re-openable view of a stored object that is not a plain local file, so Spring can serve
+ * full bodies and byte ranges from it. Compressed objects are inflated as they are read;
+ * uncompressed ones can hand out single ranges that the store fetches on their own.
+ */
+public class StoredPdfResource extends AbstractResource {
+
+    @FunctionalInterface
+    interface Opener {
+        InputStream open() throws IOException;
+    }
+
+    @FunctionalInterface
+    interface RangeOpener {
+        InputStream open(long start, long endInclusive) throws IOException;
+    }
+
+    private final String description;
+    private final Opener opener;
+    private final boolean compressed;
+    private final long length;
+    private final Instant lastModified;
+    private final RangeOpener rangeOpener;
+
+    StoredPdfResource(String description, Opener opener, boolean compressed, long length, Instant lastModified) {
+        this(description, opener, compressed, length, lastModified, null);
+    }
+
+    StoredPdfResource(String description, Opener opener, boolean compressed, long length, Instant lastModified,
+            RangeOpener rangeOpener) {
+        this.description = description;
+        this.opener = opener;
+        this.compressed = compressed;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.rangeOpener = rangeOpener;
+    }
+
+    public boolean isRangeReadable() {
+        return !compressed && rangeOpener != null;
+    }
+
+    /**
+     * The {@code count} bytes starting at {@code position}, read without fetching the rest of the object.
+     */
+    public Resource range(long position, long count) {
+        if (!isRangeReadable()) {
+            throw new IllegalStateException(description + " cannot be read by range");
+        }
+        long end = position + count - 1;
+        return new StoredPdfResource(description + " bytes " + position + "-" + end,
+                () -> rangeOpener.open(position, end), false, count, lastModified);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        InputStream inputStream = opener.open();
+        return compressed ? new GZIPInputStream(inputStream, 16 * 1024) : inputStream;
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public long lastModified() {
+        return lastModified.toEpochMilli();
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+}
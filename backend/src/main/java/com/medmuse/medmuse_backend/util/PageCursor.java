@@ -0,0 +1,52 @@
+package com.medmuse.medmuse_backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.StringJoiner;
+
+import com.medmuse.medmuse_backend.exception.ValidationException;
+
+/**
+ * Opaque continuation tokens for keyset pages: the sort key of the last row returned,
+ * joined and base64url encoded. Clients pass the token back unchanged to read the next page.
+ */
+public final class PageCursor {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String SEPARATOR = "|";
+
+    private PageCursor() {
+    }
+
+    public static int clampPageSize(int size) {
+        return Math.clamp(size, 1, MAX_PAGE_SIZE);
+    }
+
+    public static String encode(Object... keys) {
+        StringJoiner joined = new StringJoiner(SEPARATOR);
+        for (Object key : keys) {
+            joined.add(String.valueOf(key));
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(joined.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String[] decode(String cursor, int keyCount) {
+        String[] keys;
+        try {
+            keys = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split("\\" + SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+        if (keys.length != keyCount) {
+            throw invalid();
+        }
+        return keys;
+    }
+
+    public static ValidationException invalid() {
+        return new ValidationException("cursor", "Invalid page cursor");
+    }
+}
@@ -0,0 +1,66 @@
+CREATE TABLE users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    google_id VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    profile_picture VARCHAR(255),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    CONSTRAINT uk_users_google_id UNIQUE (google_id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE symptoms (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    category VARCHAR(255) NOT NULL,
+    description VARCHAR(255),
+    is_active BOOLEAN NOT NULL,
+    CONSTRAINT uk_symptoms_name UNIQUE (name)
+);
+
+CREATE TABLE user_demographics (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    age INTEGER NOT NULL,
+    gender VARCHAR(255),
+    weight DOUBLE PRECISION NOT NULL,
+    height VARCHAR(255),
+    nationality VARCHAR(255),
+    version BIGINT,
+    CONSTRAINT uk_user_demographics_user_id UNIQUE (user_id),
+    CONSTRAINT fk_user_demographics_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE symptom_entries (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    symptom_id BIGINT,
+    custom_description VARCHAR(500),
+    severity INTEGER NOT NULL,
+    notes VARCHAR(1000),
+    entry_date DATE NOT NULL,
+    entry_time TIME(6) NOT NULL,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    CONSTRAINT fk_symptom_entries_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_symptom_entries_symptom FOREIGN KEY (symptom_id) REFERENCES symptoms (id)
+);
+
+CREATE TABLE reports (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    week_start_date DATE NOT NULL,
+    week_end_date DATE NOT NULL,
+    generated_at TIMESTAMP(6),
+    health_summary TEXT,
+    risk_areas TEXT,
+    recommendations TEXT,
+    pdf_path VARCHAR(255),
+    pdf_digest VARCHAR(64),
+    prompt_mode VARCHAR(20),
+    cache_key VARCHAR(64),
+    stage_timings TEXT,
+    CONSTRAINT fk_reports_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT ck_reports_prompt_mode CHECK (prompt_mode IN ('RAW', 'AGGREGATED'))
+);
@@ -0,0 +1,3 @@
+-- Timeline and report history: equality on the user, then the newest rows first
+CREATE INDEX idx_symptom_entries_user_date_time ON symptom_entries (user_id, entry_date DESC, entry_time DESC);
+CREATE INDEX idx_reports_user_generated_at ON reports (user_id, generated_at DESC);
@@ -0,0 +1,6 @@
+-- Keyset pages order by the row id after the timestamp columns, so the id joins the
+-- history indexes and a page is a single range read from the cursor position
+CREATE INDEX idx_symptom_entries_user_date_time_id ON symptom_entries (user_id, entry_date DESC, entry_time DESC, id DESC);
+CREATE INDEX idx_reports_user_generated_at_id ON reports (user_id, generated_at DESC, id DESC);
+DROP INDEX idx_symptom_entries_user_date_time;
+DROP INDEX idx_reports_user_generated_at;
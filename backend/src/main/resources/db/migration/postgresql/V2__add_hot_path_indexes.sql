@@ -0,0 +1,5 @@
+-- Timeline and report history: equality on the user, then the newest rows first.
+-- Built concurrently so existing tables stay writable; Flyway runs these statements
+-- outside a transaction.
+CREATE INDEX CONCURRENTLY idx_symptom_entries_user_date_time ON symptom_entries (user_id, entry_date DESC, entry_time DESC);
+CREATE INDEX CONCURRENTLY idx_reports_user_generated_at ON reports (user_id, generated_at DESC);
@@ -0,0 +1,8 @@
+-- Keyset pages order by the row id after the timestamp columns, so the id joins the
+-- history indexes and a page is a single range read from the cursor position.
+-- The replacements are built before the old indexes are dropped, both concurrently; this
+-- relies on spring.flyway.postgresql.transactional-lock=false, as V2 does.
+CREATE INDEX CONCURRENTLY idx_symptom_entries_user_date_time_id ON symptom_entries (user_id, entry_date DESC, entry_time DESC, id DESC);
+CREATE INDEX CONCURRENTLY idx_reports_user_generated_at_id ON reports (user_id, generated_at DESC, id DESC);
+DROP INDEX CONCURRENTLY idx_symptom_entries_user_date_time;
+DROP INDEX CONCURRENTLY idx_reports_user_generated_at;
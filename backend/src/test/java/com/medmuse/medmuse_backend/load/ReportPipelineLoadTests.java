@@ -0,0 +1,156 @@
+package com.medmuse.medmuse_backend.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oidcLogin;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.medmuse.medmuse_backend.dto.UserDto;
+import com.medmuse.medmuse_backend.service.interfaces.UserServiceInterface;
+
+/**
+ * Drives the symptom and report endpoints concurrently against the full application on H2
+ * with the stub AI provider and prints throughput and latency percentiles per endpoint.
+ * Excluded from the default build; run with {@code mvn test -Pload-test}. The number of
+ * virtual users and iterations can be changed with {@code -Dload.users} and
+ * {@code -Dload.iterations}.
+ */
+@Tag("load")
+@SpringBootTest(properties = {
+        "medmuse.ai.provider=stub",
+        "medmuse.ai.stub.latency-median=20ms",
+        "medmuse.ai.stub.latency-p99=150ms",
+        "medmuse.ai.stub.error-rate=0.02",
+        "medmuse.ai.stub.max-concurrent=8",
+        "medmuse.ai.stub.queue-capacity=64",
+        "medmuse.storage.pdf.directory=target/load-test/pdfs"
+})
+@AutoConfigureMockMvc
+class ReportPipelineLoadTests {
+
+    private static final int USERS = Integer.getInteger("load.users", 8);
+    private static final int ITERATIONS = Integer.getInteger("load.iterations", 25);
+
+    @MockitoBean
+    private ClientRegistrationRepository clientRegistrationRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserServiceInterface userService;
+
+    private final Map<String, List<Long>> latencies = new ConcurrentHashMap<>();
+    private final Map<String, List<Integer>> statuses = new ConcurrentHashMap<>();
+
+    @Test
+    void reportPipelineUnderConcurrentLoad() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(USERS);
+        List<Future<?>> users = new ArrayList<>();
+        long startNanos = System.nanoTime();
+
+        for (int i = 0; i < USERS; i++) {
+            String googleId = "load-user-" + i;
+            UserDto user = userService.createOrUpdateUser(googleId, googleId + "@example.com", "Load User " + i, null);
+            userService.updateUserDemographics(user.getId(), Map.of(
+                    "age", 30 + i, "gender", "Female", "weight", 65.0, "height", "170 cm", "nationality", "Indian"));
+            users.add(executor.submit(() -> runVirtualUser(googleId)));
+        }
+
+        for (Future<?> user : users) {
+            user.get(10, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+
+        printSummary(elapsedSeconds);
+
+        statuses.forEach((endpoint, codes) -> assertThat(codes)
+                .as("server errors for %s", endpoint)
+                .allMatch(code -> code < 500 || code == 503));
+        assertThat(statuses.get("POST /symptom-entries")).containsOnly(201);
+        assertThat(statuses.get("POST /reports/generate")).contains(201);
+    }
+
+    private Void runVirtualUser(String googleId) throws Exception {
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            call("GET /symptoms/getAllSymptoms", get("/symptoms/getAllSymptoms"), googleId);
+            call("POST /symptom-entries", post("/symptom-entries")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("""
+                            {"entries":[{"symptomId":%d,"severity":%d,"notes":"load iteration %d"}]}
+                            """.formatted(1 + iteration % 10, 1 + iteration % 10, iteration)), googleId);
+            call("POST /reports/generate", post("/reports/generate"), googleId);
+        }
+        return null;
+    }
+
+    private void call(String endpoint, MockHttpServletRequestBuilder request, String googleId) throws Exception {
+        long start = System.nanoTime();
+        int status = mockMvc.perform(request.with(oidcLogin().idToken(token -> token.subject(googleId))))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+        long elapsed = System.nanoTime() - start;
+
+        latencies.computeIfAbsent(endpoint, key -> Collections.synchronizedList(new ArrayList<>()))
+                .add(elapsed);
+        statuses.computeIfAbsent(endpoint, key -> Collections.synchronizedList(new ArrayList<>()))
+                .add(status);
+    }
+
+    private void printSummary(double elapsedSeconds) {
+        StringBuilder summary = new StringBuilder()
+                .append(String.format("%nLoad test: %d users x %d iterations in %.1f s%n", USERS, ITERATIONS,
+                        elapsedSeconds))
+                .append(String.format("%-30s %7s %7s %9s %9s %9s %9s %9s%n",
+                        "endpoint", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+
+        latencies.forEach((endpoint, samples) -> {
+            long[] sorted;
+            synchronized (samples) {
+                sorted = samples.stream().mapToLong(Long::longValue).sorted().toArray();
+            }
+            long errors;
+            List<Integer> codes = statuses.get(endpoint);
+            synchronized (codes) {
+                errors = codes.stream().filter(code -> code >= 400).count();
+            }
+            summary.append(String.format("%-30s %7d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    endpoint, sorted.length, errors, sorted.length / elapsedSeconds,
+                    percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.90),
+                    percentileMillis(sorted, 0.99), percentileMillis(sorted, 1.0)));
+        });
+
+        System.out.println(summary);
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
@@ -0,0 +1,81 @@
+package com.medmuse.medmuse_backend.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import org.junit.jupiter.api.Test;
+
+import com.medmuse.medmuse_backend.dto.ReportDto;
+import com.medmuse.medmuse_backend.dto.SymptomEntryDto;
+import com.medmuse.medmuse_backend.dto.UserDemographicsDto;
+import com.medmuse.medmuse_backend.dto.UserDto;
+import com.medmuse.medmuse_backend.entity.PromptMode;
+import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.entity.Symptom;
+import com.medmuse.medmuse_backend.entity.SymptomEntry;
+import com.medmuse.medmuse_backend.entity.User;
+import com.medmuse.medmuse_backend.entity.UserDemographics;
+
+class DtoMapperTests {
+
+    private final DtoMapper dtoMapper = new DtoMapperImpl();
+
+    @Test
+    void mapsUserAndDemographics() {
+        User user = new User("google-7", "jane@example.com", "Jane", "https://example.com/jane.png");
+        user.setId(7L);
+        user.setCreatedAt(LocalDateTime.of(2026, 5, 1, 9, 0));
+        UserDemographics demographics = new UserDemographics(3L, 29, "Female", 61.5, "168 cm", "Indian", 0L, user);
+
+        assertThat(dtoMapper.toDto(user)).isEqualTo(new UserDto(7L, "google-7", "jane@example.com", "Jane",
+                "https://example.com/jane.png", LocalDateTime.of(2026, 5, 1, 9, 0)));
+        assertThat(dtoMapper.toDto(demographics))
+                .isEqualTo(new UserDemographicsDto(29, "Female", 61.5, "168 cm", "Indian"));
+        assertThat(dtoMapper.toDto((User) null)).isNull();
+    }
+
+    @Test
+    void mapsReportWithoutRegenerateFlag() {
+        Report report = new Report(new User(), LocalDate.of(2026, 5, 1), LocalDate.of(2026, 5, 7));
+        report.setId(9L);
+        report.setGeneratedAt(LocalDateTime.of(2026, 5, 7, 18, 30));
+        report.setHealthSummary("Summary");
+        report.setRiskAreas("Risks");
+        report.setRecommendations("Recommendations");
+        report.setPdfPath("ab/cd/abcd.pdf");
+        report.setPromptMode(PromptMode.AGGREGATED);
+
+        ReportDto dto = dtoMapper.toDto(report);
+
+        assertThat(dto).isEqualTo(new ReportDto(9L, LocalDate.of(2026, 5, 1), LocalDate.of(2026, 5, 7),
+                LocalDateTime.of(2026, 5, 7, 18, 30), "Summary", "Risks", "Recommendations", "ab/cd/abcd.pdf",
+                PromptMode.AGGREGATED));
+        assertThat(dto.getRegenerateLater()).isNull();
+    }
+
+    @Test
+    void mapsSymptomAndCustomEntries() {
+        Symptom headache = new Symptom("Headache", "Pain", "Pain in the head or neck area");
+        headache.setId(1L);
+        SymptomEntry entry = new SymptomEntry(new User(), headache, null, 6, "Morning", LocalDate.of(2026, 5, 3),
+                LocalTime.of(8, 15));
+        SymptomEntry custom = new SymptomEntry(new User(), null, "Eye strain", 3, null, LocalDate.of(2026, 5, 4),
+                LocalTime.of(21, 0));
+
+        assertThat(dtoMapper.toDto(headache).getDescription()).isEqualTo("Pain in the head or neck area");
+
+        SymptomEntryDto entryDto = dtoMapper.toDto(entry);
+        assertThat(entryDto.getSymptomName()).isEqualTo("Headache");
+        assertThat(entryDto.getSymptomCategory()).isEqualTo("Pain");
+        assertThat(entryDto.getLoggedAt()).isEqualTo(LocalDateTime.of(2026, 5, 3, 8, 15));
+
+        SymptomEntryDto customDto = dtoMapper.toDto(custom);
+        assertThat(customDto.getSymptomId()).isNull();
+        assertThat(customDto.getSymptomName()).isEqualTo("Custom symptom");
+        assertThat(customDto.getSymptomCategory()).isEqualTo("Custom");
+        assertThat(customDto.getCustomDescription()).isEqualTo("Eye strain");
+    }
+}
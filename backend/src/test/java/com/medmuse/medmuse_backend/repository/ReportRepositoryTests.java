@@ -0,0 +1,112 @@
+package com.medmuse.medmuse_backend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import com.medmuse.medmuse_backend.dto.ReportDto;
+import com.medmuse.medmuse_backend.entity.PromptMode;
+import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.entity.User;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ReportRepositoryTests {
+
+    private static final LocalDate START = LocalDate.of(2026, 5, 1);
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long userId;
+    private Long otherUserId;
+
+    @BeforeEach
+    void setUp() {
+        User user = entityManager.persist(new User("google-7", "jane@example.com", "Jane", null));
+        User other = entityManager.persist(new User("google-8", "john@example.com", "John", null));
+        userId = user.getId();
+        otherUserId = other.getId();
+
+        for (int i = 0; i < 12; i++) {
+            Report report = new Report(i % 4 == 3 ? other : user, START.plusWeeks(i), START.plusWeeks(i).plusDays(6));
+            report.setHealthSummary("Summary " + i);
+            report.setPromptMode(PromptMode.RAW);
+            entityManager.persist(report);
+            // @PrePersist stamps the current time; spread the reports over the weeks instead
+            report.setGeneratedAt(LocalDateTime.of(START.plusWeeks(i).plusDays(6), LocalTime.NOON));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void historyProjectionSelectsNewestFirstWithoutLoadingEntities() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<ReportDto> page = reportRepository.findReportDtosByUserId(userId, PageRequest.of(0, 4));
+
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(page.getTotalElements()).isEqualTo(9);
+        assertThat(page.getContent()).extracting(ReportDto::getHealthSummary)
+                .containsExactly("Summary 10", "Summary 9", "Summary 8", "Summary 6");
+        assertThat(page.getContent().get(0).getPromptMode()).isEqualTo(PromptMode.RAW);
+        assertThat(page.getContent().get(0).getRegenerateLater()).isNull();
+    }
+
+    @Test
+    void keysetPagesResumeAfterReportsGeneratedAtTheSameTime() {
+        // Regenerated in the same instant as the newest report
+        Report twin = new Report(entityManager.find(User.class, userId), START.plusWeeks(10),
+                START.plusWeeks(10).plusDays(6));
+        twin.setHealthSummary("Twin");
+        twin.setPromptMode(PromptMode.RAW);
+        entityManager.persist(twin);
+        twin.setGeneratedAt(LocalDateTime.of(START.plusWeeks(10).plusDays(6), LocalTime.NOON));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<ReportDto> first = reportRepository.findReportDtosByUserId(userId, Limit.of(4));
+        ReportDto last = first.get(3);
+        List<ReportDto> rest = reportRepository.findReportDtosBefore(userId, last.getGeneratedAt(), last.getId(),
+                Limit.of(10));
+
+        assertThat(first).extracting(ReportDto::getHealthSummary)
+                .containsExactly("Twin", "Summary 10", "Summary 9", "Summary 8");
+        assertThat(rest).extracting(ReportDto::getHealthSummary)
+                .containsExactly("Summary 6", "Summary 5", "Summary 4", "Summary 2", "Summary 1", "Summary 0");
+        assertThat(reportRepository.countByUserId(userId)).isEqualTo(10);
+    }
+
+    @Test
+    void singleReportProjectionIsScopedToItsOwner() {
+        Long reportId = reportRepository.findReportDtosByUserId(otherUserId).get(0).getId();
+
+        assertThat(reportRepository.findReportDtoByIdAndUserId(reportId, otherUserId))
+                .hasValueSatisfying(report -> assertThat(report.getHealthSummary()).isEqualTo("Summary 11"));
+        assertThat(reportRepository.findReportDtoByIdAndUserId(reportId, userId)).isEmpty();
+    }
+}
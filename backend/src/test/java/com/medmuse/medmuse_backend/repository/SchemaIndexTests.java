@@ -0,0 +1,107 @@
+package com.medmuse.medmuse_backend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Runs the Flyway migrations (the context only starts if Hibernate validates the entities
+ * against them) and checks through H2's EXPLAIN that the hot per-user queries are answered
+ * from the composite indexes. H2 only reports a sorted index scan when the ORDER BY starts
+ * with the index's first column, so the newest-first column order is checked on the index
+ * definition instead; PostgreSQL reads the user's rows in that order directly.
+ */
+@DataJpaTest
+class SchemaIndexTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void migrationsAreApplied() {
+        List<String> versions = jdbcTemplate.queryForList("""
+                SELECT "version" FROM "flyway_schema_history"
+                WHERE "success" AND "version" IS NOT NULL
+                ORDER BY "installed_rank"
+                """, String.class);
+
+        assertThat(versions).containsExactly("1", "2", "3");
+    }
+
+    @Test
+    void indexesListTheNewestRowsFirst() {
+        assertThat(indexColumns("IDX_SYMPTOM_ENTRIES_USER_DATE_TIME_ID"))
+                .containsExactly("USER_ID ASC", "ENTRY_DATE DESC", "ENTRY_TIME DESC", "ID DESC");
+        assertThat(indexColumns("IDX_REPORTS_USER_GENERATED_AT_ID"))
+                .containsExactly("USER_ID ASC", "GENERATED_AT DESC", "ID DESC");
+        assertThat(indexColumns("IDX_SYMPTOM_ENTRIES_USER_DATE_TIME")).isEmpty();
+        assertThat(indexColumns("IDX_REPORTS_USER_GENERATED_AT")).isEmpty();
+    }
+
+    @Test
+    void symptomTimelineUsesUserDateTimeIndex() {
+        String plan = explain("""
+                SELECT se.id FROM symptom_entries se
+                WHERE se.user_id = 1
+                ORDER BY se.entry_date DESC, se.entry_time DESC
+                OFFSET 0 ROWS FETCH FIRST 20 ROWS ONLY
+                """);
+
+        assertThat(plan).contains("IDX_SYMPTOM_ENTRIES_USER_DATE_TIME_ID");
+    }
+
+    @Test
+    void symptomKeysetPageUsesUserDateTimeIndex() {
+        String plan = explain("""
+                SELECT se.id FROM symptom_entries se
+                WHERE se.user_id = 1 AND se.entry_date <= DATE '2026-05-07'
+                  AND (se.entry_date < DATE '2026-05-07'
+                    OR (se.entry_date = DATE '2026-05-07' AND (se.entry_time < TIME '09:00'
+                      OR (se.entry_time = TIME '09:00' AND se.id < 42))))
+                ORDER BY se.entry_date DESC, se.entry_time DESC, se.id DESC
+                FETCH FIRST 21 ROWS ONLY
+                """);
+
+        assertThat(plan).contains("IDX_SYMPTOM_ENTRIES_USER_DATE_TIME_ID");
+    }
+
+    @Test
+    void symptomPeriodUsesUserDateTimeIndex() {
+        String plan = explain("""
+                SELECT se.id FROM symptom_entries se
+                WHERE se.user_id = 1 AND se.entry_date BETWEEN DATE '2026-05-01' AND DATE '2026-05-07'
+                ORDER BY se.entry_date DESC, se.entry_time DESC
+                """);
+
+        assertThat(plan).contains("IDX_SYMPTOM_ENTRIES_USER_DATE_TIME_ID");
+    }
+
+    @Test
+    void reportHistoryUsesUserGeneratedAtIndex() {
+        String plan = explain("""
+                SELECT r.id FROM reports r
+                WHERE r.user_id = 1
+                ORDER BY r.generated_at DESC
+                OFFSET 0 ROWS FETCH FIRST 10 ROWS ONLY
+                """);
+
+        assertThat(plan).contains("IDX_REPORTS_USER_GENERATED_AT_ID");
+    }
+
+    private List<String> indexColumns(String indexName) {
+        return jdbcTemplate.queryForList("""
+                SELECT COLUMN_NAME || ' ' || ORDERING_SPECIFICATION FROM INFORMATION_SCHEMA.INDEX_COLUMNS
+                WHERE INDEX_NAME = ?
+                ORDER BY ORDINAL_POSITION
+                """, String.class, indexName);
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+    }
+}
@@ -0,0 +1,189 @@
+package com.medmuse.medmuse_backend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import com.medmuse.medmuse_backend.dto.SymptomEntryDto;
+import com.medmuse.medmuse_backend.entity.Symptom;
+import com.medmuse.medmuse_backend.entity.SymptomEntry;
+import com.medmuse.medmuse_backend.entity.User;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class SymptomEntryRepositoryTests {
+
+    private static final LocalDate START = LocalDate.of(2026, 5, 1);
+    private static final int ENTRIES = 60;
+
+    @Autowired
+    private SymptomEntryRepository symptomEntryRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long userId;
+    private List<Long> symptomIds;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        User user = entityManager.persist(new User("google-7", "jane@example.com", "Jane", null));
+        userId = user.getId();
+
+        List<Symptom> symptoms = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            symptoms.add(entityManager.persist(new Symptom("Symptom " + i, "General", null)));
+        }
+        symptomIds = symptoms.stream().map(Symptom::getId).toList();
+
+        // Every entry has its own symptom within a page, plus custom entries without one
+        for (int i = 0; i < ENTRIES; i++) {
+            Symptom symptom = i % 6 == 5 ? null : symptoms.get(i % symptoms.size());
+            entityManager.persist(new SymptomEntry(user, symptom, symptom == null ? "Custom " + i : null, 1 + i % 10,
+                    null, START.plusDays(i / 3), LocalTime.of(8 + i % 3, 0)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void historyPageUsesTheSameStatementsForAnyPageSize() {
+        long small = statementsFor(() -> readPage(5));
+        long large = statementsFor(() -> readPage(25));
+
+        // Page select plus the count query
+        assertThat(small).isEqualTo(2);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void historyPageIsNewestFirstWithTotal() {
+        Page<SymptomEntryDto> page = symptomEntryRepository.findEntryDtosByUserId(userId, PageRequest.of(1, 10));
+
+        assertThat(page.getTotalElements()).isEqualTo(ENTRIES);
+        assertThat(page.getContent()).hasSize(10);
+        assertThat(page.getContent().get(0).getEntryDate()).isEqualTo(START.plusDays(16));
+        assertThat(page.getContent().get(0).getEntryTime()).isEqualTo(LocalTime.of(9, 0));
+    }
+
+    @Test
+    void periodReadsIncludeSymptomsInOneStatement() {
+        long all = statementsFor(() -> touch(symptomEntryRepository
+                .findEntryDtosInPeriod(userId, START, START.plusDays(30))));
+        long filtered = statementsFor(() -> touch(symptomEntryRepository
+                .findEntryDtosInPeriodForSymptoms(userId, START, START.plusDays(30), symptomIds.subList(0, 10))));
+
+        assertThat(all).isEqualTo(1);
+        assertThat(filtered).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void historyProjectionSelectsDtosWithoutLoadingEntities() {
+        List<SymptomEntryDto> entries = new ArrayList<>();
+        long statements = statementsFor(() -> entries.addAll(
+                symptomEntryRepository.findEntryDtosByUserId(userId, PageRequest.of(0, 25)).getContent()));
+
+        assertThat(statements).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(entries).hasSize(25);
+
+        SymptomEntryDto newest = entries.get(0);
+        assertThat(newest.getLoggedAt()).isEqualTo(START.plusDays(19).atTime(10, 0));
+        assertThat(newest.getSymptomId()).isNull();
+        assertThat(newest.getSymptomName()).isEqualTo("Custom symptom");
+        assertThat(newest.getSymptomCategory()).isEqualTo("Custom");
+        assertThat(newest.getCustomDescription()).isEqualTo("Custom 59");
+
+        SymptomEntryDto next = entries.get(1);
+        assertThat(next.getLoggedAt()).isEqualTo(START.plusDays(19).atTime(9, 0));
+        assertThat(next.getSymptomName()).isEqualTo("Symptom 8");
+        assertThat(next.getSymptomCategory()).isEqualTo("General");
+    }
+
+    @Test
+    void periodProjectionsAreNewestFirstAndFilterBySymptom() {
+        LocalDate end = START.plusDays(30);
+
+        assertThat(symptomEntryRepository.findEntryDtosInPeriod(userId, START.plusDays(2), end))
+                .hasSize(ENTRIES - 6)
+                .isSortedAccordingTo(Comparator.comparing(SymptomEntryDto::getEntryDate)
+                        .thenComparing(SymptomEntryDto::getEntryTime)
+                        .reversed());
+        assertThat(symptomEntryRepository.findEntryDtosInPeriodForSymptoms(userId, START, end, symptomIds.subList(0, 3)))
+                .extracting(SymptomEntryDto::getSymptomName)
+                .containsOnly("Symptom 0", "Symptom 1", "Symptom 2")
+                .hasSize(9);
+    }
+
+    @Test
+    void keysetPagesWalkTheHistoryOnceWithOneStatementEach() {
+        // Two more entries logged at the same moment as the newest symptom entry, so that
+        // pages of two end in the middle of the tie
+        User user = entityManager.find(User.class, userId);
+        Symptom symptom = entityManager.find(Symptom.class, symptomIds.get(0));
+        for (int i = 0; i < 2; i++) {
+            entityManager.persist(new SymptomEntry(user, symptom, null, 5, null, START.plusDays(19), LocalTime.of(9, 0)));
+        }
+        entityManager.flush();
+
+        List<SymptomEntryDto> walked = new ArrayList<>();
+        List<SymptomEntryDto> page = new ArrayList<>();
+        long statements = statementsFor(() -> page.addAll(symptomEntryRepository.findEntryDtosByUserId(userId, Limit.of(2))));
+        while (!page.isEmpty()) {
+            assertThat(statements).isEqualTo(1);
+            walked.addAll(page);
+            SymptomEntryDto last = page.get(page.size() - 1);
+            page.clear();
+            statements = statementsFor(() -> page.addAll(symptomEntryRepository.findEntryDtosBefore(userId,
+                    last.getEntryDate(), last.getEntryTime(), last.getId(), Limit.of(2))));
+        }
+
+        assertThat(walked).hasSize(ENTRIES + 2);
+        assertThat(walked).extracting(SymptomEntryDto::getId).doesNotHaveDuplicates();
+        assertThat(walked).isSortedAccordingTo(Comparator.comparing(SymptomEntryDto::getEntryDate)
+                .thenComparing(SymptomEntryDto::getEntryTime)
+                .thenComparing(SymptomEntryDto::getId)
+                .reversed());
+        assertThat(symptomEntryRepository.countByUserId(userId)).isEqualTo(ENTRIES + 2);
+    }
+
+    private void readPage(int size) {
+        touch(symptomEntryRepository.findEntryDtosByUserId(userId, PageRequest.of(0, size)).getContent());
+    }
+
+    private static void touch(List<SymptomEntryDto> entries) {
+        for (SymptomEntryDto entry : entries) {
+            assertThat(entry.getSymptomName()).isNotNull();
+        }
+    }
+
+    private long statementsFor(Runnable read) {
+        entityManager.clear();
+        statistics.clear();
+        read.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
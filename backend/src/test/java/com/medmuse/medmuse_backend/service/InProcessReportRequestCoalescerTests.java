@@ -0,0 +1,164 @@
+package com.medmuse.medmuse_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.medmuse.medmuse_backend.dto.ReportDto;
+import com.medmuse.medmuse_backend.service.interfaces.ReportRequestCoalescer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class InProcessReportRequestCoalescerTests {
+
+    private static final ReportRequestCoalescer.Key KEY = new ReportRequestCoalescer.Key(
+            7L, LocalDate.of(2026, 4, 28), LocalDate.of(2026, 5, 4), List.of(1L, 2L));
+
+    private SimpleMeterRegistry meterRegistry;
+    private InProcessReportRequestCoalescer coalescer;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new InProcessReportRequestCoalescer(meterRegistry);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void coalesceShouldShareOneComputationBetweenConcurrentCallers() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger computations = new AtomicInteger();
+        ReportDto report = new ReportDto();
+
+        Future<ReportDto> leader = executor.submit(() -> coalescer.coalesce(KEY, () -> {
+            computations.incrementAndGet();
+            leaderStarted.countDown();
+            awaitQuietly(release);
+            return report;
+        }));
+        leaderStarted.await(5, TimeUnit.SECONDS);
+        Future<ReportDto> follower = executor.submit(() -> coalescer.coalesce(KEY, () -> {
+            computations.incrementAndGet();
+            return new ReportDto();
+        }));
+
+        waitForCoalescedCount(1);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isSameAs(report);
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isSameAs(report);
+        assertThat(computations).hasValue(1);
+    }
+
+    @Test
+    void coalesceShouldPropagateFailureAndReleaseKey() throws Exception {
+        assertThatThrownBy(() -> coalescer.coalesce(KEY, () -> {
+            throw new IOException("disk full");
+        })).isInstanceOf(IOException.class);
+
+        ReportDto report = new ReportDto();
+        assertThat(coalescer.coalesce(KEY, () -> report)).isSameAs(report);
+        assertThat(meterRegistry.get("medmuse.report.requests.coalesced").counter().count()).isZero();
+    }
+
+    @Test
+    void coalesceShouldReleaseWaitersOnlyAfterTheLeaderCommits() throws Exception {
+        CountDownLatch computed = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ReportDto report = new ReportDto();
+
+        Future<ReportDto> leader = executor.submit(() -> inTransaction(() -> {
+            ReportDto result = coalescer.coalesce(KEY, () -> report);
+            computed.countDown();
+            awaitQuietly(commit);
+            return result;
+        }, TransactionSynchronization.STATUS_COMMITTED));
+        computed.await(5, TimeUnit.SECONDS);
+        Future<ReportDto> follower = executor.submit(() -> coalescer.coalesce(KEY, ReportDto::new));
+
+        waitForCoalescedCount(1);
+        assertThat(follower.isDone()).isFalse();
+        commit.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isSameAs(report);
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isSameAs(report);
+    }
+
+    @Test
+    void coalesceShouldFailWaitersWhenTheLeaderRollsBack() throws Exception {
+        CountDownLatch computed = new CountDownLatch(1);
+        CountDownLatch rollback = new CountDownLatch(1);
+
+        executor.submit(() -> inTransaction(() -> {
+            ReportDto result = coalescer.coalesce(KEY, ReportDto::new);
+            computed.countDown();
+            awaitQuietly(rollback);
+            return result;
+        }, TransactionSynchronization.STATUS_ROLLED_BACK));
+        computed.await(5, TimeUnit.SECONDS);
+        Future<ReportDto> follower = executor.submit(() -> coalescer.coalesce(KEY, ReportDto::new));
+
+        waitForCoalescedCount(1);
+        rollback.countDown();
+
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class);
+        ReportDto retried = new ReportDto();
+        assertThat(coalescer.coalesce(KEY, () -> retried)).isSameAs(retried);
+    }
+
+    // Stands in for a transaction manager on the calling thread
+    private static ReportDto inTransaction(Callable<ReportDto> work, int completionStatus) throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            ReportDto result = work.call();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(completionStatus);
+            }
+            return result;
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void waitForCoalescedCount(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("medmuse.report.requests.coalesced").counter().count() < expected
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.medmuse.medmuse_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.domain.Limit;
+
+import com.medmuse.medmuse_backend.config.PdfStorageProperties;
+import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.repository.ReportRepository;
+import com.medmuse.medmuse_backend.service.storage.PdfStore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class PdfRerenderServiceTests {
+
+    @Mock
+    private ReportRepository reportRepository;
+
+    @Mock
+    private PdfService pdfService;
+
+    @TempDir
+    private Path directory;
+
+    private Path checkpointFile;
+    private List<Report> reports;
+    private PdfStorageProperties properties;
+    private PdfRerenderService rerenderService;
+
+    @BeforeEach
+    void setUp() {
+        checkpointFile = directory.resolve("rerender.checkpoint");
+        properties = new PdfStorageProperties();
+        properties.getRerender().setBatchSize(2);
+        properties.getRerender().setWorkerThreads(4);
+        properties.getRerender().setMaxInFlight(2);
+        properties.getRerender().setCheckpointFile(checkpointFile.toString());
+        rerenderService = new PdfRerenderService(reportRepository, pdfService, properties, new SimpleMeterRegistry());
+
+        reports = LongStream.rangeClosed(1, 5).mapToObj(PdfRerenderServiceTests::buildReport).toList();
+        when(reportRepository.findStoredPdfReportsAfter(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0, Long.class);
+            int max = invocation.getArgument(1, Limit.class).max();
+            return reports.stream().filter(report -> report.getId() > afterId).limit(max).toList();
+        });
+    }
+
+    @Test
+    void rerendersEveryStoredPdfWithBoundedConcurrency() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(pdfService.generatePdf(any(Report.class))).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            Report report = invocation.getArgument(0);
+            // Report 3 renders to the object it already has
+            return stored(report.getId() == 3 ? report.getPdfPath() : "new/" + report.getId());
+        });
+
+        rerenderService.start(false);
+        PdfRerenderService.Progress progress = awaitFinished();
+
+        assertThat(progress.state()).isEqualTo(PdfRerenderService.State.COMPLETED);
+        assertThat(progress.processed()).isEqualTo(5);
+        assertThat(progress.rerendered()).isEqualTo(4);
+        assertThat(progress.unchanged()).isEqualTo(1);
+        assertThat(progress.checkpoint()).isEqualTo(5);
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+        verify(reportRepository).updatePdf(1L, "new/1", "digest-new/1");
+        verify(reportRepository, never()).updatePdf(3L, "old/3", "digest-old/3");
+        verify(reportRepository, times(4)).updatePdf(anyLong(), any(), any());
+        assertThat(checkpointFile).doesNotExist();
+    }
+
+    @Test
+    void resumesAfterTheCheckpoint() throws Exception {
+        Files.writeString(checkpointFile, "4", StandardCharsets.US_ASCII);
+        when(reportRepository.countByIdGreaterThanAndPdfPathIsNotNull(4L)).thenReturn(1L);
+        when(pdfService.generatePdf(any(Report.class))).thenAnswer(invocation -> stored("new"));
+
+        assertThat(rerenderService.start(false).total()).isEqualTo(1);
+        PdfRerenderService.Progress progress = awaitFinished();
+
+        assertThat(progress.processed()).isEqualTo(1);
+        verify(pdfService).generatePdf(reports.get(4));
+        verify(pdfService, times(1)).generatePdf(any(Report.class));
+    }
+
+    @Test
+    void stopKeepsCheckpointOfFinishedBatches() throws Exception {
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(pdfService.generatePdf(any(Report.class))).thenAnswer(invocation -> {
+            rendering.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return stored("new");
+        });
+
+        rerenderService.start(false);
+        assertThat(rendering.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(rerenderService.stop().state()).isEqualTo(PdfRerenderService.State.STOPPING);
+        release.countDown();
+        PdfRerenderService.Progress progress = awaitFinished();
+
+        assertThat(progress.state()).isEqualTo(PdfRerenderService.State.STOPPED);
+        assertThat(progress.processed()).isEqualTo(2);
+        assertThat(Files.readString(checkpointFile)).isEqualTo("2");
+    }
+
+    @Test
+    void failedReportKeepsItsPdfAndDoesNotStopTheRun() throws Exception {
+        when(pdfService.generatePdf(any(Report.class))).thenAnswer(invocation -> {
+            Report report = invocation.getArgument(0);
+            if (report.getId() == 2) {
+                throw new IllegalStateException("broken");
+            }
+            return stored("new/" + report.getId());
+        });
+
+        rerenderService.start(true);
+        PdfRerenderService.Progress progress = awaitFinished();
+
+        assertThat(progress.state()).isEqualTo(PdfRerenderService.State.COMPLETED);
+        assertThat(progress.failed()).isEqualTo(1);
+        assertThat(progress.failedReportIds()).containsExactly(2L);
+        verify(reportRepository, never()).updatePdf(2L, "new/2", "digest-new/2");
+    }
+
+    private PdfRerenderService.Progress awaitFinished() throws InterruptedException {
+        assertThat(rerenderService.awaitTermination(Duration.ofSeconds(10))).isTrue();
+        return rerenderService.progress();
+    }
+
+    private static PdfStore.StoredPdf stored(String key) {
+        return new PdfStore.StoredPdf(key, "digest-" + key, 4, Instant.EPOCH, new ByteArrayResource(new byte[4]));
+    }
+
+    private static Report buildReport(long id) {
+        Report report = new Report();
+        report.setId(id);
+        report.setPdfPath("old/" + id);
+        return report;
+    }
+}
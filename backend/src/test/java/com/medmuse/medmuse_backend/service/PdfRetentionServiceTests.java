@@ -0,0 +1,162 @@
+package com.medmuse.medmuse_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import com.medmuse.medmuse_backend.config.PdfStorageProperties;
+import com.medmuse.medmuse_backend.repository.PdfReference;
+import com.medmuse.medmuse_backend.repository.ReportRepository;
+import com.medmuse.medmuse_backend.service.storage.LocalPdfStore;
+import com.medmuse.medmuse_backend.service.storage.PdfStore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class PdfRetentionServiceTests {
+
+    private static final Instant NOW = Instant.parse("2026-06-01T12:00:00Z");
+
+    @Mock
+    private ReportRepository reportRepository;
+
+    @TempDir
+    private Path directory;
+
+    private PdfStore pdfStore;
+    private PdfStorageProperties properties;
+    private PdfRetentionService retentionService;
+
+    @BeforeEach
+    void setUp() {
+        pdfStore = new LocalPdfStore(directory, false, Clock.fixed(NOW, ZoneOffset.UTC));
+        properties = new PdfStorageProperties();
+        properties.getSweep().setBatchSize(2);
+        properties.getSweep().setBatchPause(Duration.ZERO);
+        retentionService = new PdfRetentionService(pdfStore, reportRepository, properties,
+                new SimpleMeterRegistry(), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void deletesOrphansPastTheGracePeriodOnly() throws Exception {
+        String referenced = store("referenced", Duration.ofDays(2));
+        String oldOrphan = store("old orphan", Duration.ofDays(2));
+        String freshOrphan = store("fresh orphan", Duration.ofMinutes(5));
+        referenceOnly(Set.of(referenced));
+
+        PdfRetentionService.SweepResult result = retentionService.sweep();
+
+        assertThat(result.scanned()).isEqualTo(3);
+        assertThat(result.orphansDeleted()).isEqualTo(1);
+        assertThat(pdfStore.find(oldOrphan)).isEmpty();
+        assertThat(pdfStore.find(freshOrphan)).isPresent();
+        assertThat(pdfStore.find(referenced)).isPresent();
+    }
+
+    @Test
+    void evictsReferencedObjectsPastRetentionAndUnlinksTheirReports() throws Exception {
+        String expired = store("expired", Duration.ofDays(45));
+        String recent = store("recent", Duration.ofDays(3));
+        referenceOnly(Set.of(expired, recent));
+
+        PdfRetentionService.SweepResult result = retentionService.sweep();
+
+        assertThat(result.expiredDeleted()).isEqualTo(1);
+        assertThat(pdfStore.find(expired)).isEmpty();
+        assertThat(pdfStore.find(recent)).isPresent();
+        verify(reportRepository).clearPdfPaths(List.of(expired));
+    }
+
+    @Test
+    void unlinksReportsWhoseObjectIsGone() throws Exception {
+        String present = store("present", Duration.ofDays(1));
+        String missing = PdfStore.keyFor("ab".repeat(32), false);
+        String legacy = directory.resolve("health-report_Jane_2026-01-01T10-00_3.pdf").toString();
+        referenceOnly(Set.of(present));
+        when(reportRepository.findPdfReferencesAfter(0L, Limit.of(2)))
+                .thenReturn(List.of(new PdfReference(1L, present), new PdfReference(2L, missing)));
+        when(reportRepository.findPdfReferencesAfter(2L, Limit.of(2)))
+                .thenReturn(List.of(new PdfReference(3L, legacy)));
+        when(reportRepository.clearPdfPath(anyLong(), any())).thenReturn(1);
+
+        PdfRetentionService.SweepResult result = retentionService.sweep();
+
+        assertThat(result.missingCleared()).isEqualTo(2);
+        verify(reportRepository).clearPdfPath(2L, missing);
+        verify(reportRepository).clearPdfPath(3L, legacy);
+        verify(reportRepository, never()).clearPdfPath(1L, present);
+    }
+
+    @Test
+    void keepsOldObjectsThatWereJustWrittenAgain() throws Exception {
+        String orphan = store("rendered again for a report not committed yet", Duration.ofDays(2));
+        String expired = store("reused by a new report", Duration.ofDays(45));
+        referenceOnly(Set.of(expired));
+
+        assertThat(pdfStore.put("rendered again for a report not committed yet".getBytes(StandardCharsets.US_ASCII))
+                .key()).isEqualTo(orphan);
+        assertThat(pdfStore.put("reused by a new report".getBytes(StandardCharsets.US_ASCII)).key())
+                .isEqualTo(expired);
+        PdfRetentionService.SweepResult result = retentionService.sweep();
+
+        assertThat(result.orphansDeleted()).isZero();
+        assertThat(result.expiredDeleted()).isZero();
+        assertThat(pdfStore.find(orphan)).isPresent();
+        assertThat(pdfStore.find(expired)).isPresent();
+        verify(reportRepository, never()).clearPdfPaths(any());
+    }
+
+    @Test
+    void stopsAfterTheDeleteCap() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            store("orphan " + i, Duration.ofDays(2));
+        }
+        referenceOnly(Set.of());
+        properties.getSweep().setMaxDeletesPerRun(3);
+
+        PdfRetentionService.SweepResult result = retentionService.sweep();
+
+        assertThat(result.orphansDeleted()).isEqualTo(3);
+        assertThat(pdfStore.list(null, 10)).hasSize(2);
+    }
+
+    private String store(String content, Duration age) throws Exception {
+        String key = pdfStore.put(content.getBytes(StandardCharsets.US_ASCII)).key();
+        Files.setLastModifiedTime(directory.resolve(key), FileTime.from(NOW.minus(age)));
+        return key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void referenceOnly(Set<String> keys) {
+        when(reportRepository.findReferencedPdfPaths(anyCollection())).thenAnswer(invocation -> {
+            Set<String> referenced = new HashSet<>((Collection<String>) invocation.getArgument(0));
+            referenced.retainAll(keys);
+            return referenced;
+        });
+    }
+}
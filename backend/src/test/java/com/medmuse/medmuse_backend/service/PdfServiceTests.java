@@ -0,0 +1,236 @@
+package com.medmuse.medmuse_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Limit;
+
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.entity.User;
+import com.medmuse.medmuse_backend.repository.AppendixRow;
+import com.medmuse.medmuse_backend.repository.SeverityPoint;
+import com.medmuse.medmuse_backend.repository.SymptomEntryRepository;
+import com.medmuse.medmuse_backend.service.storage.LocalPdfStore;
+import com.medmuse.medmuse_backend.service.storage.PdfStore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PdfServiceTests {
+
+    @TempDir
+    private Path directory;
+
+    private SymptomEntryRepository symptomEntryRepository;
+    private PdfService pdfService;
+
+    @BeforeEach
+    void setUp() {
+        symptomEntryRepository = mock(SymptomEntryRepository.class);
+        pdfService = new PdfService(new LocalPdfStore(directory, false), symptomEntryRepository,
+                new SeverityChartRenderer(new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void renderPdfWritesToStreamAndLeavesItOpen() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+
+        pdfService.renderPdf(buildReport(), outputStream);
+
+        assertThat(new String(outputStream.toByteArray(), 0, 5, StandardCharsets.US_ASCII)).isEqualTo("%PDF-");
+        assertThat(closed).isFalse();
+    }
+
+    @Test
+    void renderPdfDatesTheDocumentInTheServerZoneLikeTheGeneratedAtTimestamp() throws Exception {
+        TimeZone serverZone = TimeZone.getDefault();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+            pdfService.renderPdf(buildReport(), outputStream);
+        } finally {
+            TimeZone.setDefault(serverZone);
+        }
+
+        PdfReader reader = new PdfReader(outputStream.toByteArray());
+        try {
+            // generatedAt is server-local time, so it carries the server's offset rather than UTC
+            assertThat(reader.getInfo().get("CreationDate")).isEqualTo("D:20260507183000+05'30'");
+            assertThat(reader.getInfo().get("ModDate")).isEqualTo("D:20260507183000+05'30'");
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    void generatePdfStoresUnderShardedContentKey() throws Exception {
+        PdfStore.StoredPdf stored = pdfService.generatePdf(buildReport());
+
+        assertThat(stored.key()).matches(PdfStore.KEY_PATTERN)
+                .startsWith(stored.digest().substring(0, 2) + "/" + stored.digest().substring(2, 4) + "/");
+        Path path = directory.resolve(stored.key());
+        assertThat(Files.readAllBytes(path)).startsWith("%PDF-".getBytes(StandardCharsets.US_ASCII));
+        assertThat(PdfStore.sha256(Files.readAllBytes(path))).isEqualTo(stored.digest());
+    }
+
+    @Test
+    void rerenderingUnchangedReportReusesStoredObject() throws Exception {
+        PdfStore.StoredPdf first = pdfService.generatePdf(buildReport());
+        PdfStore.StoredPdf second = pdfService.generatePdf(buildReport());
+
+        assertThat(second.key()).isEqualTo(first.key());
+        try (Stream<Path> files = Files.walk(directory)) {
+            assertThat(files.filter(Files::isRegularFile).count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void concurrentRendersShareStaticBlocksSafely() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<byte[]>> renders = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                renders.add(executor.submit(() -> {
+                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                    pdfService.renderPdf(buildReport(), outputStream);
+                    return outputStream.toByteArray();
+                }));
+            }
+
+            for (Future<byte[]> render : renders) {
+                PdfReader reader = new PdfReader(render.get(10, TimeUnit.SECONDS));
+                try {
+                    String text = PdfTextExtractor.getTextFromPage(reader, reader.getNumberOfPages());
+                    assertThat(text).contains("Medical Disclaimer", "Generated by MedMuse Healthcare Platform");
+                } finally {
+                    reader.close();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rendersSeverityChartPerSymptomAndEntryAppendix() throws Exception {
+        Report report = buildReport(3L);
+        when(symptomEntryRepository.findSeverityPoints(3L, report.getWeekStartDate(), report.getWeekEndDate(),
+                report.getGeneratedAt())).thenReturn(List.of(
+                        new SeverityPoint(1L, "Headache", LocalDate.of(2026, 5, 1), 6, 5.0, 2L),
+                        new SeverityPoint(1L, "Headache", LocalDate.of(2026, 5, 3), 4, 4.0, 1L),
+                        new SeverityPoint(null, null, LocalDate.of(2026, 5, 2), 3, 3.0, 1L)));
+        when(symptomEntryRepository.findAppendixRowsAfter(eq(3L), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(
+                        new AppendixRow(21L, LocalDate.of(2026, 5, 1), LocalTime.of(8, 15), "Headache", null, 6,
+                                "After a short night"),
+                        new AppendixRow(22L, LocalDate.of(2026, 5, 2), LocalTime.of(9, 0), null, "Itchy eyes", 3,
+                                null)));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        pdfService.renderPdf(report, outputStream);
+
+        PdfReader reader = new PdfReader(outputStream.toByteArray());
+        try {
+            StringBuilder text = new StringBuilder();
+            int images = 0;
+            for (int page = 1; page <= reader.getNumberOfPages(); page++) {
+                text.append(PdfTextExtractor.getTextFromPage(reader, page)).append('\n');
+                if (reader.getPageResources(page).getAsDict(PdfName.XOBJECT) != null) {
+                    images += reader.getPageResources(page).getAsDict(PdfName.XOBJECT).size();
+                }
+            }
+            assertThat(text).contains("Symptom Severity", "Headache - 3 entries, peak 6, mean 4.7",
+                    "Custom symptoms - 1 entry, peak 3, mean 3.0", "Appendix: Symptom Entries",
+                    "After a short night", "Custom: Itchy eyes", "Medical Disclaimer");
+            assertThat(images).isEqualTo(2);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    void appendixReadsEntriesInKeysetBatches() throws Exception {
+        Report report = buildReport(3L);
+        when(symptomEntryRepository.findAppendixRowsAfter(eq(3L), any(), any(), any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    long afterId = invocation.getArgument(6, Long.class);
+                    int count = afterId < 1000 ? 500 : 120;
+                    List<AppendixRow> rows = new ArrayList<>();
+                    for (long id = afterId + 1; id <= afterId + count; id++) {
+                        rows.add(new AppendixRow(id, LocalDate.of(2026, 5, 1 + (int) (id % 7)), LocalTime.NOON,
+                                "Headache", null, 5, "Entry " + id));
+                    }
+                    return rows;
+                });
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        pdfService.renderPdf(report, outputStream);
+
+        verify(symptomEntryRepository, times(3)).findAppendixRowsAfter(eq(3L), any(), any(), any(), any(), any(),
+                any(), eq(Limit.of(500)));
+        verify(symptomEntryRepository).findAppendixRowsAfter(3L, report.getWeekStartDate(),
+                report.getWeekEndDate(), report.getGeneratedAt(), LocalDate.of(2026, 4, 30), LocalTime.MIN, 0L,
+                Limit.of(500));
+        PdfReader reader = new PdfReader(outputStream.toByteArray());
+        try {
+            assertThat(reader.getNumberOfPages()).isGreaterThan(20);
+            String lastPages = PdfTextExtractor.getTextFromPage(reader, reader.getNumberOfPages() - 1)
+                    + PdfTextExtractor.getTextFromPage(reader, reader.getNumberOfPages());
+            assertThat(lastPages).contains("Entry 1120");
+            assertThat(PdfTextExtractor.getTextFromPage(reader, 10)).contains("Date", "Severity", "Notes");
+        } finally {
+            reader.close();
+        }
+    }
+
+    private Report buildReport() {
+        return buildReport(null);
+    }
+
+    private Report buildReport(Long userId) {
+        User user = new User();
+        user.setId(userId);
+        user.setName("Jane Doe");
+
+        Report report = new Report(user, LocalDate.of(2026, 5, 1), LocalDate.of(2026, 5, 7));
+        report.setId(12L);
+        report.setGeneratedAt(LocalDateTime.of(2026, 5, 7, 18, 30));
+        report.setHealthSummary("Stable overall");
+        report.setRiskAreas("Hydration");
+        report.setRecommendations("Drink more water");
+        return report;
+    }
+}
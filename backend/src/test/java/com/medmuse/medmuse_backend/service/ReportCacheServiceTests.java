@@ -0,0 +1,114 @@
+package com.medmuse.medmuse_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.medmuse.medmuse_backend.config.ReportCacheProperties;
+import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.entity.User;
+import com.medmuse.medmuse_backend.entity.UserDemographics;
+import com.medmuse.medmuse_backend.repository.EntryWatermark;
+import com.medmuse.medmuse_backend.repository.ReportRepository;
+import com.medmuse.medmuse_backend.repository.SymptomEntryRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ReportCacheServiceTests {
+
+    private static final LocalDate START = LocalDate.of(2026, 4, 28);
+    private static final LocalDate END = LocalDate.of(2026, 5, 4);
+
+    @Mock
+    private ReportRepository reportRepository;
+
+    @Mock
+    private SymptomEntryRepository symptomEntryRepository;
+
+    private ReportCacheService reportCacheService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        reportCacheService = new ReportCacheService(reportRepository, symptomEntryRepository,
+                new ReportCacheProperties(), new SimpleMeterRegistry());
+
+        user = new User();
+        user.setId(7L);
+        UserDemographics demographics = new UserDemographics();
+        demographics.setVersion(3L);
+        user.setDemographics(demographics);
+    }
+
+    @Test
+    void lookupKeyShouldChangeWhenEntriesOrDemographicsChange() {
+        when(symptomEntryRepository.findWatermark(7L, START, END))
+                .thenReturn(new EntryWatermark(4L, LocalDateTime.of(2026, 5, 4, 9, 0)))
+                .thenReturn(new EntryWatermark(4L, LocalDateTime.of(2026, 5, 4, 9, 0)))
+                .thenReturn(new EntryWatermark(3L, LocalDateTime.of(2026, 5, 4, 9, 0)))
+                .thenReturn(new EntryWatermark(3L, LocalDateTime.of(2026, 5, 4, 9, 0)));
+        when(reportRepository.findFirstByUserIdAndCacheKeyOrderByGeneratedAtDesc(eq(7L), anyString()))
+                .thenReturn(Optional.empty());
+
+        String original = reportCacheService.lookup(user, START, END, List.of(2L, 1L)).cacheKey();
+        String reordered = reportCacheService.lookup(user, START, END, List.of(1L, 2L)).cacheKey();
+        String afterDelete = reportCacheService.lookup(user, START, END, List.of(1L, 2L)).cacheKey();
+        user.getDemographics().setVersion(4L);
+        String afterDemographics = reportCacheService.lookup(user, START, END, List.of(1L, 2L)).cacheKey();
+
+        assertThat(reordered).isEqualTo(original).hasSize(64);
+        assertThat(afterDelete).isNotEqualTo(original);
+        assertThat(afterDemographics).isNotEqualTo(afterDelete);
+    }
+
+    @Test
+    void lookupShouldServeRepeatRequestsLocallyUntilUserDataChanges() {
+        Report report = new Report();
+        report.setId(99L);
+        when(symptomEntryRepository.findWatermark(7L, START, END))
+                .thenReturn(new EntryWatermark(1L, LocalDateTime.of(2026, 5, 4, 9, 0)));
+        when(reportRepository.findFirstByUserIdAndCacheKeyOrderByGeneratedAtDesc(eq(7L), anyString()))
+                .thenReturn(Optional.of(report));
+        when(reportRepository.findByIdAndUserId(99L, 7L)).thenReturn(Optional.of(report));
+
+        assertThat(reportCacheService.lookup(user, START, END, List.of()).report()).isSameAs(report);
+        assertThat(reportCacheService.lookup(user, START, END, List.of()).report()).isSameAs(report);
+        verify(symptomEntryRepository, times(1)).findWatermark(7L, START, END);
+
+        reportCacheService.invalidate(7L);
+
+        assertThat(reportCacheService.lookup(user, START, END, List.of()).hit()).isTrue();
+        verify(symptomEntryRepository, times(2)).findWatermark(7L, START, END);
+    }
+
+    @Test
+    void lookupShouldNotReuseReportsWhenDisabled() {
+        ReportCacheProperties properties = new ReportCacheProperties();
+        properties.setEnabled(false);
+        reportCacheService = new ReportCacheService(reportRepository, symptomEntryRepository, properties,
+                new SimpleMeterRegistry());
+        when(symptomEntryRepository.findWatermark(7L, START, END)).thenReturn(new EntryWatermark(0L, null));
+
+        ReportCacheService.Lookup lookup = reportCacheService.lookup(user, START, END, List.of());
+
+        assertThat(lookup.hit()).isFalse();
+        assertThat(lookup.cacheKey()).isNotBlank();
+        verify(reportRepository, never()).findFirstByUserIdAndCacheKeyOrderByGeneratedAtDesc(eq(7L), anyString());
+    }
+}
@@ -0,0 +1,148 @@
+package com.medmuse.medmuse_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.LongStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.domain.Limit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medmuse.medmuse_backend.config.PdfStorageProperties;
+import com.medmuse.medmuse_backend.repository.ReportExportEntry;
+import com.medmuse.medmuse_backend.repository.ReportRepository;
+import com.medmuse.medmuse_backend.service.storage.LocalPdfStore;
+import com.medmuse.medmuse_backend.service.storage.PdfStore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+
+@ExtendWith(MockitoExtension.class)
+class ReportExportServiceTests {
+
+    private static final LocalDate START = LocalDate.of(2026, 5, 1);
+    private static final LocalDate END = LocalDate.of(2026, 5, 7);
+
+    @Mock
+    private ReportRepository reportRepository;
+
+    @Mock
+    private ReportPdfService reportPdfService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @TempDir
+    private Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private PdfStore pdfStore;
+    private ReportExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        pdfStore = new LocalPdfStore(directory, false);
+        exportService = new ReportExportService(reportRepository, reportPdfService, pdfStore,
+                new PdfStorageProperties(), objectMapper, entityManager, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void writesManifestThenStoredAndRenderedPdfs() throws Exception {
+        String storedKey = pdfStore.put(bytes("%PDF stored")).key();
+        when(reportRepository.findMaxIdByUserId(7L)).thenReturn(Optional.of(12L));
+        when(reportRepository.findExportEntriesBefore(7L, 13L, Limit.of(ReportExportService.BATCH_SIZE)))
+                .thenReturn(List.of(entry(12L, storedKey), entry(11L, null)));
+        when(reportPdfService.getPdf(7L, 11L)).thenReturn(new ReportPdfService.PdfFile(
+                "ignored.pdf", "digest", 14, Instant.now(), new ByteArrayResource(bytes("%PDF rendered"))));
+
+        Map<String, byte[]> entries = export(7L);
+
+        assertThat(entries.keySet()).containsExactly("manifest.json",
+                "health-report_2026-05-01_2026-05-07_12.pdf", "health-report_2026-05-01_2026-05-07_11.pdf");
+        assertThat(entries.get("health-report_2026-05-01_2026-05-07_12.pdf")).isEqualTo(bytes("%PDF stored"));
+        assertThat(entries.get("health-report_2026-05-01_2026-05-07_11.pdf")).isEqualTo(bytes("%PDF rendered"));
+
+        JsonNode manifest = objectMapper.readTree(entries.get("manifest.json"));
+        assertThat(manifest.get("reports")).hasSize(2);
+        assertThat(manifest.get("reports").get(0).get("id").asLong()).isEqualTo(12L);
+        assertThat(manifest.get("reports").get(1).get("file").asText())
+                .isEqualTo("health-report_2026-05-01_2026-05-07_11.pdf");
+
+        verify(reportPdfService, never()).getPdf(7L, 12L);
+        verify(entityManager).clear();
+    }
+
+    @Test
+    void readsReportsInKeysetBatches() throws Exception {
+        int batch = ReportExportService.BATCH_SIZE;
+        String key = pdfStore.put(bytes("%PDF")).key();
+        List<ReportExportEntry> first = LongStream.rangeClosed(1, batch)
+                .mapToObj(i -> entry(1000 - i, key)).toList();
+        when(reportRepository.findMaxIdByUserId(7L)).thenReturn(Optional.of(999L));
+        when(reportRepository.findExportEntriesBefore(7L, 1000L, Limit.of(batch))).thenReturn(first);
+        when(reportRepository.findExportEntriesBefore(7L, 1000L - batch, Limit.of(batch)))
+                .thenReturn(List.of(entry(3L, key)));
+
+        Map<String, byte[]> entries = export(7L);
+
+        assertThat(entries).hasSize(batch + 2);
+        verify(reportPdfService, never()).getPdf(anyLong(), anyLong());
+    }
+
+    @Test
+    void exportsAnEmptyManifestForUsersWithoutReports() throws Exception {
+        when(reportRepository.findMaxIdByUserId(7L)).thenReturn(Optional.empty());
+
+        Map<String, byte[]> entries = export(7L);
+
+        assertThat(entries.keySet()).containsExactly("manifest.json");
+        assertThat(objectMapper.readTree(entries.get("manifest.json")).get("reports")).isEmpty();
+        verify(reportRepository, never()).findExportEntriesBefore(anyLong(), anyLong(), any(Limit.class));
+    }
+
+    private Map<String, byte[]> export(Long userId) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportService.export(userId, outputStream);
+
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+    private ReportExportEntry entry(long id, String pdfPath) {
+        return new ReportExportEntry(id, START, END, LocalDateTime.of(2026, 5, 7, 18, 30), pdfPath);
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,129 @@
+package com.medmuse.medmuse_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.medmuse.medmuse_backend.config.ReportJobConfig;
+import com.medmuse.medmuse_backend.config.ReportJobProperties;
+import com.medmuse.medmuse_backend.dto.ReportDto;
+import com.medmuse.medmuse_backend.dto.ReportJobDto;
+import com.medmuse.medmuse_backend.exception.ReportJobRejectedException;
+import com.medmuse.medmuse_backend.exception.ResourceNotFoundException;
+import com.medmuse.medmuse_backend.service.interfaces.ReportServiceInterface;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ReportJobServiceTests {
+
+    private static final LocalDate START = LocalDate.of(2026, 4, 28);
+    private static final LocalDate END = LocalDate.of(2026, 5, 4);
+
+    @Mock
+    private ReportServiceInterface reportService;
+
+    private ThreadPoolTaskExecutor executor;
+    private SimpleMeterRegistry meterRegistry;
+    private ReportJobService reportJobService;
+
+    @BeforeEach
+    void setUp() {
+        ReportJobProperties properties = new ReportJobProperties();
+        properties.setWorkerThreads(1);
+        properties.setQueueCapacity(1);
+        properties.setShutdownTimeout(Duration.ofSeconds(5));
+
+        executor = new ReportJobConfig().reportJobExecutor(properties);
+        executor.initialize();
+        meterRegistry = new SimpleMeterRegistry();
+        reportJobService = new ReportJobService(reportService, executor, properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void submitRunsReportGenerationInBackgroundAndExposesResult() throws Exception {
+        ReportDto report = new ReportDto();
+        report.setId(99L);
+        when(reportService.generateReportForPeriod(7L, START, END, List.of(2L))).thenReturn(report);
+
+        ReportJobDto submitted = reportJobService.submit(7L, START, END, List.of(2L));
+        assertThat(submitted.getJobId()).isNotBlank();
+
+        ReportJobDto finished = awaitFinished(7L, submitted.getJobId());
+
+        assertThat(finished.getStatus()).isEqualTo(ReportJobDto.Status.COMPLETED);
+        assertThat(finished.getReport().getId()).isEqualTo(99L);
+        assertThat(meterRegistry.get("medmuse.report.jobs.run").tag("outcome", "completed").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void submitRecordsFailureWithoutLeakingExceptionDetails() throws Exception {
+        when(reportService.generateReportForPeriod(eq(7L), any(), any(), any()))
+                .thenThrow(new RuntimeException("provider exploded"));
+
+        ReportJobDto submitted = reportJobService.submit(7L, START, END, List.of());
+        ReportJobDto finished = awaitFinished(7L, submitted.getJobId());
+
+        assertThat(finished.getStatus()).isEqualTo(ReportJobDto.Status.FAILED);
+        assertThat(finished.getError()).isEqualTo("Report generation failed");
+    }
+
+    @Test
+    void submitRejectsWhenWorkerAndQueueAreFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(reportService.generateReportForPeriod(eq(7L), any(), any(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new ReportDto();
+        });
+
+        reportJobService.submit(7L, START, END, List.of());
+        reportJobService.submit(7L, START, END, List.of());
+
+        try {
+            assertThatThrownBy(() -> reportJobService.submit(7L, START, END, List.of()))
+                    .isInstanceOf(ReportJobRejectedException.class);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void getJobHidesJobsOwnedByOtherUsers() {
+        ReportJobDto submitted = reportJobService.submit(7L, START, END, List.of());
+
+        assertThatThrownBy(() -> reportJobService.getJob(8L, submitted.getJobId()))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private ReportJobDto awaitFinished(Long userId, String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        ReportJobDto job = reportJobService.getJob(userId, jobId);
+        while (job.getFinishedAt() == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            job = reportJobService.getJob(userId, jobId);
+        }
+        return job;
+    }
+}
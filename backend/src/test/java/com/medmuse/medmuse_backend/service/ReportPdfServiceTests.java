@@ -0,0 +1,207 @@
+package com.medmuse.medmuse_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.exception.ResourceNotFoundException;
+import com.medmuse.medmuse_backend.repository.EntryWatermark;
+import com.medmuse.medmuse_backend.repository.ReportRepository;
+import com.medmuse.medmuse_backend.repository.SymptomEntryRepository;
+import com.medmuse.medmuse_backend.service.storage.LocalPdfStore;
+import com.medmuse.medmuse_backend.service.storage.PdfStore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ReportPdfServiceTests {
+
+    @Mock
+    private ReportRepository reportRepository;
+
+    @Mock
+    private PdfService pdfService;
+
+    @Mock
+    private SymptomEntryRepository symptomEntryRepository;
+
+    @TempDir
+    private Path directory;
+
+    private PdfStore pdfStore;
+    private ReportPdfService reportPdfService;
+
+    @BeforeEach
+    void setUp() {
+        pdfStore = new LocalPdfStore(directory.resolve("store"), false);
+        reportPdfService = new ReportPdfService(reportRepository, pdfService, pdfStore, symptomEntryRepository,
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void rendersOnFirstDownloadAndStoresKey() throws Exception {
+        Report report = buildReport(null);
+        PdfStore.StoredPdf stored = pdfStore.put(bytes("%PDF"));
+        when(reportRepository.findByIdAndUserId(9L, 7L)).thenReturn(Optional.of(report));
+        when(pdfService.generatePdf(report)).thenReturn(stored);
+
+        ReportPdfService.PdfFile result = reportPdfService.getPdf(7L, 9L);
+
+        assertThat(result.filename()).isEqualTo("health-report_2026-05-01_2026-05-07_9.pdf");
+        assertThat(result.length()).isEqualTo(4);
+        assertThat(result.digest()).isEqualTo("315d429b7714cedb6ad04ac31240145257692630457f3c88253c5beceac76027");
+        assertThat(report.getPdfPath()).isEqualTo("31/5d/" + result.digest() + ".pdf");
+        assertThat(report.getPdfDigest()).isEqualTo(result.digest());
+    }
+
+    @Test
+    void reusesStoredPdf() throws Exception {
+        PdfStore.StoredPdf stored = pdfStore.put(bytes("%PDF"));
+        Report report = buildReport(stored.key());
+        when(reportRepository.findByIdAndUserId(9L, 7L)).thenReturn(Optional.of(report));
+
+        ReportPdfService.PdfFile result = reportPdfService.getPdf(7L, 9L);
+
+        assertThat(result.digest()).isEqualTo(stored.digest());
+        assertThat(result.resource().getContentAsByteArray()).isEqualTo(bytes("%PDF"));
+        verify(pdfService, never()).generatePdf(any(Report.class));
+    }
+
+    @Test
+    void rerendersWhenStoredObjectIsMissing() throws Exception {
+        Report report = buildReport(PdfStore.keyFor("ab".repeat(32), false));
+        PdfStore.StoredPdf stored = pdfStore.put(bytes("%PDF"));
+        when(reportRepository.findByIdAndUserId(9L, 7L)).thenReturn(Optional.of(report));
+        when(pdfService.generatePdf(report)).thenReturn(stored);
+
+        assertThat(reportPdfService.getPdf(7L, 9L).digest()).isEqualTo(stored.digest());
+        assertThat(report.getPdfPath()).isEqualTo(stored.key());
+    }
+
+    @Test
+    void importsPdfRenderedBeforeTheStore() throws Exception {
+        Path legacy = Files.writeString(directory.resolve("health-report_Jane_2026-05-07T18-30_9.pdf"), "%PDF");
+        Report report = buildReport(legacy.toString());
+        when(reportRepository.findByIdAndUserId(9L, 7L)).thenReturn(Optional.of(report));
+
+        ReportPdfService.PdfFile result = reportPdfService.getPdf(7L, 9L);
+
+        assertThat(report.getPdfPath()).isEqualTo(PdfStore.keyFor(result.digest(), false));
+        assertThat(report.getPdfDigest()).isEqualTo(result.digest());
+        assertThat(pdfStore.find(report.getPdfPath())).isPresent();
+        verify(pdfService, never()).generatePdf(any(Report.class));
+    }
+
+    @Test
+    void concurrentFirstDownloadsShareOneRender() throws Exception {
+        Report first = buildReport(null);
+        Report second = buildReport(null);
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(reportRepository.findByIdAndUserId(9L, 7L)).thenReturn(Optional.of(first), Optional.of(second));
+        when(pdfService.generatePdf(first)).thenAnswer(invocation -> {
+            rendering.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return pdfStore.put(bytes("%PDF"));
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ReportPdfService.PdfFile> leader = executor.submit(() -> reportPdfService.getPdf(7L, 9L));
+            assertThat(rendering.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<ReportPdfService.PdfFile> follower = executor.submit(() -> reportPdfService.getPdf(7L, 9L));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS).digest()).isEqualTo(PdfStore.sha256(bytes("%PDF")));
+            assertThat(follower.get(5, TimeUnit.SECONDS).digest()).isEqualTo(PdfStore.sha256(bytes("%PDF")));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(pdfService, times(1)).generatePdf(first);
+        verify(pdfService, never()).generatePdf(second);
+    }
+
+    @Test
+    void streamPdfRendersIntoGivenStreamWithoutStoringAFile() throws Exception {
+        Report report = buildReport(null);
+        when(reportRepository.findByIdAndUserId(9L, 7L)).thenReturn(Optional.of(report));
+
+        ReportPdfService.PdfStream pdf = reportPdfService.streamPdf(7L, 9L);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        pdf.body().writeTo(outputStream);
+
+        assertThat(pdf.filename()).isEqualTo("health-report_2026-05-01_2026-05-07_9.pdf");
+        assertThat(pdf.etag()).startsWith("W/\"9-");
+        verify(pdfService).renderPdf(report, outputStream);
+        verify(pdfService, never()).generatePdf(any(Report.class));
+        assertThat(report.getPdfPath()).isNull();
+    }
+
+    @Test
+    void streamPdfTagChangesWhenThePeriodsEntriesChange() {
+        Report report = buildReport(null);
+        LocalDateTime edited = LocalDateTime.of(2026, 5, 9, 8, 0);
+        when(reportRepository.findByIdAndUserId(9L, 7L)).thenReturn(Optional.of(report));
+        when(symptomEntryRepository.findWatermark(7L, report.getWeekStartDate(), report.getWeekEndDate()))
+                .thenReturn(new EntryWatermark(4L, LocalDateTime.of(2026, 5, 7, 9, 0)))
+                .thenReturn(new EntryWatermark(4L, edited));
+
+        ReportPdfService.PdfStream before = reportPdfService.streamPdf(7L, 9L);
+        ReportPdfService.PdfStream after = reportPdfService.streamPdf(7L, 9L);
+
+        assertThat(before.etag()).contains("-v" + PdfService.LAYOUT_VERSION + "-4-");
+        assertThat(after.etag()).isNotEqualTo(before.etag());
+        assertThat(before.lastModified()).isEqualTo(report.getGeneratedAt().atZone(ZoneId.systemDefault()).toInstant());
+        assertThat(after.lastModified()).isEqualTo(edited.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    @Test
+    void rejectsReportOfAnotherUser() {
+        when(reportRepository.findByIdAndUserId(9L, 8L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> reportPdfService.getPdf(8L, 9L))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private Report buildReport(String pdfPath) {
+        Report report = new Report();
+        report.setId(9L);
+        report.setWeekStartDate(LocalDate.of(2026, 5, 1));
+        report.setWeekEndDate(LocalDate.of(2026, 5, 7));
+        report.setGeneratedAt(LocalDateTime.of(2026, 5, 7, 18, 30));
+        report.setPdfPath(pdfPath);
+        return report;
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.US_ASCII);
+    }
+}
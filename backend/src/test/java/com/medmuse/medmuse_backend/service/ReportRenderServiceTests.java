@@ -0,0 +1,107 @@
+package com.medmuse.medmuse_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+
+import com.medmuse.medmuse_backend.entity.Report;
+import com.medmuse.medmuse_backend.exception.ResourceNotFoundException;
+import com.medmuse.medmuse_backend.repository.ReportRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ReportRenderServiceTests {
+
+    @Mock
+    private ReportRepository reportRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReportRenderService reportRenderService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reportRenderService = new ReportRenderService(
+                List.of(new HtmlReportRenderer(), new MarkdownReportRenderer()), reportRepository, meterRegistry);
+    }
+
+    @Test
+    void rendersHtmlWithEscapedReportText() throws Exception {
+        when(reportRepository.findByIdAndUserId(9L, 7L)).thenReturn(Optional.of(buildReport()));
+
+        ReportRenderService.RenderedReport rendered = reportRenderService.render(7L, 9L, MediaType.TEXT_HTML);
+        String html = new String(rendered.body(), StandardCharsets.UTF_8);
+
+        assertThat(html).startsWith("<!DOCTYPE html>")
+                .contains("<h2>Health Summary</h2>", "<p>Sleep &lt;6h on two nights</p>", "<p>Stable overall</p>",
+                        "<li>Hydration</li>", "<li>Drink more water</li>", "Medical Disclaimer")
+                .doesNotContain("<6h");
+        assertThat(rendered.etag()).startsWith("W/\"9-html-");
+    }
+
+    @Test
+    void rendersMarkdownSections() throws Exception {
+        when(reportRepository.findByIdAndUserId(9L, 7L)).thenReturn(Optional.of(buildReport()));
+
+        String markdown = new String(reportRenderService.render(7L, 9L, MediaType.TEXT_MARKDOWN).body(),
+                StandardCharsets.UTF_8);
+
+        assertThat(markdown).startsWith("# MedMuse Health Report\n")
+                .contains("Report Period: May 01, 2026 - May 07, 2026",
+                        "\n## Health Summary\n\nSleep &lt;6h on two nights\n\nStable overall\n",
+                        "\n## Areas of Attention\n\n- Hydration\n- Sleep\n",
+                        "\n## Personalized Recommendations\n\n- Drink more water\n");
+    }
+
+    @Test
+    void cachesRenderingPerReportAndFormat() throws Exception {
+        when(reportRepository.findByIdAndUserId(9L, 7L)).thenReturn(Optional.of(buildReport()));
+
+        ReportRenderService.RenderedReport first = reportRenderService.render(7L, 9L, MediaType.TEXT_HTML);
+        ReportRenderService.RenderedReport second = reportRenderService.render(7L, 9L, MediaType.TEXT_HTML);
+        reportRenderService.render(7L, 9L, MediaType.TEXT_MARKDOWN);
+
+        assertThat(second).isSameAs(first);
+        verify(reportRepository, times(2)).findByIdAndUserId(9L, 7L);
+        assertThat(meterRegistry.counter("medmuse.report.render.requests", "format", "html", "outcome", "hit")
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void cachedRenderingIsNotServedToAnotherUser() throws Exception {
+        when(reportRepository.findByIdAndUserId(9L, 7L)).thenReturn(Optional.of(buildReport()));
+        when(reportRepository.findByIdAndUserId(9L, 8L)).thenReturn(Optional.empty());
+        reportRenderService.render(7L, 9L, MediaType.TEXT_HTML);
+
+        assertThatThrownBy(() -> reportRenderService.render(8L, 9L, MediaType.TEXT_HTML))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private Report buildReport() {
+        Report report = new Report();
+        report.setId(9L);
+        report.setWeekStartDate(LocalDate.of(2026, 5, 1));
+        report.setWeekEndDate(LocalDate.of(2026, 5, 7));
+        report.setGeneratedAt(LocalDateTime.of(2026, 5, 7, 18, 30));
+        report.setHealthSummary("Sleep <6h on two nights\n\nStable overall");
+        report.setRiskAreas("Hydration\nSleep");
+        report.setRecommendations("Drink more water");
+        return report;
+    }
+}
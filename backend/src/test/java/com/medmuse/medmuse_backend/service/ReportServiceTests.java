@@ -1,18 +1,28 @@
 package com.medmuse.medmuse_backend.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,9 +30,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
 
 import com.itextpdf.text.DocumentException;
+import com.medmuse.medmuse_backend.dto.CursorPage;
 import com.medmuse.medmuse_backend.dto.HealthAnalysisRequest;
 import com.medmuse.medmuse_backend.dto.HealthAnalysisResponse;
 import com.medmuse.medmuse_backend.dto.ReportDto;
@@ -30,14 +44,21 @@ import com.medmuse.medmuse_backend.dto.SymptomEntryDto;
 import com.medmuse.medmuse_backend.dto.UserDemographicsDto;
 import com.medmuse.medmuse_backend.entity.Report;
 import com.medmuse.medmuse_backend.entity.Symptom;
-import com.medmuse.medmuse_backend.entity.SymptomEntry;
 import com.medmuse.medmuse_backend.entity.User;
 import com.medmuse.medmuse_backend.entity.UserDemographics;
+import com.medmuse.medmuse_backend.exception.AiUnavailableException;
+import com.medmuse.medmuse_backend.exception.ValidationException;
+import com.medmuse.medmuse_backend.mapper.DtoMapper;
 import com.medmuse.medmuse_backend.repository.ReportRepository;
 import com.medmuse.medmuse_backend.repository.SymptomEntryRepository;
 import com.medmuse.medmuse_backend.repository.SymptomRepository;
 import com.medmuse.medmuse_backend.repository.UserRepository;
 import com.medmuse.medmuse_backend.service.ai.AIServiceInterface;
+import com.medmuse.medmuse_backend.service.ai.HealthAnalysisStreamHandler;
+import com.medmuse.medmuse_backend.service.interfaces.ReportStreamListener;
+import com.medmuse.medmuse_backend.util.PageCursor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @ExtendWith(MockitoExtension.class)
 class ReportServiceTests {
@@ -58,10 +79,13 @@ class ReportServiceTests {
     private SymptomRepository symptomRepository;
 
     @Mock
-    private PdfService pdfService;
+    private ReportCacheService reportCacheService;
+
+    @Mock
+    private DtoMapper dtoMapper;
 
     @Mock
-    private ModelMapper modelMapper;
+    private PlatformTransactionManager transactionManager;
 
     private ReportService reportService;
 
@@ -73,18 +97,17 @@ class ReportServiceTests {
                 userRepository,
                 symptomEntryRepository,
                 symptomRepository,
-                pdfService,
-                modelMapper);
+                reportCacheService,
+                new InProcessReportRequestCoalescer(new SimpleMeterRegistry()),
+                dtoMapper,
+                new SimpleMeterRegistry(),
+                transactionManager);
     }
 
     @Test
     void generateReportForPeriodUsesAvailableEntriesWithinSelectedRange() throws DocumentException, IOException {
         User user = buildUser();
         UserDemographics demographics = user.getDemographics();
-        Symptom headache = buildSymptom(1L, "Headache", "Pain");
-
-        SymptomEntry firstEntry = new SymptomEntry(user, headache, null, 6, "Morning headache", LocalDate.of(2026, 5, 3), LocalTime.of(8, 15));
-        SymptomEntry secondEntry = new SymptomEntry(user, headache, null, 8, "Evening headache", LocalDate.of(2026, 5, 4), LocalTime.of(19, 45));
 
         SymptomEntryDto firstEntryDto = buildSymptomEntryDto(
                 1L,
@@ -104,12 +127,13 @@ class ReportServiceTests {
                 LocalTime.of(19, 45));
 
         when(userRepository.findById(7L)).thenReturn(Optional.of(user));
-        when(symptomEntryRepository.findByUserIdAndEntryDateBetweenOrderByEntryDateDescEntryTimeDesc(
+        when(reportCacheService.lookup(any(User.class), any(), any(), any())).thenAnswer(invocation -> cacheMiss());
+        when(symptomEntryRepository.findEntryDtosInPeriod(
                 7L,
                 LocalDate.of(2026, 4, 28),
                 LocalDate.of(2026, 5, 4)))
-                .thenReturn(List.of(secondEntry, firstEntry));
-        when(modelMapper.map(demographics, UserDemographicsDto.class)).thenReturn(buildDemographicsDto());
+                .thenReturn(List.of(secondEntryDto, firstEntryDto));
+        when(dtoMapper.toDto(demographics)).thenReturn(buildDemographicsDto());
         when(aiService.analyzeHealthData(any(HealthAnalysisRequest.class)))
                 .thenReturn(new HealthAnalysisResponse("Summary", "Risks", "Recommendations", "OpenAI"));
         when(reportRepository.save(any(Report.class))).thenAnswer(invocation -> {
@@ -119,8 +143,7 @@ class ReportServiceTests {
             }
             return report;
         });
-        when(pdfService.generatePdf(any(Report.class))).thenReturn("C:\\reports\\report-99.pdf");
-        when(modelMapper.map(any(Report.class), eq(ReportDto.class))).thenReturn(buildReportDto(99L));
+        when(dtoMapper.toDto(any(Report.class))).thenReturn(buildReportDto(99L));
 
         ReportDto result = reportService.generateReportForPeriod(
                 7L,
@@ -138,23 +161,104 @@ class ReportServiceTests {
         assertThat(capturedRequest.getSelectedSymptomNames()).isEmpty();
         assertThat(capturedRequest.getSymptomEntries()).containsExactly(secondEntryDto, firstEntryDto);
 
-        verify(symptomEntryRepository).findByUserIdAndEntryDateBetweenOrderByEntryDateDescEntryTimeDesc(
+        ArgumentCaptor<Report> reportCaptor = ArgumentCaptor.forClass(Report.class);
+        verify(reportRepository, times(1)).save(reportCaptor.capture());
+        assertThat(reportCaptor.getValue().getPdfPath()).isNull();
+        ArgumentCaptor<String> timingsCaptor = ArgumentCaptor.forClass(String.class);
+        verify(reportRepository).updateStageTimings(eq(99L), timingsCaptor.capture());
+        assertThat(timingsCaptor.getValue())
+                .contains("\"cache-lookup\":", "\"entry-query\":", "\"ai-analysis\":", "\"report-save\":")
+                .doesNotContain("pdf");
+
+        verify(symptomEntryRepository).findEntryDtosInPeriod(
                 7L,
                 LocalDate.of(2026, 4, 28),
                 LocalDate.of(2026, 5, 4));
-        verify(symptomEntryRepository, never()).findByUserIdAndEntryDateBetweenAndSymptomIdInOrderByEntryDateDescEntryTimeDesc(
+        verify(symptomEntryRepository, never()).findEntryDtosInPeriodForSymptoms(
                 any(),
                 any(),
                 any(),
                 any());
     }
 
+    @Test
+    void generateReportForPeriodCallsTheProviderWithNoTransactionOpen() throws DocumentException, IOException {
+        User user = buildUser();
+        AtomicInteger openTransactions = new AtomicInteger();
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            openTransactions.incrementAndGet();
+            return mock(TransactionStatus.class);
+        });
+        doAnswer(invocation -> openTransactions.decrementAndGet()).when(transactionManager).commit(any());
+
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        when(reportCacheService.lookup(any(User.class), any(), any(), any())).thenAnswer(invocation -> cacheMiss());
+        when(symptomEntryRepository.findEntryDtosInPeriod(any(), any(), any())).thenReturn(List.of());
+        when(dtoMapper.toDto(user.getDemographics())).thenReturn(buildDemographicsDto());
+        AtomicInteger openDuringAnalysis = new AtomicInteger(-1);
+        when(aiService.analyzeHealthData(any(HealthAnalysisRequest.class))).thenAnswer(invocation -> {
+            openDuringAnalysis.set(openTransactions.get());
+            return new HealthAnalysisResponse("Summary", "Risks", "Recommendations", "OpenAI");
+        });
+        AtomicInteger openDuringSave = new AtomicInteger(-1);
+        when(reportRepository.save(any(Report.class))).thenAnswer(invocation -> {
+            openDuringSave.set(openTransactions.get());
+            Report report = invocation.getArgument(0);
+            report.setId(99L);
+            return report;
+        });
+        when(dtoMapper.toDto(any(Report.class))).thenReturn(buildReportDto(99L));
+
+        reportService.generateReportForPeriod(7L, LocalDate.of(2026, 4, 28), LocalDate.of(2026, 5, 4));
+
+        assertThat(openDuringAnalysis).hasValue(0);
+        assertThat(openDuringSave).hasValue(1);
+        assertThat(openTransactions).hasValue(0);
+    }
+
+    @Test
+    void generateReportForPeriodReadsEntriesInAReadOnlyTransaction() throws DocumentException, IOException {
+        User user = buildUser();
+        Deque<Boolean> openReadOnly = new ArrayDeque<>();
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            openReadOnly.push(invocation.<TransactionDefinition>getArgument(0).isReadOnly());
+            return mock(TransactionStatus.class);
+        });
+        doAnswer(invocation -> openReadOnly.pop()).when(transactionManager).commit(any());
+
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        when(reportCacheService.lookup(any(User.class), any(), any(), any())).thenAnswer(invocation -> cacheMiss());
+        List<Boolean> readOnlyDuringQuery = new ArrayList<>();
+        when(symptomEntryRepository.findEntryDtosInPeriod(any(), any(), any())).thenAnswer(invocation -> {
+            readOnlyDuringQuery.addAll(openReadOnly);
+            return List.of();
+        });
+        when(dtoMapper.toDto(user.getDemographics())).thenReturn(buildDemographicsDto());
+        when(aiService.analyzeHealthData(any(HealthAnalysisRequest.class))).thenAnswer(invocation -> {
+            assertThat(openReadOnly).isEmpty();
+            return new HealthAnalysisResponse("Summary", "Risks", "Recommendations", "OpenAI");
+        });
+        List<Boolean> readOnlyDuringSave = new ArrayList<>();
+        when(reportRepository.save(any(Report.class))).thenAnswer(invocation -> {
+            readOnlyDuringSave.addAll(openReadOnly);
+            Report report = invocation.getArgument(0);
+            report.setId(99L);
+            return report;
+        });
+        when(dtoMapper.toDto(any(Report.class))).thenReturn(buildReportDto(99L));
+
+        reportService.generateReportForPeriod(7L, LocalDate.of(2026, 4, 28), LocalDate.of(2026, 5, 4));
+
+        assertThat(readOnlyDuringQuery).containsExactly(true);
+        assertThat(readOnlyDuringSave).containsExactly(false);
+        assertThat(openReadOnly).isEmpty();
+    }
+
     @Test
     void generateReportForPeriodFiltersEntriesBySelectedSymptoms() throws DocumentException, IOException {
         User user = buildUser();
         UserDemographics demographics = user.getDemographics();
         Symptom nausea = buildSymptom(2L, "Nausea", "Digestive");
-        SymptomEntry nauseaEntry = new SymptomEntry(user, nausea, null, 5, "After lunch", LocalDate.of(2026, 5, 4), LocalTime.of(13, 10));
         SymptomEntryDto nauseaEntryDto = buildSymptomEntryDto(
                 2L,
                 "Nausea",
@@ -165,14 +269,15 @@ class ReportServiceTests {
                 LocalTime.of(13, 10));
 
         when(userRepository.findById(7L)).thenReturn(Optional.of(user));
-        when(symptomEntryRepository.findByUserIdAndEntryDateBetweenAndSymptomIdInOrderByEntryDateDescEntryTimeDesc(
+        when(reportCacheService.lookup(any(User.class), any(), any(), any())).thenAnswer(invocation -> cacheMiss());
+        when(symptomEntryRepository.findEntryDtosInPeriodForSymptoms(
                 7L,
                 LocalDate.of(2026, 4, 28),
                 LocalDate.of(2026, 5, 4),
                 List.of(2L)))
-                .thenReturn(List.of(nauseaEntry));
+                .thenReturn(List.of(nauseaEntryDto));
         when(symptomRepository.findAllById(List.of(2L))).thenReturn(List.of(nausea));
-        when(modelMapper.map(demographics, UserDemographicsDto.class)).thenReturn(buildDemographicsDto());
+        when(dtoMapper.toDto(demographics)).thenReturn(buildDemographicsDto());
         when(aiService.analyzeHealthData(any(HealthAnalysisRequest.class)))
                 .thenReturn(new HealthAnalysisResponse("Summary", "Risks", "Recommendations", "OpenAI"));
         when(reportRepository.save(any(Report.class))).thenAnswer(invocation -> {
@@ -182,8 +287,7 @@ class ReportServiceTests {
             }
             return report;
         });
-        when(pdfService.generatePdf(any(Report.class))).thenReturn("C:\\reports\\report-101.pdf");
-        when(modelMapper.map(any(Report.class), eq(ReportDto.class))).thenReturn(buildReportDto(101L));
+        when(dtoMapper.toDto(any(Report.class))).thenReturn(buildReportDto(101L));
 
         reportService.generateReportForPeriod(
                 7L,
@@ -198,17 +302,166 @@ class ReportServiceTests {
         assertThat(capturedRequest.getSelectedSymptomNames()).containsExactly("Nausea");
         assertThat(capturedRequest.getSymptomEntries()).containsExactly(nauseaEntryDto);
 
-        verify(symptomEntryRepository).findByUserIdAndEntryDateBetweenAndSymptomIdInOrderByEntryDateDescEntryTimeDesc(
+        verify(symptomEntryRepository).findEntryDtosInPeriodForSymptoms(
                 7L,
                 LocalDate.of(2026, 4, 28),
                 LocalDate.of(2026, 5, 4),
                 List.of(2L));
-        verify(symptomEntryRepository, never()).findByUserIdAndEntryDateBetweenOrderByEntryDateDescEntryTimeDesc(
+        verify(symptomEntryRepository, never()).findEntryDtosInPeriod(
                 any(),
                 any(),
                 any());
     }
 
+    @Test
+    void generateReportForPeriodReturnsLastGoodReportWhenProviderIsUnavailable() throws DocumentException, IOException {
+        User user = buildUser();
+        Report previous = new Report();
+        previous.setId(55L);
+
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        when(reportCacheService.lookup(any(User.class), any(), any(), any())).thenAnswer(invocation -> cacheMiss());
+        when(dtoMapper.toDto(user.getDemographics())).thenReturn(buildDemographicsDto());
+        when(aiService.analyzeHealthData(any(HealthAnalysisRequest.class)))
+                .thenThrow(new AiUnavailableException("OpenAI", "Circuit open", 30));
+        when(reportRepository.findFirstByUserIdOrderByGeneratedAtDesc(7L)).thenReturn(Optional.of(previous));
+        when(dtoMapper.toDto(previous)).thenReturn(buildReportDto(55L));
+
+        ReportDto result = reportService.generateReportForPeriod(
+                7L,
+                LocalDate.of(2026, 4, 28),
+                LocalDate.of(2026, 5, 4));
+
+        assertThat(result.getId()).isEqualTo(55L);
+        assertThat(result.getRegenerateLater()).isTrue();
+        verify(reportRepository, never()).save(any(Report.class));
+    }
+
+    @Test
+    void streamReportForPeriodReturnsLastGoodReportWhenProviderFailsMidStream() {
+        User user = buildUser();
+        Report previous = new Report();
+        previous.setId(55L);
+
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        when(reportCacheService.lookup(any(User.class), any(), any(), any())).thenAnswer(invocation -> cacheMiss());
+        when(dtoMapper.toDto(user.getDemographics())).thenReturn(buildDemographicsDto());
+        doAnswer(invocation -> {
+            HealthAnalysisStreamHandler handler = invocation.getArgument(1);
+            handler.onPartial("healthSummary", "Stable");
+            handler.onError(new AiUnavailableException("OpenAI", "Provider request failed", 60));
+            return null;
+        }).when(aiService).streamHealthData(any(HealthAnalysisRequest.class), any(HealthAnalysisStreamHandler.class));
+        when(reportRepository.findFirstByUserIdOrderByGeneratedAtDesc(7L)).thenReturn(Optional.of(previous));
+        when(dtoMapper.toDto(previous)).thenReturn(buildReportDto(55L));
+
+        AtomicReference<ReportDto> report = new AtomicReference<>();
+        reportService.streamReportForPeriod(7L, LocalDate.of(2026, 4, 28), LocalDate.of(2026, 5, 4), List.of(),
+                new ReportStreamListener() {
+                    @Override
+                    public void onPartial(String field, String text) {
+                    }
+
+                    @Override
+                    public void onReport(ReportDto dto) {
+                        report.set(dto);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        throw new AssertionError(error);
+                    }
+                });
+
+        assertThat(report.get().getId()).isEqualTo(55L);
+        assertThat(report.get().getRegenerateLater()).isTrue();
+        verify(reportRepository, never()).save(any(Report.class));
+    }
+
+    @Test
+    void generateReportForPeriodDoesNotPersistFallbackTextWithoutPreviousReport() throws DocumentException, IOException {
+        User user = buildUser();
+        HealthAnalysisResponse fallback = new HealthAnalysisResponse("Unable to process AI response.", "Parsing error.",
+                "Please retry later.", "OpenAI");
+        fallback.setFallback(true);
+
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        when(reportCacheService.lookup(any(User.class), any(), any(), any())).thenAnswer(invocation -> cacheMiss());
+        when(dtoMapper.toDto(user.getDemographics())).thenReturn(buildDemographicsDto());
+        when(aiService.analyzeHealthData(any(HealthAnalysisRequest.class))).thenReturn(fallback);
+        when(reportRepository.findFirstByUserIdOrderByGeneratedAtDesc(7L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> reportService.generateReportForPeriod(
+                7L,
+                LocalDate.of(2026, 4, 28),
+                LocalDate.of(2026, 5, 4)))
+                .isInstanceOf(AiUnavailableException.class);
+        verify(reportRepository, never()).save(any(Report.class));
+    }
+
+    @Test
+    void generateReportForPeriodReturnsCachedReportWithoutCallingAi() throws DocumentException, IOException {
+        User user = buildUser();
+        Report cachedReport = new Report();
+        cachedReport.setId(42L);
+
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        when(reportCacheService.lookup(user, LocalDate.of(2026, 4, 28), LocalDate.of(2026, 5, 4), List.of(2L, 3L)))
+                .thenReturn(new ReportCacheService.Lookup(null, "key", cachedReport));
+        when(dtoMapper.toDto(cachedReport)).thenReturn(buildReportDto(42L));
+
+        ReportDto result = reportService.generateReportForPeriod(
+                7L,
+                LocalDate.of(2026, 4, 28),
+                LocalDate.of(2026, 5, 4),
+                List.of(2L, 3L, 2L));
+
+        assertThat(result.getId()).isEqualTo(42L);
+        verifyNoInteractions(aiService);
+        verify(reportRepository, never()).save(any(Report.class));
+    }
+
+    @Test
+    void cursorPageTrimsTheLookaheadRowAndResumesAfterTheLastReport() {
+        ReportDto newest = buildReportDto(12L);
+        ReportDto middle = buildReportDto(11L);
+        ReportDto lookahead = buildReportDto(10L);
+        when(reportRepository.findReportDtosByUserId(1L, Limit.of(3)))
+                .thenReturn(List.of(newest, middle, lookahead));
+
+        CursorPage<ReportDto> first = reportService.getUserReports(1L, null, 2, false);
+
+        assertThat(first.getContent()).containsExactly(newest, middle);
+        assertThat(first.getNextCursor()).isNotNull();
+        assertThat(first.getTotalElements()).isNull();
+
+        when(reportRepository.findReportDtosBefore(1L, middle.getGeneratedAt(), 11L, Limit.of(3)))
+                .thenReturn(List.of(lookahead));
+        when(reportRepository.countByUserId(1L)).thenReturn(3L);
+
+        CursorPage<ReportDto> last = reportService.getUserReports(1L, first.getNextCursor(), 2, true);
+
+        assertThat(last.getContent()).containsExactly(lookahead);
+        assertThat(last.getNextCursor()).isNull();
+        assertThat(last.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void cursorPageRejectsMalformedCursors() {
+        String wrongKeys = PageCursor.encode("2026-05-04T14:00");
+        String wrongTypes = PageCursor.encode("yesterday", 11L);
+
+        for (String cursor : List.of("not a cursor!", wrongKeys, wrongTypes)) {
+            assertThatThrownBy(() -> reportService.getUserReports(1L, cursor, 20, false))
+                    .isInstanceOf(ValidationException.class);
+        }
+        verifyNoInteractions(reportRepository);
+    }
+
+    private ReportCacheService.Lookup cacheMiss() {
+        return new ReportCacheService.Lookup(null, "cache-key", null);
+    }
+
     private User buildUser() {
         User user = new User();
         user.setId(7L);
@@ -0,0 +1,72 @@
+package com.medmuse.medmuse_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.time.LocalDate;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.medmuse.medmuse_backend.repository.SeverityPoint;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SeverityChartRendererTests {
+
+    private static final LocalDate START = LocalDate.of(2026, 5, 1);
+    private static final LocalDate END = LocalDate.of(2026, 5, 7);
+
+    private SimpleMeterRegistry meterRegistry;
+    private SeverityChartRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        renderer = new SeverityChartRenderer(meterRegistry);
+    }
+
+    @Test
+    void rendersPngOfChartSize() throws Exception {
+        byte[] png = renderer.render(9L, 1L, points(6), START, END);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertThat(image.getWidth()).isEqualTo(SeverityChartRenderer.WIDTH);
+        assertThat(image.getHeight()).isEqualTo(SeverityChartRenderer.HEIGHT);
+    }
+
+    @Test
+    void rasterizesOncePerReportAndSymptom() {
+        byte[] first = renderer.render(9L, 1L, points(6), START, END);
+        byte[] second = renderer.render(9L, 1L, points(6), START, END);
+        renderer.render(9L, null, points(6), START, END);
+        renderer.render(10L, 1L, points(6), START, END);
+
+        assertThat(second).isSameAs(first);
+        assertThat(count("hit")).isEqualTo(1);
+        assertThat(count("rendered")).isEqualTo(3);
+    }
+
+    @Test
+    void redrawsWhenPointsChanged() {
+        byte[] first = renderer.render(9L, 1L, points(6), START, END);
+        byte[] second = renderer.render(9L, 1L, points(8), START, END);
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(count("rendered")).isEqualTo(2);
+    }
+
+    private static List<SeverityPoint> points(int peak) {
+        return List.of(
+                new SeverityPoint(1L, "Headache", START, peak, 4.5, 2L),
+                new SeverityPoint(1L, "Headache", START.plusDays(3), 3, 3.0, 1L));
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.counter("medmuse.report.pdf.charts", "outcome", outcome).count();
+    }
+}
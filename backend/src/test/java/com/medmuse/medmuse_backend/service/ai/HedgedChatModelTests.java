@@ -0,0 +1,272 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medmuse.medmuse_backend.config.AiProperties;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class HedgedChatModelTests {
+
+    private static final String VALID_JSON = """
+            {"healthSummary":"ok","riskAreas":"none","recommendations":"rest"}
+            """;
+
+    private AiProperties.HedgeSettings settings;
+    private SimpleMeterRegistry meterRegistry;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        settings = new AiProperties.HedgeSettings();
+        settings.setEnabled(true);
+        settings.setInitialDelay(Duration.ofMillis(100));
+        settings.setMinDelay(Duration.ofMillis(50));
+        meterRegistry = new SimpleMeterRegistry();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void chatWithProviderShouldReturnPrimaryWithoutHedgingWhenItAnswersInTime() {
+        HedgedChatModel model = hedged(respond(VALID_JSON), respond(VALID_JSON));
+
+        HedgedChatModel.ProviderResponse response = model.chatWithProvider("prompt");
+
+        assertThat(response.provider()).isEqualTo("OpenAI");
+        assertThat(meterRegistry.find("medmuse.ai.hedge.requests").counter()).isNull();
+    }
+
+    @Test
+    void chatWithProviderShouldHedgeToSecondaryWhenPrimaryIsSlow() {
+        CountDownLatch primaryInterrupted = new CountDownLatch(1);
+        ChatModel slowPrimary = new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    primaryInterrupted.countDown();
+                }
+                return response(VALID_JSON);
+            }
+        };
+        HedgedChatModel model = hedged(slowPrimary, respond(VALID_JSON));
+
+        HedgedChatModel.ProviderResponse response = model.chatWithProvider("prompt");
+
+        assertThat(response.provider()).isEqualTo("Gemini");
+        assertThat(meterRegistry.get("medmuse.ai.hedge.requests").tag("reason", "slow").counter().count())
+                .isEqualTo(1.0);
+        assertThat(awaitQuietly(primaryInterrupted)).isTrue();
+    }
+
+    @Test
+    void chatWithProviderShouldFailOverImmediatelyWhenPrimaryReturnsInvalidJson() {
+        HedgedChatModel model = hedged(respond("not json"), respond(VALID_JSON));
+
+        HedgedChatModel.ProviderResponse response = model.chatWithProvider("prompt");
+
+        assertThat(response.provider()).isEqualTo("Gemini");
+        assertThat(meterRegistry.get("medmuse.ai.hedge.requests").tag("reason", "invalid").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void chatWithProviderShouldReturnUnparseableAnswerWhenNoProviderProducesValidJson() {
+        ChatModel failing = new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                throw new IllegalStateException("secondary down");
+            }
+        };
+        HedgedChatModel model = hedged(respond("not json"), failing);
+
+        HedgedChatModel.ProviderResponse response = model.chatWithProvider("prompt");
+
+        assertThat(response.provider()).isEqualTo("OpenAI");
+        assertThat(response.response().aiMessage().text()).isEqualTo("not json");
+    }
+
+    @Test
+    void chatWithProviderShouldRethrowWhenBothProvidersFail() {
+        ChatModel failing = new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                throw new IllegalStateException("down");
+            }
+        };
+        HedgedChatModel model = hedged(failing, failing);
+
+        assertThatThrownBy(() -> model.chatWithProvider("prompt")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void failuresShouldNameTheProviderThatFailed() {
+        ChatModel failing = new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                throw new IllegalStateException("down");
+            }
+        };
+
+        assertThatThrownBy(() -> hedged(failing, failing).chatAttributingFailures("prompt"))
+                .isInstanceOfSatisfying(HedgedChatModel.ProviderFailure.class,
+                        failure -> assertThat(failure.provider()).isEqualTo(HedgedChatModel.BOTH_PROVIDERS))
+                .hasCauseInstanceOf(IllegalStateException.class);
+
+        // No worker for the hedge, so only the primary ran
+        HedgedChatModel unhedged = new HedgedChatModel("OpenAI", failing, "Gemini", respond(VALID_JSON), settings,
+                command -> {
+                    throw new RejectedExecutionException();
+                }, new ObjectMapper(), meterRegistry);
+        assertThatThrownBy(() -> unhedged.chatAttributingFailures("prompt"))
+                .isInstanceOfSatisfying(HedgedChatModel.ProviderFailure.class,
+                        failure -> assertThat(failure.provider()).isEqualTo("OpenAI"));
+    }
+
+    @Test
+    void hedgeDelayShouldFollowObservedPrimaryPercentileOnceWarmedUp() {
+        settings.setMinSamples(3);
+        HedgedChatModel model = hedged(respond(VALID_JSON), respond(VALID_JSON));
+
+        assertThat(model.hedgeDelayNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+        HedgedChatModel.LatencyWindow window = new HedgedChatModel.LatencyWindow(4);
+        for (long millis : new long[] { 10, 20, 30, 400, 500 }) {
+            window.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        assertThat(window.size()).isEqualTo(4);
+        assertThat(window.percentile(0.95)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(window.percentile(0.5)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(30));
+    }
+
+    @Test
+    void primaryCancelledAfterLosingToTheHedgeShouldStillCountTowardsTheDelay() throws Exception {
+        settings.setMinSamples(1);
+        settings.setSampleWindow(2);
+        settings.setPercentile(1.0);
+        AtomicInteger primaryCalls = new AtomicInteger();
+        ChatModel primary = new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                if (primaryCalls.incrementAndGet() == 1) {
+                    return response(VALID_JSON);
+                }
+                try {
+                    Thread.sleep(5_000);
+                    return response(VALID_JSON);
+                } catch (InterruptedException e) {
+                    // HTTP clients surface cancellation as an exception rather than a late response
+                    throw new IllegalStateException("cancelled", e);
+                }
+            }
+        };
+        ChatModel secondary = new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return response(VALID_JSON);
+            }
+        };
+        HedgedChatModel model = hedged(primary, secondary);
+
+        assertThat(model.chatWithProvider("prompt").provider()).isEqualTo("OpenAI");
+        assertThat(model.hedgeDelayNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertThat(model.chatWithProvider("prompt").provider()).isEqualTo("Gemini");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (model.hedgeDelayNanos() == TimeUnit.MILLISECONDS.toNanos(50) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // The primary ran at least as long as the hedge that beat it
+        assertThat(model.hedgeDelayNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    void guardedPrimaryCancelledByTheHedgeShouldNotCountAsAProviderFailure() throws Exception {
+        AiProperties.ProviderSettings guardSettings = new AiProperties.ProviderSettings();
+        guardSettings.setCircuitFailureThreshold(1);
+        ProviderGuard guard = new ProviderGuard("OpenAI", guardSettings, meterRegistry);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        ChatModel slow = new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                try {
+                    Thread.sleep(5_000);
+                    return response(VALID_JSON);
+                } catch (InterruptedException e) {
+                    // Clears the interrupt flag, as HTTP clients typically do before surfacing the failure
+                    cancelled.countDown();
+                    throw new IllegalStateException("cancelled", e);
+                }
+            }
+        };
+        HedgedChatModel model = hedged(new GuardedChatModel(slow, guard), respond(VALID_JSON));
+
+        assertThat(model.chatWithProvider("prompt").provider()).isEqualTo("Gemini");
+        assertThat(awaitQuietly(cancelled)).isTrue();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("medmuse.ai.permits.in-use").gauge().value() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(meterRegistry.get("medmuse.ai.circuit.state").gauge().value()).isZero();
+        guard.acquire(ChatRequest.builder().messages(UserMessage.from("prompt")).build()).close();
+    }
+
+    private HedgedChatModel hedged(ChatModel primary, ChatModel secondary) {
+        return new HedgedChatModel("OpenAI", primary, "Gemini", secondary, settings, executor, new ObjectMapper(),
+                meterRegistry);
+    }
+
+    private static ChatModel respond(String text) {
+        return new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                return response(text);
+            }
+        };
+    }
+
+    private static ChatResponse response(String text) {
+        return ChatResponse.builder().aiMessage(AiMessage.from(text)).build();
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
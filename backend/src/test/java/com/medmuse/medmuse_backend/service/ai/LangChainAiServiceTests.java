@@ -2,15 +2,22 @@ package com.medmuse.medmuse_backend.service.ai;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,12 +27,21 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medmuse.medmuse_backend.config.AiProperties;
 import com.medmuse.medmuse_backend.dto.HealthAnalysisRequest;
 import com.medmuse.medmuse_backend.dto.HealthAnalysisResponse;
 import com.medmuse.medmuse_backend.dto.SymptomEntryDto;
 import com.medmuse.medmuse_backend.dto.UserDemographicsDto;
+import com.medmuse.medmuse_backend.entity.PromptMode;
+import com.medmuse.medmuse_backend.exception.AiUnavailableException;
 
+import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @ExtendWith(MockitoExtension.class)
 class LangChainAiServiceTests {
@@ -33,11 +49,25 @@ class LangChainAiServiceTests {
     @Mock
     private ChatModel chatModel;
 
+    @Mock
+    private StreamingChatModel streamingChatModel;
+
+    private AiProperties aiProperties;
+    private SimpleMeterRegistry meterRegistry;
     private LangChainAiService aiService;
 
     @BeforeEach
     void setUp() {
-        aiService = new LangChainAiService(chatModel, new ObjectMapper(), "OpenAI");
+        aiProperties = new AiProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        aiService = new LangChainAiService(
+                chatModel,
+                streamingChatModel,
+                new ObjectMapper(),
+                new PromptCompactor(aiProperties),
+                meterRegistry,
+                "OpenAI",
+                "gpt-test");
     }
 
     @Test
@@ -88,6 +118,32 @@ class LangChainAiServiceTests {
         assertThat(response.getRiskAreas()).isEqualTo("Parsing error.");
         assertThat(response.getRecommendations()).isEqualTo("Please retry later.");
         assertThat(response.getAiProvider()).isEqualTo("OpenAI");
+        assertThat(meterRegistry.get("medmuse.ai.responses")
+                .tags("provider", "OpenAI", "model", "gpt-test", "outcome", "parse-failed")
+                .counter()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void analyzeHealthDataRecordsStageTimingsAndSizes() {
+        String aiText = """
+                {"healthSummary":"Stable overall","riskAreas":"Hydration","recommendations":"Drink more water"}
+                """;
+        when(chatModel.chat(anyString())).thenReturn(aiText);
+
+        HealthAnalysisResponse response = aiService.analyzeHealthData(buildRequest());
+
+        assertThat(response.getStageMillis()).containsOnlyKeys("prompt-build", "provider-call", "response-parse");
+        assertThat(meterRegistry.get("medmuse.ai.stage")
+                .tags("provider", "OpenAI", "model", "gpt-test", "stage", "provider-call")
+                .timer()
+                .count()).isEqualTo(1);
+        assertThat(meterRegistry.get("medmuse.ai.prompt.tokens").tag("mode", "RAW").summary().totalAmount())
+                .isPositive();
+        assertThat(meterRegistry.get("medmuse.ai.response.chars").summary().totalAmount())
+                .isEqualTo(aiText.length());
+        assertThat(meterRegistry.get("medmuse.ai.responses").tag("outcome", "parsed").counter().count())
+                .isEqualTo(1);
     }
 
     @Test
@@ -173,6 +229,165 @@ class LangChainAiServiceTests {
         assertThat(prompt).contains("- symptom=Custom symptom; category=Custom; customDescription=Tightness across upper chest; severity=8; loggedAt=2026-05-06T18:15; notes=Gets worse while climbing stairs");
     }
 
+    @Test
+    void analyzeHealthDataAggregatesEntriesWhenPromptExceedsTokenBudget() {
+        aiProperties.getPrompt().setTokenBudget(160);
+        aiProperties.getPrompt().setSampleNotes(2);
+        when(chatModel.chat(anyString())).thenReturn("""
+                {"healthSummary":"Frequent headaches","riskAreas":"Sleep","recommendations":"Track triggers"}
+                """);
+
+        List<SymptomEntryDto> entries = new ArrayList<>();
+        for (int day = 1; day <= 20; day++) {
+            entries.add(buildSymptomEntryDto("Headache", "Pain", day % 10, "Headache note " + day,
+                    LocalDate.of(2026, 4, day), LocalTime.of(9, 0)));
+        }
+        entries.add(buildSymptomEntryDto("Nausea", "Digestive", 4, "After lunch",
+                LocalDate.of(2026, 4, 20), LocalTime.of(13, 0)));
+
+        HealthAnalysisRequest request = new HealthAnalysisRequest(
+                42L,
+                LocalDate.of(2026, 4, 1),
+                LocalDate.of(2026, 4, 30),
+                entries,
+                List.of(),
+                buildDemographics()
+        );
+
+        HealthAnalysisResponse response = aiService.analyzeHealthData(request);
+
+        assertThat(response.getPromptMode()).isEqualTo(PromptMode.AGGREGATED);
+
+        ArgumentCaptor<String> promptCaptor = ArgumentCaptor.forClass(String.class);
+        verify(chatModel).chat(promptCaptor.capture());
+
+        String prompt = promptCaptor.getValue();
+        assertThat(prompt).contains("Aggregated from 21 symptom entries");
+        assertThat(prompt).contains("- symptom=Headache; category=Pain; count=20; severityMin=0; severityMax=9; severityMean=4.5; firstSeen=2026-04-01T09:00; lastSeen=2026-04-20T09:00");
+        assertThat(prompt).contains("- symptom=Nausea; category=Digestive; count=1");
+        assertThat(prompt).contains("Headache (severity 9): Headache note 19");
+        assertThat(prompt).contains("Nausea (severity 4): After lunch");
+        assertThat(prompt).doesNotContain("Headache note 1\n");
+        assertThat(prompt).doesNotContain("- symptom=Headache; category=Pain; customDescription=");
+    }
+
+    @Test
+    void analyzeHealthDataKeepsRawEntriesWithinTokenBudget() {
+        when(chatModel.chat(anyString())).thenReturn("""
+                {"healthSummary":"Stable overall","riskAreas":"Hydration","recommendations":"Drink more water"}
+                """);
+
+        HealthAnalysisResponse response = aiService.analyzeHealthData(buildRequest());
+
+        assertThat(response.getPromptMode()).isEqualTo(PromptMode.RAW);
+    }
+
+    @Test
+    void streamHealthDataEmitsFieldTextAsItArrivesAndParsesFinalResponse() {
+        String completion = "{\"healthSummary\":\"Stable\\noverall\",\"riskAreas\":\"Hydration\",\"recommendations\":\"Drink water\"}";
+        doAnswer(invocation -> {
+            StreamingChatResponseHandler handler = invocation.getArgument(1);
+            handler.onPartialResponse("{\"healthSummary\":\"Sta");
+            handler.onPartialResponse("ble\\nover");
+            handler.onPartialResponse("all\",\"riskAreas\":\"Hydration\",\"recommendations\":\"Drink water\"}");
+            handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(completion)).build());
+            return null;
+        }).when(streamingChatModel).chat(anyString(), any(StreamingChatResponseHandler.class));
+
+        List<String> partials = new ArrayList<>();
+        AtomicReference<HealthAnalysisResponse> completed = new AtomicReference<>();
+
+        aiService.streamHealthData(buildRequest(), new HealthAnalysisStreamHandler() {
+            @Override
+            public void onPartial(String field, String text) {
+                partials.add(field + ":" + text);
+            }
+
+            @Override
+            public void onComplete(HealthAnalysisResponse response) {
+                completed.set(response);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                throw new AssertionError(error);
+            }
+        });
+
+        assertThat(partials).containsExactly(
+                "healthSummary:Sta",
+                "healthSummary:ble\nover",
+                "healthSummary:all",
+                "riskAreas:Hydration",
+                "recommendations:Drink water");
+        assertThat(completed.get().getHealthSummary()).isEqualTo("Stable\noverall");
+        assertThat(completed.get().getRecommendations()).isEqualTo("Drink water");
+    }
+
+    @Test
+    void streamHealthDataReportsProviderFailuresAsUnavailable() {
+        RuntimeException failure = new RuntimeException("connection reset");
+        doAnswer(invocation -> {
+            StreamingChatResponseHandler handler = invocation.getArgument(1);
+            handler.onError(failure);
+            return null;
+        }).when(streamingChatModel).chat(anyString(), any(StreamingChatResponseHandler.class));
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        aiService.streamHealthData(buildRequest(), new HealthAnalysisStreamHandler() {
+            @Override
+            public void onPartial(String field, String text) {
+            }
+
+            @Override
+            public void onComplete(HealthAnalysisResponse response) {
+                throw new AssertionError("No response expected");
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                error.set(e);
+            }
+        });
+
+        assertThat(error.get()).isInstanceOf(AiUnavailableException.class).hasCause(failure);
+    }
+
+    @Test
+    void analyzeHealthDataTagsFailuresWithTheProviderThatFailed() {
+        ChatModel failing = new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                throw new IllegalStateException("down");
+            }
+        };
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            AiProperties.HedgeSettings hedge = new AiProperties.HedgeSettings();
+            hedge.setInitialDelay(Duration.ofMillis(10));
+            hedge.setMinDelay(Duration.ofMillis(10));
+            LangChainAiService hedgedService = new LangChainAiService(
+                    new HedgedChatModel("OpenAI", failing, "Gemini", failing, hedge, executor, new ObjectMapper(),
+                            meterRegistry),
+                    streamingChatModel,
+                    new ObjectMapper(),
+                    new PromptCompactor(aiProperties),
+                    meterRegistry,
+                    "OpenAI",
+                    "gpt-test");
+
+            assertThatThrownBy(() -> hedgedService.analyzeHealthData(buildRequest()))
+                    .isInstanceOfSatisfying(AiUnavailableException.class,
+                            e -> assertThat(e.getProvider()).isEqualTo(HedgedChatModel.BOTH_PROVIDERS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(meterRegistry.get("medmuse.ai.responses").tags("provider", HedgedChatModel.BOTH_PROVIDERS,
+                "outcome", "error").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.find("medmuse.ai.responses").tags("provider", "OpenAI").counter()).isNull();
+    }
+
     private HealthAnalysisRequest buildRequest() {
         SymptomEntryDto symptomEntry = buildSymptomEntryDto(
                 "Headache",
@@ -0,0 +1,83 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.medmuse.medmuse_backend.config.AiProperties;
+import com.medmuse.medmuse_backend.dto.SymptomEntryDto;
+import com.medmuse.medmuse_backend.entity.PromptMode;
+
+class PromptCompactorTests {
+
+    private static final LocalDate START = LocalDate.of(2026, 4, 1);
+
+    private AiProperties aiProperties;
+    private PromptCompactor compactor;
+
+    @BeforeEach
+    void setUp() {
+        aiProperties = new AiProperties();
+        compactor = new PromptCompactor(aiProperties);
+    }
+
+    @Test
+    void everySectionStaysWithinTheTokenBudget() {
+        aiProperties.getPrompt().setSampleNotes(50);
+        List<SymptomEntryDto> entries = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            entries.add(named("Symptom " + (i % 60), 1 + i % 10, "Note " + i + " " + "x".repeat(200), i));
+        }
+
+        for (int budget : new int[] { 40, 200, 800 }) {
+            aiProperties.getPrompt().setTokenBudget(budget);
+
+            PromptCompactor.CompactedSymptoms compacted = compactor.compact(raw(entries), entries);
+
+            assertThat(compacted.mode()).isEqualTo(PromptMode.AGGREGATED);
+            assertThat(PromptCompactor.estimateTokens(compacted.text())).isLessThanOrEqualTo(budget);
+        }
+        assertThat(compactor.compact(raw(entries), entries).text())
+                .contains("less frequent symptoms omitted to fit the prompt budget");
+    }
+
+    @Test
+    void customSymptomsShareOneSummaryLine() {
+        aiProperties.getPrompt().setTokenBudget(400);
+        aiProperties.getPrompt().setSampleNotes(0);
+        List<SymptomEntryDto> entries = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            entries.add(custom("Unusual feeling number " + i, 5, i));
+        }
+        entries.add(named("Headache", 7, null, 40));
+
+        String text = compactor.compact(raw(entries), entries).text();
+
+        assertThat(text).contains("- symptom=Custom symptoms; category=Custom; count=40;")
+                .contains("distinctDescriptions=40")
+                .doesNotContain("- symptom=Custom symptom (");
+        assertThat(text.indexOf("symptom=Custom symptoms")).isLessThan(text.indexOf("symptom=Headache"));
+    }
+
+    private static String raw(List<SymptomEntryDto> entries) {
+        return entries.stream().map(SymptomEntryDto::toString).reduce("", (a, b) -> a + b + "\n");
+    }
+
+    private static SymptomEntryDto named(String name, int severity, String notes, int index) {
+        LocalDate date = START.plusDays(index / 10);
+        return new SymptomEntryDto((long) index, (long) name.hashCode(), name, "General", null, severity, notes, date,
+                LocalTime.of(8, index % 10), null);
+    }
+
+    private static SymptomEntryDto custom(String description, int severity, int index) {
+        LocalDate date = START.plusDays(index / 10);
+        return new SymptomEntryDto((long) index, null, null, null, description, severity, null, date,
+                LocalTime.of(8, index % 10), null);
+    }
+}
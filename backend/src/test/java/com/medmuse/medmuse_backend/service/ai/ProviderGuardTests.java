@@ -0,0 +1,181 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.medmuse.medmuse_backend.config.AiProperties;
+import com.medmuse.medmuse_backend.exception.AiCapacityExceededException;
+import com.medmuse.medmuse_backend.exception.AiUnavailableException;
+
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProviderGuardTests {
+
+    private static final ChatRequest REQUEST = ChatRequest.builder()
+            .messages(UserMessage.from("x".repeat(400)))
+            .build();
+
+    private AiProperties.ProviderSettings settings;
+    private SimpleMeterRegistry meterRegistry;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        settings = new AiProperties.ProviderSettings();
+        meterRegistry = new SimpleMeterRegistry();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void acquireShouldRejectImmediatelyWhenWaitQueueIsFull() throws Exception {
+        settings.setMaxConcurrent(1);
+        settings.setQueueCapacity(0);
+        ProviderGuard guard = new ProviderGuard("OpenAI", settings, meterRegistry);
+
+        try (ProviderGuard.Permit permit = guard.acquire(REQUEST)) {
+            assertThat(meterRegistry.get("medmuse.ai.permits.in-use").gauge().value()).isEqualTo(1.0);
+
+            assertThatThrownBy(() -> guard.acquire(REQUEST))
+                    .isInstanceOf(AiCapacityExceededException.class)
+                    .satisfies(ex -> assertThat(((AiCapacityExceededException) ex).getRetryAfterSeconds()).isPositive());
+        }
+
+        assertThat(meterRegistry.get("medmuse.ai.requests.rejected").tag("reason", "queue-full").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("medmuse.ai.permits.in-use").gauge().value()).isZero();
+    }
+
+    @Test
+    void acquireShouldWaitForReleasedPermitWithinMaxWait() throws Exception {
+        settings.setMaxConcurrent(1);
+        settings.setQueueCapacity(1);
+        settings.setMaxWait(Duration.ofSeconds(5));
+        ProviderGuard guard = new ProviderGuard("OpenAI", settings, meterRegistry);
+        ProviderGuard.Permit held = guard.acquire(REQUEST);
+        CountDownLatch started = new CountDownLatch(1);
+
+        Future<Boolean> waiter = executor.submit(() -> {
+            started.countDown();
+            try (ProviderGuard.Permit permit = guard.acquire(REQUEST)) {
+                return true;
+            }
+        });
+
+        started.await(1, TimeUnit.SECONDS);
+        Thread.sleep(50);
+        held.close();
+
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.get("medmuse.ai.permits.wait").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void acquireShouldRejectWhenTokenBudgetCannotRefillWithinMaxWait() {
+        AtomicLong clock = new AtomicLong();
+        settings.setTokensPerMinute(150);
+        settings.setMaxWait(Duration.ofSeconds(1));
+        ProviderGuard guard = new ProviderGuard("Gemini", settings, meterRegistry, clock::get);
+
+        guard.acquire(REQUEST).close();
+
+        assertThatThrownBy(() -> guard.acquire(REQUEST))
+                .isInstanceOf(AiCapacityExceededException.class)
+                .satisfies(ex -> assertThat(((AiCapacityExceededException) ex).getRetryAfterSeconds())
+                        .isGreaterThan(1));
+        assertThat(meterRegistry.get("medmuse.ai.permits.in-use").gauge().value()).isZero();
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        guard.acquire(REQUEST).close();
+    }
+
+    @Test
+    void acquireShouldHandBackTheRequestSlotWhenTheTokenBudgetRejects() {
+        AtomicLong clock = new AtomicLong();
+        settings.setRequestsPerMinute(2);
+        settings.setTokensPerMinute(150);
+        settings.setMaxWait(Duration.ofSeconds(1));
+        ProviderGuard guard = new ProviderGuard("Gemini", settings, meterRegistry, clock::get);
+
+        guard.acquire(REQUEST).close();
+        assertThatThrownBy(() -> guard.acquire(REQUEST)).isInstanceOf(AiCapacityExceededException.class);
+
+        // Enough for the token budget to cover another request, but not for a fresh request slot
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(25));
+        guard.acquire(REQUEST).close();
+
+        assertThat(meterRegistry.get("medmuse.ai.requests.rejected").tag("reason", "rate-limit").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void guardedChatModelShouldTranslateProviderRateLimitAndReleasePermit() {
+        settings.setMaxConcurrent(1);
+        settings.setQueueCapacity(0);
+        ProviderGuard guard = new ProviderGuard("OpenAI", settings, meterRegistry);
+        ChatModel failing = new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                throw new RateLimitException("429");
+            }
+        };
+        ChatModel guarded = new GuardedChatModel(failing, guard);
+
+        assertThatThrownBy(() -> guarded.chat("prompt"))
+                .isInstanceOf(AiCapacityExceededException.class)
+                .hasCauseInstanceOf(RateLimitException.class);
+        assertThatThrownBy(() -> guarded.chat("prompt"))
+                .isInstanceOf(AiCapacityExceededException.class);
+        assertThat(meterRegistry.get("medmuse.ai.requests.rejected").tag("reason", "provider-429").counter().count())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    void circuitShouldOpenAfterConsecutiveFailuresAndAllowOneTrialAfterOpenDuration() {
+        AtomicLong clock = new AtomicLong();
+        settings.setCircuitFailureThreshold(2);
+        settings.setCircuitOpenDuration(Duration.ofSeconds(30));
+        ProviderGuard guard = new ProviderGuard("OpenAI", settings, meterRegistry, clock::get);
+
+        for (int i = 0; i < 2; i++) {
+            try (ProviderGuard.Permit permit = guard.acquire(REQUEST)) {
+                permit.recordFailure();
+            }
+        }
+
+        assertThatThrownBy(() -> guard.acquire(REQUEST))
+                .isInstanceOf(AiUnavailableException.class)
+                .satisfies(ex -> assertThat(((AiUnavailableException) ex).getRetryAfterSeconds()).isEqualTo(30));
+        assertThat(meterRegistry.get("medmuse.ai.circuit.state").gauge().value()).isEqualTo(2.0);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        ProviderGuard.Permit trial = guard.acquire(REQUEST);
+        assertThatThrownBy(() -> guard.acquire(REQUEST)).isInstanceOf(AiUnavailableException.class);
+
+        trial.recordSuccess();
+        trial.close();
+        guard.acquire(REQUEST).close();
+        assertThat(meterRegistry.get("medmuse.ai.circuit.state").gauge().value()).isZero();
+    }
+}
@@ -0,0 +1,65 @@
+package com.medmuse.medmuse_backend.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medmuse.medmuse_backend.config.AiProperties;
+
+import dev.langchain4j.exception.InternalServerException;
+
+class StubChatModelTests {
+
+    private AiProperties.StubSettings settings;
+
+    @BeforeEach
+    void setUp() {
+        settings = new AiProperties.StubSettings();
+        settings.setLatencyMedian(Duration.ofMillis(1));
+        settings.setLatencyP99(Duration.ofMillis(2));
+    }
+
+    @Test
+    void generatesReportJsonOfConfiguredSize() throws Exception {
+        settings.setResponseChars(3000);
+
+        String response = new StubChatModel(settings).respond();
+
+        JsonNode json = new ObjectMapper().readTree(response);
+        assertThat(json.path("healthSummary").asText()).isNotBlank();
+        assertThat(json.path("riskAreas").asText()).isNotBlank();
+        assertThat(json.path("recommendations").asText()).isNotBlank();
+        assertThat(response.length()).isBetween(2900, 3100);
+    }
+
+    @Test
+    void replaysRecordedResponsesInOrder(@TempDir Path directory) throws Exception {
+        Files.writeString(directory.resolve("01.json"), "first");
+        Files.writeString(directory.resolve("02.json"), "second");
+        settings.setReplayDirectory(directory.toString());
+
+        StubChatModel model = new StubChatModel(settings);
+
+        assertThat(model.respond()).isEqualTo("first");
+        assertThat(model.respond()).isEqualTo("second");
+        assertThat(model.respond()).isEqualTo("first");
+    }
+
+    @Test
+    void failsAtConfiguredErrorRate() {
+        settings.setErrorRate(1.0);
+
+        StubChatModel model = new StubChatModel(settings);
+
+        assertThatThrownBy(model::respond).isInstanceOf(InternalServerException.class);
+    }
+}
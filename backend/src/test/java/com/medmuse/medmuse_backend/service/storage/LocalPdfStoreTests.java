@@ -0,0 +1,129 @@
+package com.medmuse.medmuse_backend.service.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LocalPdfStoreTests {
+
+    private static final byte[] PDF = "%PDF-1.4 report body".repeat(50).getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void storesUnderShardedDigestPathAndDeduplicates() throws Exception {
+        LocalPdfStore store = new LocalPdfStore(directory, false);
+
+        PdfStore.StoredPdf first = store.put(PDF);
+        PdfStore.StoredPdf second = store.put(PDF.clone());
+
+        String digest = PdfStore.sha256(PDF);
+        assertThat(first.key()).isEqualTo(digest.substring(0, 2) + "/" + digest.substring(2, 4) + "/" + digest + ".pdf");
+        assertThat(second.key()).isEqualTo(first.key());
+        assertThat(Files.readAllBytes(directory.resolve(first.key()))).isEqualTo(PDF);
+        assertThat(regularFiles()).isEqualTo(1);
+        assertThat(first.resource().isFile()).isTrue();
+    }
+
+    @Test
+    void storesFilesUnderTheSameKeyAsTheirBytes() throws Exception {
+        Path file = Files.write(directory.resolve("report.pdf"), PDF);
+        LocalPdfStore store = new LocalPdfStore(directory.resolve("store"), true);
+
+        PdfStore.StoredPdf stored = store.put(file);
+
+        assertThat(stored.key()).isEqualTo(PdfStore.keyFor(PdfStore.sha256(PDF), true));
+        assertThat(stored.resource().getContentAsByteArray()).isEqualTo(PDF);
+        assertThat(store.put(PDF).key()).isEqualTo(stored.key());
+        assertThat(file).exists();
+    }
+
+    @Test
+    void deduplicatedWriteRefreshesTheModificationTime() throws Exception {
+        Instant now = Instant.parse("2026-06-01T12:00:00Z");
+        LocalPdfStore store = new LocalPdfStore(directory, false, Clock.fixed(now, ZoneOffset.UTC));
+        String key = store.put(PDF).key();
+        Files.setLastModifiedTime(directory.resolve(key), FileTime.from(now.minus(Duration.ofDays(30))));
+
+        PdfStore.StoredPdf reused = store.put(PDF);
+
+        assertThat(reused.lastModified()).isEqualTo(now);
+        assertThat(store.list(null, 10)).extracting(PdfStore.Entry::lastModified).containsExactly(now);
+    }
+
+    @Test
+    void compressedObjectsReadBackWithUncompressedLength() throws Exception {
+        LocalPdfStore store = new LocalPdfStore(directory, true);
+
+        PdfStore.StoredPdf stored = store.put(PDF);
+
+        assertThat(stored.key()).endsWith(".pdf.gz");
+        assertThat(Files.size(directory.resolve(stored.key()))).isLessThan(PDF.length);
+        PdfStore.StoredPdf found = store.find(stored.key()).orElseThrow();
+        assertThat(found.length()).isEqualTo(PDF.length);
+        assertThat(found.resource().contentLength()).isEqualTo(PDF.length);
+        assertThat(found.resource().getContentAsByteArray()).isEqualTo(PDF);
+        assertThat(found.resource().isFile()).isFalse();
+    }
+
+    @Test
+    void ignoresValuesThatAreNotStoreKeys() throws Exception {
+        Files.writeString(directory.resolve("outside.pdf"), "%PDF");
+        LocalPdfStore store = new LocalPdfStore(directory.resolve("store"), false);
+
+        assertThat(store.find("../outside.pdf")).isEmpty();
+        assertThat(store.delete("../outside.pdf")).isFalse();
+        assertThat(directory.resolve("outside.pdf")).exists();
+    }
+
+    @Test
+    void deleteRemovesObjectAndEmptyShards() throws Exception {
+        LocalPdfStore store = new LocalPdfStore(directory, false);
+        PdfStore.StoredPdf stored = store.put(PDF);
+
+        assertThat(store.delete(stored.key())).isTrue();
+        assertThat(store.find(stored.key())).isEmpty();
+        assertThat(store.delete(stored.key())).isFalse();
+        try (Stream<Path> entries = Files.list(directory)) {
+            assertThat(entries).isEmpty();
+        }
+    }
+
+    @Test
+    void listsKeysInOrderAcrossPages() throws Exception {
+        LocalPdfStore store = new LocalPdfStore(directory, false);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            keys.add(store.put(("%PDF " + i).getBytes(StandardCharsets.US_ASCII)).key());
+        }
+        Files.writeString(directory.resolve(keys.get(0)).resolveSibling("partial.tmp"), "%PD");
+        Collections.sort(keys);
+
+        List<PdfStore.Entry> firstPage = store.list(null, 3);
+        List<PdfStore.Entry> secondPage = store.list(firstPage.get(2).key(), 3);
+
+        assertThat(firstPage).extracting(PdfStore.Entry::key).containsExactlyElementsOf(keys.subList(0, 3));
+        assertThat(secondPage).extracting(PdfStore.Entry::key).containsExactlyElementsOf(keys.subList(3, 5));
+    }
+
+    private long regularFiles() throws Exception {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
@@ -43,6 +43,8 @@ export interface CustomReportParams {
 /**
  * Helper to map backend ReportDto -> frontend Report
  * backend ReportDto uses `pdfPath` (string|null). We expose `hasPdf` boolean.
+ * The backend renders the PDF on first download, so every saved report has one
+ * even while `pdfPath` is still empty.
  */
 function mapReportDtoToReport(dto: any): Report {
   return {
@@ -54,7 +56,7 @@ function mapReportDtoToReport(dto: any): Report {
     riskAreas: dto.riskAreas,
     recommendations: dto.recommendations,
     pdfPath: dto.pdfPath,
-    hasPdf: !!(dto.pdfPath && dto.pdfPath.toString().trim().length > 0),
+    hasPdf: dto.id != null,
   };
 }
 